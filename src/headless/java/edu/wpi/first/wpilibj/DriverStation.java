@@ -0,0 +1,44 @@
+package edu.wpi.first.wpilibj;
+
+/**
+ * Headless stand-in for WPILib's DriverStation so robot code can run on a
+ * computer without the HAL. Acts like a driver station that is disabled.
+ *
+ * @author jack
+ *
+ */
+public class DriverStation {
+	private static final DriverStation instance = new DriverStation();
+
+	public static DriverStation getInstance() {
+		return instance;
+	}
+
+	public static void reportWarning(String error, boolean printTrace) {
+		System.err.println(error);
+	}
+
+	public static void reportError(String error, boolean printTrace) {
+		System.err.println(error);
+	}
+
+	public boolean isAutonomous() {
+		return false;
+	}
+
+	public boolean isTest() {
+		return false;
+	}
+
+	public boolean isDisabled() {
+		return true;
+	}
+
+	public boolean isEnabled() {
+		return false;
+	}
+
+	public String getGameSpecificMessage() {
+		return "";
+	}
+}
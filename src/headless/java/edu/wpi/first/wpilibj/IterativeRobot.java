@@ -0,0 +1,11 @@
+package edu.wpi.first.wpilibj;
+
+/**
+ * Headless stand-in for WPILib's IterativeRobot. Only here so the Robot class
+ * can be loaded; nothing runs the robot loop.
+ *
+ * @author jack
+ *
+ */
+public abstract class IterativeRobot {
+}
@@ -0,0 +1,42 @@
+package edu.wpi.first.wpilibj;
+
+/**
+ * Headless stand-in for WPILib's Timer, using System.nanoTime instead of the
+ * FPGA clock.
+ *
+ * @author jack
+ *
+ */
+public class Timer {
+	private long startTime = System.nanoTime();
+	private double accumulated = 0;
+	private boolean running = false;
+
+	public static double getFPGATimestamp() {
+		return System.nanoTime() / 1e9;
+	}
+
+	public synchronized double get() {
+		if (running) {
+			return accumulated + (System.nanoTime() - startTime) / 1e9;
+		}
+		return accumulated;
+	}
+
+	public synchronized void reset() {
+		accumulated = 0;
+		startTime = System.nanoTime();
+	}
+
+	public synchronized void start() {
+		if (!running) {
+			startTime = System.nanoTime();
+			running = true;
+		}
+	}
+
+	public synchronized void stop() {
+		accumulated = get();
+		running = false;
+	}
+}
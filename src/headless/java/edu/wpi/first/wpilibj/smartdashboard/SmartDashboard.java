@@ -0,0 +1,44 @@
+package edu.wpi.first.wpilibj.smartdashboard;
+
+import java.util.HashMap;
+
+/**
+ * Headless stand-in for WPILib's SmartDashboard. Values are kept in a map so
+ * anything put on the dashboard can be read back.
+ *
+ * @author jack
+ *
+ */
+public class SmartDashboard {
+	private static final HashMap<String, Object> values = new HashMap<String, Object>();
+
+	public static synchronized boolean putNumber(String key, double value) {
+		values.put(key, value);
+		return true;
+	}
+
+	public static synchronized boolean putBoolean(String key, boolean value) {
+		values.put(key, value);
+		return true;
+	}
+
+	public static synchronized boolean putString(String key, String value) {
+		values.put(key, value);
+		return true;
+	}
+
+	public static synchronized double getNumber(String key, double defaultValue) {
+		Object value = values.get(key);
+		return value instanceof Double ? (Double) value : defaultValue;
+	}
+
+	public static synchronized boolean getBoolean(String key, boolean defaultValue) {
+		Object value = values.get(key);
+		return value instanceof Boolean ? (Boolean) value : defaultValue;
+	}
+
+	public static synchronized String getString(String key, String defaultValue) {
+		Object value = values.get(key);
+		return value instanceof String ? (String) value : defaultValue;
+	}
+}
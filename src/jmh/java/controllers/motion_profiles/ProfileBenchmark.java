@@ -0,0 +1,100 @@
+package controllers.motion_profiles;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controllers.PIDcontroller;
+import hardware.DriveBase2018;
+import path_generation.Path;
+import robot.AutonWaypoints;
+
+/**
+ * How long it takes to make the wheel profiles for an auton's path, and how
+ * long one loop of following a profile takes.
+ *
+ * @author jack
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfileBenchmark {
+	/**
+	 * The time between loops of the control thread.
+	 */
+	private static final double LOOP_TIME = 0.005;
+
+	@Param({ "Scale3CubeAutoFast.rightPath", "Scale3CubeAutoFast.leftPath", "Scale3CubeAutoFast.leftGetCube2" })
+	public String path;
+
+	@Param({ "false", "true" })
+	public boolean isBackwards;
+
+	private Path generatedPath;
+	private MotionProfile follower;
+	private double endTime;
+	private double time;
+
+	@Setup
+	public void setup() {
+		generatedPath = new Path(AutonWaypoints.get(path));
+		Profile profile = DriveBase2018.leftProfileGen.genProfile(generatedPath, isBackwards);
+		// gains don't change how long a loop takes, so any are fine
+		follower = new MotionProfile(new PIDcontroller(1, 0, 0.1), 0.3, 0.05, DriveBase2018.leftProfileGen,
+				profile);
+		endTime = profile.getEndTime();
+		time = 0;
+	}
+
+	@Benchmark
+	public Profile genPoints() {
+		return DriveBase2018.leftProfileGen.genPoints(generatedPath, isBackwards);
+	}
+
+	@Benchmark
+	public Profile genProfile() {
+		return DriveBase2018.leftProfileGen.genProfile(generatedPath, isBackwards);
+	}
+
+	/**
+	 * both sides with a generator for each, the way drivePath used to
+	 */
+	@Benchmark
+	public Profile genBothSides() {
+		DriveBase2018.leftProfileGen.genProfile(generatedPath, isBackwards);
+		return DriveBase2018.rightProfileGen.genProfile(generatedPath, isBackwards);
+	}
+
+	@Benchmark
+	public DriveProfile genDriveProfile() {
+		return DriveBase2018.driveProfileGen.genProfile(generatedPath, isBackwards);
+	}
+
+	/**
+	 * one loop of following the profile, starting over at the end so every loop
+	 * is in the middle of the profile
+	 */
+	@Benchmark
+	public double runMotionProfile() {
+		time += LOOP_TIME;
+		if (time >= endTime) {
+			time = 0;
+			follower.reset();
+		}
+		return follower.run(time * 0.5, LOOP_TIME);
+	}
+}
@@ -0,0 +1,61 @@
+package path_generation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import robot.AutonWaypoints;
+
+/**
+ * How long it takes to make a Path from an auton's waypoints, for each spline
+ * and velocity mode.
+ *
+ * @author jack
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark {
+	@Param({ "Scale3CubeAutoFast.rightPath", "Scale3CubeAutoFast.leftPath", "Scale3CubeAutoFast.leftGetCube2" })
+	public String path;
+
+	// cubic hermite only works with 2 waypoints, so it isn't included
+	@Param({ "BEZIER", "CATMULL_ROM", "QUINTIC_HERMITE" })
+	public Path.SplineMode splineMode;
+
+	@Param({ "TRAPAZOIDAL", "TRIANGULAR", "CONSTANT", "TIME_OPTIMAL", "S_CURVE" })
+	public Path.VelocityMode velocityMode;
+
+	/**
+	 * 0 samples defaultPoints evenly spaced points per curve.
+	 */
+	@Param({ "0", "0.002", "0.0005" })
+	public double positionTolerance;
+
+	private Waypoint[] waypoints;
+
+	@Setup
+	public void setup() {
+		waypoints = AutonWaypoints.get(path);
+	}
+
+	@Benchmark
+	public Path newPath() {
+		return new Path(Path.maxVel, Path.maxAccel, velocityMode, splineMode, positionTolerance,
+				Path.defaultHeadingTolerance, waypoints);
+	}
+}
@@ -0,0 +1,64 @@
+package path_generation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import robot.AutonWaypoints;
+
+/**
+ * How long it takes to sample the splines of an auton's path, by the number of
+ * points per curve and the spline mode. Doesn't include the velocities and
+ * times, which PathBenchmark does.
+ *
+ * @author jack
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplineBenchmark {
+	@Param({ "Scale3CubeAutoFast.rightPath", "Scale3CubeAutoFast.leftGetCube2" })
+	public String path;
+
+	@Param({ "BEZIER", "CATMULL_ROM", "QUINTIC_HERMITE" })
+	public Path.SplineMode splineMode;
+
+	@Param({ "25", "100", "400" })
+	public int pointsPerCurve;
+
+	private Waypoint[] waypoints;
+	private SplineSegment[] segments;
+	private Path out;
+
+	@Setup
+	public void setup() {
+		waypoints = AutonWaypoints.get(path);
+		segments = Path.getSegments(splineMode, 0.8, waypoints);
+		out = new Path(waypoints);
+	}
+
+	@Benchmark
+	public Path sampleUniform() {
+		out.genUniformPath(segments, pointsPerCurve);
+		return out;
+	}
+
+	@Benchmark
+	public SplineSegment[] getSegments() {
+		return Path.getSegments(splineMode, 0.8, waypoints);
+	}
+}
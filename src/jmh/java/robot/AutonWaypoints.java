@@ -0,0 +1,61 @@
+package robot;
+
+import java.lang.reflect.Field;
+
+import commands.interfaces.OpMode;
+import path_generation.Point;
+import path_generation.Waypoint;
+
+/**
+ * Gets the waypoints of the real autons for the benchmarks, so they measure the
+ * paths the robot actually drives. Autons are built the same way the profile
+ * precompiler builds them, with no robot.
+ *
+ * @author jack
+ *
+ */
+public class AutonWaypoints {
+	/**
+	 * gets a copy of the waypoints an auton keeps in a field. Uses the first
+	 * auton in the chooser with the given class, which is the one that starts on
+	 * the left, so the waypoints haven't been mirrored.
+	 *
+	 * @param name
+	 *            the class and field, like "Scale3CubeAutoFast.rightPath"
+	 * @return a copy of the waypoints
+	 */
+	public static Waypoint[] get(String name) {
+		int dot = name.indexOf('.');
+		if (dot < 0) {
+			throw new IllegalArgumentException("Expected <auton class>.<field>, got " + name);
+		}
+		String className = name.substring(0, dot);
+		String fieldName = name.substring(dot + 1);
+		for (Robot.Auton auton : Robot.Auton.values()) {
+			OpMode opMode = Robot.createAuton(null, auton, "LL");
+			if (opMode.getClass().getSimpleName().equals(className)) {
+				return copy(read(opMode, fieldName));
+			}
+		}
+		throw new IllegalArgumentException("No auton named " + className);
+	}
+
+	private static Waypoint[] read(OpMode opMode, String fieldName) {
+		try {
+			Field field = opMode.getClass().getDeclaredField(fieldName);
+			field.setAccessible(true);
+			return (Waypoint[]) field.get(opMode);
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IllegalArgumentException(
+					opMode.getClass().getSimpleName() + " has no waypoint array named " + fieldName, e);
+		}
+	}
+
+	private static Waypoint[] copy(Waypoint[] points) {
+		Waypoint[] out = new Waypoint[points.length];
+		for (int i = 0; i < points.length; i++) {
+			out[i] = new Waypoint(new Point(points[i].position.x, points[i].position.y), points[i].rotation);
+		}
+		return out;
+	}
+}
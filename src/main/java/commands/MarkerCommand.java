@@ -0,0 +1,58 @@
+package commands;
+
+import commands.interfaces.Command;
+import commands.interfaces.CommandCallback;
+import controllers.motion_profiles.ProfileMarkers;
+
+/**
+ * Starts a command when a marker on a motion profile fires, instead of after a
+ * delay that has to be guessed from the length of the profile.
+ *
+ * @author jack
+ *
+ */
+public class MarkerCommand extends Command implements CommandCallback {
+	private Command command;
+	private boolean commandRunning = false;
+	/**
+	 * Set by the control loop when the marker fires.
+	 */
+	private volatile boolean markerFired = false;
+
+	/**
+	 * @param cb
+	 *            the opmode running the command
+	 * @param markers
+	 *            the markers of the motion profile
+	 * @param marker
+	 *            the name of the marker to start the command at
+	 */
+	public MarkerCommand(CommandCallback cb, ProfileMarkers markers, String marker) {
+		super(cb, "Marker command: " + marker);
+		markers.on(marker, () -> markerFired = true);
+	}
+
+	public void setCommand(Command command) {
+		this.command = command;
+	}
+
+	public void periodic(double deltaTime) {
+		if (commandRunning) {
+			command.periodic(deltaTime);
+		} else if (markerFired) {
+			commandRunning = true;
+			command.init();
+		}
+	}
+
+	public void stop() {
+		if (commandRunning) {
+			command.stop();
+		}
+	}
+
+	@Override
+	public void commandFinished(Command cmd) {
+		endCommand();
+	}
+}
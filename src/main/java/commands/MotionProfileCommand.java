@@ -4,14 +4,28 @@ import robot.Robot;
 
 import commands.interfaces.Command;
 import commands.interfaces.CommandCallback;
+import controllers.motion_profiles.DriveProfile;
+import controllers.motion_profiles.PathCache;
+import controllers.motion_profiles.Profile;
+import controllers.motion_profiles.ProfileMarkers;
+import controllers.motion_profiles.TrajectorySequence;
 import path_generation.Path;
 import path_generation.Waypoint;
 import utilities.Logging;
 
 /**
- * Command to follow a motion profile. Generates the path from the waypoints
- * when the object is created, so the object should be created before the robot
- * starts moving because it will freeze up the code a bit!
+ * Command to follow a motion profile. Gets the profiles from the PathCache when
+ * the object is created, which uses the profiles precomputed at build time if
+ * there are any for the waypoints, otherwise generates the path from the
+ * waypoints. The object should be created before the robot starts moving
+ * because it may freeze up the code a bit!
+ * 
+ * Commands that run one after another can be chained so the drive follows
+ * them as one trajectory, without stopping or resetting between them.
+ * 
+ * Markers on the waypoints, or added at a distance along the path or a time
+ * before its end, fire from the profile's clock so other commands can start at
+ * the right point on the path.
  * 
  * @author jack
  *
@@ -64,14 +78,53 @@ public class MotionProfileCommand extends Command {
 	 * Whether the path will be mirrored left to right.
 	 */
 	private boolean mirrored;
+	/**
+	 * The speed setting of the path
+	 */
+	private Speed speed;
+	/**
+	 * The sequence the command is part of if it has been chained, otherwise null.
+	 * Only the first command of a sequence starts the drive.
+	 */
+	private TrajectorySequence sequence;
+	private int leg;
+	/**
+	 * The command that drives the next path of the sequence, which gets the time
+	 * this one ran over its end.
+	 */
+	private MotionProfileCommand next;
+	/**
+	 * The markers to fire along the path, shared by every command of a sequence.
+	 */
+	private ProfileMarkers markers = new ProfileMarkers();
+	/**
+	 * The time on the profile's clock the path starts at, which is only after 0
+	 * for the later paths of a sequence.
+	 */
+	private double markerStart = 0;
 	/**
 	 * The robot object that will be driven
 	 */
 	private Robot bot;
 	/**
-	 * The generated path from the waypoints
+	 * The generated path from the waypoints, null if precomputed profiles are used.
+	 * Shared with the PathCache.
 	 */
 	private Path path;
+	/**
+	 * The profiles for the left and right wheels. Shared with the PathCache.
+	 */
+	private Profile leftProfile, rightProfile;
+	/**
+	 * The profiles of both sides, which chained commands reuse where the robot
+	 * stops at both ends of the path. Shared with the PathCache.
+	 */
+	private DriveProfile drive;
+	/**
+	 * The time each waypoint is reached, for markers when the path wasn't
+	 * generated. Shared with the PathCache.
+	 */
+	private double[] waypointTimes;
 	/**
 	 * Time used to determine when the command is done
 	 */
@@ -103,14 +156,7 @@ public class MotionProfileCommand extends Command {
 		backwards = isBackwards;
 		mirrored = false;
 		bot = robot;
-		// generate path
-		if (!SAFE_SPEED_OVERRIDE) {
-			path = new Path(speed.vel, speed.accel, wp);
-		} else {
-			path = new Path(Speed.SAFE.vel, Speed.SAFE.accel, wp);
-		}
-		Logging.l(path);
-		endTime = path.endTime + endExtraTime;
+		generate(speed);
 	}
 
 	public MotionProfileCommand(CommandCallback opMode, Robot robot, String name, boolean isBackwards,
@@ -118,28 +164,148 @@ public class MotionProfileCommand extends Command {
 		super(opMode, name);
 		backwards = isBackwards;
 		mirrored = isMirrored;
+		// the waypoints are mirrored by the PathCache, so the auton's array isn't
+		// changed
 		wp = waypoints;
-		// Mirror waypoints if necessary
-		if (mirrored) {
-			for(Waypoint waypoint : wp) {
-				waypoint.position.y = -waypoint.position.y;
-				waypoint.rotation = -waypoint.rotation;
-			}
-		}
 		bot = robot;
-		// generate path
-		if (!SAFE_SPEED_OVERRIDE) {
-			path = new Path(speed.vel, speed.accel, wp);
-		} else {
-			path = new Path(Speed.SAFE.vel, Speed.SAFE.accel, wp);
-		}
-		Logging.l(path);
-		endTime = path.endTime + endExtraTime;
+		generate(speed);
 	}
 	
+	/**
+	 * Gets the path and profiles for the waypoints and speed from the cache, which
+	 * loads or generates them if they aren't cached yet.
+	 * 
+	 * @param speed
+	 *            the speed setting of the path
+	 */
+	private void generate(Speed speed) {
+		if (SAFE_SPEED_OVERRIDE) {
+			speed = Speed.SAFE;
+		}
+		this.speed = speed;
+		PathCache.Entry entry = PathCache.get(new PathCache.Key(speed.vel, speed.accel, Path.defaultVelocityMode,
+				Path.defaultSplineMode, mirrored, backwards, wp));
+		path = entry.path;
+		leftProfile = entry.left;
+		rightProfile = entry.right;
+		drive = entry.drive;
+		waypointTimes = entry.waypointTimes;
+		endTime = entry.endTime + endExtraTime;
+		addWaypointMarkers();
+	}
+
+	/**
+	 * adds the markers on the waypoints.
+	 */
+	private void addWaypointMarkers() {
+		for (int i = 0; i < wp.length; i++) {
+			if (wp[i].marker != null) {
+				// precomputed profiles don't have a path, but their waypoint times are
+				// stored with them
+				double waypointTime = path != null ? path.getWaypointTime(i) : waypointTimes[i];
+				markers.add(wp[i].marker, markerStart + waypointTime);
+			}
+		}
+	}
+
+	/**
+	 * adds a marker for when the robot is a distance along the path. Chained
+	 * commands should have markers added after they are chained.
+	 * 
+	 * @param name
+	 *            the name of the marker
+	 * @param distance
+	 *            the distance along the path (m)
+	 */
+	public void markAtDistance(String name, double distance) {
+		// precomputed profiles don't have a path, so the distance comes from how far
+		// the wheels have gone
+		double distanceTime = path != null ? path.getTimeAtDistance(distance) : drive.getTimeAtDistance(distance);
+		markers.add(name, markerStart + distanceTime);
+	}
+
+	/**
+	 * adds a marker for a time before the robot gets to the end of the path, or
+	 * the start of the path if it's shorter than that. Chained commands should
+	 * have markers added after they are chained.
+	 * 
+	 * @param name
+	 *            the name of the marker
+	 * @param timeRemaining
+	 *            the time before the end of the path (s)
+	 */
+	public void markBeforeEnd(String name, double timeRemaining) {
+		double pathTime = endTime - endExtraTime;
+		markers.add(name, markerStart + Math.max(0, pathTime - timeRemaining));
+	}
+
+	/**
+	 * @return the markers fired along the path
+	 */
+	public ProfileMarkers getMarkers() {
+		return markers;
+	}
+
 	public void removeExtraEndTime() {
+		endTime -= endExtraTime;
 		endExtraTime = 0;
 	}
+
+	/**
+	 * Plans commands that run one after another as one trajectory. The first
+	 * command drives the whole trajectory, and each of the others should be
+	 * started when the one before it finishes. The drive isn't reset between
+	 * them, and the robot keeps moving from one path to the next where they line
+	 * up, so there is no extra time at the end of any but the last.
+	 * 
+	 * @param commands
+	 *            the commands, in the order they run
+	 * @return the planned sequence
+	 */
+	public static TrajectorySequence chain(MotionProfileCommand... commands) {
+		TrajectorySequence sequence = new TrajectorySequence();
+		for (MotionProfileCommand command : commands) {
+			int leg = sequence.add(command.speed.vel, command.speed.accel, command.backwards, command.mirrored,
+					command.wp);
+			// the cached profile is used unless the path has to be planned again
+			sequence.useProfile(leg, command.path, command.drive, command.endTime - command.endExtraTime);
+		}
+		sequence.plan();
+		DriveProfile drive = sequence.getProfile();
+		// the drive only fires the first command's markers, so they all share them
+		ProfileMarkers markers = new ProfileMarkers(ProfileMarkers.DEFAULT_CAPACITY * commands.length);
+		for (int i = 0; i < commands.length; i++) {
+			MotionProfileCommand command = commands[i];
+			command.sequence = sequence;
+			command.leg = i;
+			command.next = i + 1 < commands.length ? commands[i + 1] : null;
+			command.path = sequence.getPath(i);
+			command.leftProfile = drive.getLeft();
+			command.rightProfile = drive.getRight();
+			if (command.next != null) {
+				command.endExtraTime = 0;
+			}
+			command.endTime = sequence.getEndTime(i) - sequence.getStartTime(i) + command.endExtraTime;
+			// the waypoint markers are added again at their times in the sequence
+			if (command.markers.size() > countWaypointMarkers(command.wp)) {
+				Logging.w("Markers added to " + command.getName() + " before chaining it were dropped");
+			}
+			command.markers = markers;
+			command.markerStart = sequence.getStartTime(i);
+			command.addWaypointMarkers();
+		}
+		return sequence;
+	}
+
+	private static int countWaypointMarkers(Waypoint[] waypoints) {
+		int count = 0;
+		for (Waypoint w : waypoints) {
+			if (w.marker != null) {
+				count++;
+			}
+		}
+		return count;
+	}
 	/**
 	 * Returns the duration of the command
 	 * @return duration of the command in seconds
@@ -152,8 +318,12 @@ public class MotionProfileCommand extends Command {
 	 * starts following the motion profile
 	 */
 	public void init() {
-		time = 0;
-		bot.driveBase.drivePath(path, backwards);
+		if (sequence == null || leg == 0) {
+			time = 0;
+			bot.driveBase.drivePath(leftProfile, rightProfile, markers);
+		}
+		// later paths of a sequence are already being driven, and start with the
+		// time the last one ran over
 	}
 
 	/**
@@ -164,6 +334,9 @@ public class MotionProfileCommand extends Command {
 		super.periodic(deltaTime);
 		time += deltaTime;
 		if (time >= endTime) {
+			if (next != null) {
+				next.time = time - endTime;
+			}
 			endCommand();
 		}
 	}
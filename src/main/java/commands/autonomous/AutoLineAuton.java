@@ -54,7 +54,7 @@ public class AutoLineAuton extends OpMode {
 	public void periodic(double deltaTime) {
 		super.periodic(deltaTime);
 		motionProfile.periodic(deltaTime);
-		Logging.l("Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
+		Logging.l(() -> "Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
 				+ robot.driveBase.right.getPosition());
 		delay.periodic(deltaTime);
 	}
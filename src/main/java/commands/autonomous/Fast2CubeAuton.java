@@ -2,9 +2,9 @@ package commands.autonomous;
 
 import robot.Robot;
 
-import commands.DelayedCommand;
 import commands.IntakeCommand;
 import commands.LiftCommand;
+import commands.MarkerCommand;
 import commands.MotionProfileCommand;
 import commands.interfaces.Command;
 import commands.interfaces.OpMode;
@@ -56,14 +56,16 @@ public class Fast2CubeAuton extends OpMode {
 	private MotionProfileCommand driveToDump2ndCube;
 	private IntakeCommand intakeCommand;
 
-	// Amount of time before the end of the motion profile to lift
+	// Amount of time before the end of the motion profile to lift. The lift
+	// starts at a marker fired from the profile's clock.
 	final static double liftEndTime = 1;
 	final static double longLiftEndTime = 2.9;
+	final static String RAISE_LIFT = "raise lift";
 
 	private Command raise1;
 	private LiftCommand lower1;
 
-	private DelayedCommand raise2;
+	private MarkerCommand raise2;
 	private LiftCommand lower2;
 
 	private IntakeCommand output1;
@@ -93,6 +95,8 @@ public class Fast2CubeAuton extends OpMode {
 					MotionProfileCommand.Speed.FAST_LOW_ACCEL, leftPath);
 			getCubeCommand = new MotionProfileCommand(this, robot, "Get left cube", false, mirrored,
 					MotionProfileCommand.Speed.MED_LOW_ACCEL, leftGetCube);
+			// back up to get the next cube as soon as the first is dumped
+			MotionProfileCommand.chain(mpCommand, getCubeCommand);
 			driveToDump2ndCube = new MotionProfileCommand(this, robot, "go to dump cube 2", true, mirrored,
 					MotionProfileCommand.Speed.MED_LOW_ACCEL, left2ndCube);
 		} else {
@@ -120,14 +124,18 @@ public class Fast2CubeAuton extends OpMode {
 		 * Positions.H_SCALE).delay(crossMpCommand.getDuration() - liftEndTime);
 		 * } else {
 		 */
-		if(!cross)
-			raise1 = new LiftCommand(this, bot, Positions.H_SCALE).delay(mpCommand.getDuration() - liftEndTime);
-		else raise1 = new LiftCommand(this, bot, Positions.H_SCALE);
+		if (!cross) {
+			mpCommand.markBeforeEnd(RAISE_LIFT, liftEndTime);
+			raise1 = new LiftCommand(this, bot, Positions.H_SCALE).atMarker(mpCommand.getMarkers(), RAISE_LIFT);
+		} else {
+			raise1 = new LiftCommand(this, bot, Positions.H_SCALE);
+		}
 		// }
 		lower1 = new LiftCommand(this, bot, Positions.GROUND);
 		output1 = new IntakeCommand(this, bot, State.OUTPUTTING);
-		raise2 = new LiftCommand(this, bot, Positions.L_SCALE)
-				.delay(driveToDump2ndCube.getDuration() - longLiftEndTime);
+		driveToDump2ndCube.markBeforeEnd(RAISE_LIFT, longLiftEndTime);
+		raise2 = new LiftCommand(this, bot, Positions.L_SCALE).atMarker(driveToDump2ndCube.getMarkers(),
+				RAISE_LIFT);
 		lower2 = new LiftCommand(this, bot, Positions.SWITCH);
 		output2 = new IntakeCommand(this, bot, State.OUTPUTTING);
 	}
@@ -148,7 +156,7 @@ public class Fast2CubeAuton extends OpMode {
 	 */
 	public void periodic(double deltaTime) {
 		super.periodic(deltaTime);
-		Logging.l("Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
+		Logging.l(() -> "Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
 				+ robot.driveBase.right.getPosition());
 	}
 
@@ -161,8 +169,8 @@ public class Fast2CubeAuton extends OpMode {
 	}
 
 	public void commandFinished(Command cmd) {
-		Logging.h("Command ended: " + cmd.getName());
-		Logging.h("Running commands: " + commands.toString());
+		Logging.h(() -> "Command ended: " + cmd.getName());
+		Logging.h(() -> "Running commands: " + commands.toString());
 		// Add the intake command to output the cube.
 		if (cmd == mpCommand) {
 			// Check if the robot can cross over. If not, auton stops here.
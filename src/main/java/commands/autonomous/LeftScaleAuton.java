@@ -75,7 +75,7 @@ public class LeftScaleAuton extends OpMode {
 	 */
 	public void periodic(double deltaTime) {
 		super.periodic(deltaTime);
-		Logging.l("Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
+		Logging.l(() -> "Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
 				+ robot.driveBase.right.getPosition());
 	}
 
@@ -107,7 +107,7 @@ public class LeftScaleAuton2Cube extends OpMode {
 	 */
 	public void periodic(double deltaTime) {
 		super.periodic(deltaTime);
-		Logging.l("Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
+		Logging.l(() -> "Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
 				+ robot.driveBase.right.getPosition());
 	}
 
@@ -119,8 +119,8 @@ public class LeftScaleAuton2Cube extends OpMode {
 	}
 
 	public void commandFinished(Command cmd) {
-		Logging.h("Command ended: " + cmd.getName());
-		Logging.h("Running commands: " + commands.toString());
+		Logging.h(() -> "Command ended: " + cmd.getName());
+		Logging.h(() -> "Running commands: " + commands.toString());
 		// Add the intake command to output the cube.
 		if (cmd == mpCommand) {
 			if (!left) {
@@ -39,7 +39,7 @@ public class PIDDistanceAuton extends OpMode {
 
 	public void periodic(double deltaTime) {
 		super.periodic(deltaTime);
-		Logging.l("Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
+		Logging.l(() -> "Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
 				+ robot.driveBase.right.getPosition());
 	}
 
@@ -2,9 +2,9 @@ package commands.autonomous;
 
 import robot.Robot;
 
-import commands.DelayedCommand;
 import commands.IntakeCommand;
 import commands.LiftCommand;
+import commands.MarkerCommand;
 import commands.MotionProfileCommand;
 import commands.interfaces.Command;
 import commands.interfaces.OpMode;
@@ -23,10 +23,8 @@ import utilities.Logging;
  *
  */
 public class Scale3CubeAutoFast extends OpMode {
-	private Waypoint[] leftPath = { new Waypoint(new Point(0, 0), 0), new Waypoint(new Point(5.5, 0), 0),
-			new Waypoint(new Point(7.2, -0.6), -Math.PI / 4.0) };
-	private Waypoint[] leftGetCube2 = { new Waypoint(new Point(7.2, -0.5), 3 * Math.PI / 4.0),
-			new Waypoint(new Point(5.4, -0.82), -3 * Math.PI / 4.0) };
+	private Waypoint[] leftPath = getLeftPath();
+	private Waypoint[] leftGetCube2 = getLeftGetCube2();
 	private Waypoint[] left2ndCube = { new Waypoint(new Point(5.2, -0.35), Math.PI / 4.0),
 			new Waypoint(new Point(7.2, -0.4), -Math.PI / 4.0) };
 	private Waypoint[] leftGetCube3 = { new Waypoint(new Point(7.2, -0.5), 3 * Math.PI / 4.0),
@@ -34,10 +32,7 @@ public class Scale3CubeAutoFast extends OpMode {
 	private Waypoint[] left3rdCube = { new Waypoint(new Point(5.2, -1), Math.PI / 4.0),
 			new Waypoint(new Point(7.2, -0.4), -Math.PI / 4.0) };
 
-	private Waypoint[] rightPath = { new Waypoint(new Point(0, 0), 0), new Waypoint(new Point(4, 0.2), 0),
-			new Waypoint(new Point(5.45, -1.5), -Math.PI / 2.0), new Waypoint(new Point(5.45, -2.9), -Math.PI / 2.0),
-			new Waypoint(new Point(5.45, -4.75), -Math.PI / 2.0), new Waypoint(new Point(6.3, -5.8), 0),
-			new Waypoint(new Point(6.9, -5.5), Math.PI / 4 + 0.2) };
+	private Waypoint[] rightPath = getRightPath();
 
 	private Waypoint[] shortRightPath = { new Waypoint(new Point(0, 0), 0), new Waypoint(new Point(4, 0.2), 0),
 			new Waypoint(new Point(5.65, -1.5), -Math.PI / 2.0), new Waypoint(new Point(5.65, -2.9), -Math.PI / 2.0) };
@@ -67,17 +62,19 @@ public class Scale3CubeAutoFast extends OpMode {
 	private IntakeCommand intakeCommand;
 	private IntakeCommand intakeCommand2;
 
-	// Amount of time before the end of the motion profile to lift
+	// Amount of time before the end of the motion profile to lift. The lift
+	// starts at a marker fired from the profile's clock.
 	final static double liftEndTime = 1;
 	final static double longLiftEndTime = 2.9;
+	final static String RAISE_LIFT = "raise lift";
 
 	private Command raise1;
 	private LiftCommand lower1;
 
-	private DelayedCommand raise2;
+	private MarkerCommand raise2;
 	private LiftCommand lower2;
 
-	private DelayedCommand raise3;
+	private MarkerCommand raise3;
 	private LiftCommand lower3;
 
 	private IntakeCommand output1;
@@ -89,6 +86,42 @@ public class Scale3CubeAutoFast extends OpMode {
 	// whether the robot starts on the left.
 	private boolean startLeft;
 
+	/**
+	 * The waypoints of the path to the scale when it's on the same side. Makes a
+	 * new copy each time, so tests and benchmarks can drive the real path
+	 * without sharing the auton's waypoints.
+	 * 
+	 * @return the waypoints
+	 */
+	public static Waypoint[] getLeftPath() {
+		return new Waypoint[] { new Waypoint(new Point(0, 0), 0), new Waypoint(new Point(5.5, 0), 0),
+				new Waypoint(new Point(7.2, -0.6), -Math.PI / 4.0) };
+	}
+
+	/**
+	 * The waypoints of the path from the scale back to the second cube when the
+	 * scale is on the same side.
+	 * 
+	 * @return a new copy of the waypoints
+	 */
+	public static Waypoint[] getLeftGetCube2() {
+		return new Waypoint[] { new Waypoint(new Point(7.2, -0.5), 3 * Math.PI / 4.0),
+				new Waypoint(new Point(5.4, -0.82), -3 * Math.PI / 4.0) };
+	}
+
+	/**
+	 * The waypoints of the path across the field to the scale when it's on the
+	 * other side.
+	 * 
+	 * @return a new copy of the waypoints
+	 */
+	public static Waypoint[] getRightPath() {
+		return new Waypoint[] { new Waypoint(new Point(0, 0), 0), new Waypoint(new Point(4, 0.2), 0),
+				new Waypoint(new Point(5.45, -1.5), -Math.PI / 2.0), new Waypoint(new Point(5.45, -2.9), -Math.PI / 2.0),
+				new Waypoint(new Point(5.45, -4.75), -Math.PI / 2.0), new Waypoint(new Point(6.3, -5.8), 0),
+				new Waypoint(new Point(6.9, -5.5), Math.PI / 4 + 0.2) };
+	}
+
 	/**
 	 * constructor for the left scale plate auton.
 	 * 
@@ -106,23 +139,23 @@ public class Scale3CubeAutoFast extends OpMode {
 			cross = false;
 			mpCommand = new MotionProfileCommand(this, robot, "mp command", true, mirrored,
 					MotionProfileCommand.Speed.MED_LOW_ACCEL, leftPath);
-			mpCommand.removeExtraEndTime();
 			getCube2Command = new MotionProfileCommand(this, robot, "Get left cube", false, mirrored,
 					MotionProfileCommand.Speed.SLOW, leftGetCube2);
-			getCube2Command.removeExtraEndTime();
+			// back up to get the next cube as soon as the first is dumped
+			MotionProfileCommand.chain(mpCommand, getCube2Command);
 			driveToDump2ndCube = new MotionProfileCommand(this, robot, "go to dump cube 2", true, mirrored,
 					MotionProfileCommand.Speed.MED, left2ndCube);
-			driveToDump2ndCube.removeExtraEndTime();
 			getCube3Command = new MotionProfileCommand(this, robot, "Get 3rd cube", false, mirrored,
 					MotionProfileCommand.Speed.MED_LOW_ACCEL, leftGetCube3);
-			getCube3Command.removeExtraEndTime();
+			MotionProfileCommand.chain(driveToDump2ndCube, getCube3Command);
 			driveToDump3rdCube = new MotionProfileCommand(this, robot, "go to dump cube 3", true, mirrored,
 					MotionProfileCommand.Speed.MED, left3rdCube);
 			driveToDump3rdCube.removeExtraEndTime();
 			
 			output3 = new IntakeCommand(this, bot, State.OUTPUTTING);
-			raise3 = new LiftCommand(this, bot, Positions.L_SCALE)
-					.delay(driveToDump3rdCube.getDuration() - longLiftEndTime);
+			driveToDump3rdCube.markBeforeEnd(RAISE_LIFT, longLiftEndTime);
+			raise3 = new LiftCommand(this, bot, Positions.L_SCALE).atMarker(driveToDump3rdCube.getMarkers(),
+					RAISE_LIFT);
 			
 		} else {
 			cross = true;
@@ -155,15 +188,18 @@ public class Scale3CubeAutoFast extends OpMode {
 		 * Positions.H_SCALE).delay(crossMpCommand.getDuration() - liftEndTime);
 		 * } else {
 		 */
-		if (!cross)
-			raise1 = new LiftCommand(this, bot, Positions.H_SCALE).delay(mpCommand.getDuration() - liftEndTime);
-		else
+		if (!cross) {
+			mpCommand.markBeforeEnd(RAISE_LIFT, liftEndTime);
+			raise1 = new LiftCommand(this, bot, Positions.H_SCALE).atMarker(mpCommand.getMarkers(), RAISE_LIFT);
+		} else {
 			raise1 = new LiftCommand(this, bot, Positions.H_SCALE);
+		}
 		// }
 		lower1 = new LiftCommand(this, bot, Positions.GROUND);
 		output1 = new IntakeCommand(this, bot, State.OUTPUTTING);
-		raise2 = new LiftCommand(this, bot, Positions.H_SCALE)
-				.delay(driveToDump2ndCube.getDuration() - longLiftEndTime);
+		driveToDump2ndCube.markBeforeEnd(RAISE_LIFT, longLiftEndTime);
+		raise2 = new LiftCommand(this, bot, Positions.H_SCALE).atMarker(driveToDump2ndCube.getMarkers(),
+				RAISE_LIFT);
 
 		lower2 = new LiftCommand(this, bot, Positions.GROUND);
 		output2 = new IntakeCommand(this, bot, State.OUTPUTTING);
@@ -186,7 +222,7 @@ public class Scale3CubeAutoFast extends OpMode {
 	 */
 	public void periodic(double deltaTime) {
 		super.periodic(deltaTime);
-		Logging.l("Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
+		Logging.l(() -> "Left pos: " + robot.driveBase.left.getPosition() + ", right pos: "
 				+ robot.driveBase.right.getPosition());
 	}
 
@@ -199,8 +235,8 @@ public class Scale3CubeAutoFast extends OpMode {
 	}
 
 	public void commandFinished(Command cmd) {
-		Logging.h("Command ended: " + cmd.getName());
-		Logging.h("Running commands: " + commands.toString());
+		Logging.h(() -> "Command ended: " + cmd.getName());
+		Logging.h(() -> "Running commands: " + commands.toString());
 		// Add the intake command to output the cube.
 		if (cmd == mpCommand) {
 			// Check if the robot can cross over. If not, auton stops here.
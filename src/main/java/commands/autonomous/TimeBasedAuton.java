@@ -34,7 +34,7 @@ public class TimeBasedAuton extends OpMode {
 
 	public void periodic(double deltaTime) {
 		super.periodic(deltaTime);
-		Logging.l("timer = " + timer);
+		Logging.l(() -> "timer = " + timer);
 		timer += deltaTime;
 		if (timer >= DRIVE_TIME) {
 			earlyStop();
@@ -1,6 +1,10 @@
 package commands.interfaces;
 
 import commands.DelayedCommand;
+import commands.MarkerCommand;
+import controllers.motion_profiles.ProfileMarkers;
+import utilities.LatencyHistogram;
+import utilities.LoopTiming;
 
 /**
  * abstract interface for a command.
@@ -17,6 +21,10 @@ public abstract class Command {
 	 * the readable name of the command
 	 */
 	protected String readableName = "Unnamed command";
+	/**
+	 * how long periodic takes, shared by every command with the same name
+	 */
+	private LatencyHistogram timing;
 
 	/**
 	 * Constructor for a command. Takes a callback which is to notify the
@@ -67,6 +75,22 @@ public abstract class Command {
 		delayed.setCommand(this);
 		return delayed;
 	}
+
+	/**
+	 * makes a command that starts this one when a marker on a motion profile
+	 * fires.
+	 *
+	 * @param markers
+	 *            the markers of the motion profile
+	 * @param marker
+	 *            the name of the marker
+	 * @return the command to add to the opmode
+	 */
+	public MarkerCommand atMarker(ProfileMarkers markers, String marker) {
+		MarkerCommand atMarker = new MarkerCommand(callback, markers, marker);
+		atMarker.setCommand(this);
+		return atMarker;
+	}
 	
 	/**
 	 * get the readable name of the command. Identical to toString().
@@ -76,6 +100,18 @@ public abstract class Command {
 		return readableName;
 	}
 
+	/**
+	 * get the histogram of how long periodic takes for commands with this name.
+	 * 
+	 * @return the histogram
+	 */
+	public LatencyHistogram getTiming() {
+		if (timing == null) {
+			timing = LoopTiming.get("Command " + readableName);
+		}
+		return timing;
+	}
+
 	// toString used for printing
 	@Override
 	public String toString() {
@@ -56,12 +56,15 @@ public abstract class OpMode extends Command implements CommandCallback {
 	}
 
 	/**
-	 * called periodically during teleop/autonomous periodic.
+	 * called periodically during teleop/autonomous periodic. Each command's run
+	 * time is recorded in its timing histogram.
 	 */
 	public void periodic(double deltaTime) {
 		Command[] cmdArray = commands.toArray(new Command[commands.size()]);
 		for (Command cmd : cmdArray) {
+			long start = System.nanoTime();
 			cmd.periodic(deltaTime);
+			cmd.getTiming().recordSince(start);
 		}
 	}
 
@@ -83,7 +86,7 @@ public abstract class OpMode extends Command implements CommandCallback {
 	 *            the command to add
 	 */
 	protected void addCommand(Command cmd) {
-		Logging.h("Added command: " + cmd);
+		Logging.h(() -> "Added command: " + cmd);
 		commands.add(cmd);
 		cmd.init();
 	}
@@ -93,7 +96,7 @@ public abstract class OpMode extends Command implements CommandCallback {
 	 * commands.
 	 */
 	public void commandFinished(Command cmd) {
-		Logging.h("Removed command: " + cmd);
+		Logging.h(() -> "Removed command: " + cmd);
 		commands.remove(cmd);
 	}
 }
@@ -0,0 +1,71 @@
+package commands.teleop;
+
+/**
+ * The buttons and axes of a controller from the last two polls. Buttons are
+ * bits of a long, numbered by the ordinal of the controller's Button enum, and
+ * axes are in a double array numbered by the ordinal of its Axis enum, so
+ * polling doesn't create any garbage.
+ *
+ * @author jack
+ *
+ */
+class ControllerState {
+	private long current, last;
+	private final double[] axes, lastAxes;
+
+	/**
+	 *
+	 * @param buttonCount
+	 *            the number of buttons, at most 64
+	 * @param axisCount
+	 *            the number of axes
+	 */
+	ControllerState(int buttonCount, int axisCount) {
+		if (buttonCount > 64) {
+			throw new IllegalArgumentException("At most 64 buttons are supported");
+		}
+		axes = new double[axisCount];
+		lastAxes = new double[axisCount];
+	}
+
+	/**
+	 * Moves the current state to the last state. Called at the start of every
+	 * poll.
+	 */
+	void startPoll() {
+		last = current;
+		System.arraycopy(axes, 0, lastAxes, 0, axes.length);
+	}
+
+	void setButton(int button, boolean down) {
+		if (down) {
+			current |= 1L << button;
+		} else {
+			current &= ~(1L << button);
+		}
+	}
+
+	void setAxis(int axis, double value) {
+		axes[axis] = value;
+	}
+
+	double getAxis(int axis) {
+		return axes[axis];
+	}
+
+	double getLastAxis(int axis) {
+		return lastAxes[axis];
+	}
+
+	boolean isDown(int button) {
+		return (current & (1L << button)) != 0;
+	}
+
+	boolean isPressed(int button) {
+		return (current & ~last & (1L << button)) != 0;
+	}
+
+	boolean isReleased(int button) {
+		return (~current & last & (1L << button)) != 0;
+	}
+}
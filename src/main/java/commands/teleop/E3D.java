@@ -1,12 +1,10 @@
 package commands.teleop;
-import java.util.EnumMap;
 import edu.wpi.first.wpilibj.Joystick;
 import utilities.Coords;
 
 public class E3D
 {
-	private EnumMap<Button, Boolean> current, last;
-	private EnumMap<Axis, Double> axes;
+	private final ControllerState state = new ControllerState(Button.values().length, Axis.values().length);
 	private Joystick rawJoystick;
 	private double angle, magnitude;
 
@@ -18,9 +16,6 @@ public class E3D
 	public E3D (int port)
 	{
 		rawJoystick= new Joystick(port);
-		current = new EnumMap<Button, Boolean>(Button.class);
-		last = new EnumMap<Button, Boolean>(Button.class);
-		axes = new EnumMap<Axis, Double>(Axis.class);
 		poll();
 	}
 	
@@ -62,7 +57,7 @@ public class E3D
 	 */
 	public double getAxis(Axis axis)
 	{
-		return axes.get(axis);
+		return state.getAxis(axis.ordinal());
 	}
 	
 	/**
@@ -93,7 +88,7 @@ public class E3D
 	 */
 	public boolean isDown(Button button)
 	{
-		return current.get(button);
+		return state.isDown(button.ordinal());
 	}
 	
 	/**
@@ -115,7 +110,7 @@ public class E3D
 	 */
 	public boolean isPressed(Button button)
 	{
-		return (current.get(button) && !last.get(button));
+		return state.isPressed(button.ordinal());
 	}
 	
 	/**
@@ -137,7 +132,7 @@ public class E3D
 	 */
 	public boolean isReleased(Button button)
 	{
-		return (!current.get(button) && last.get(button));
+		return state.isReleased(button.ordinal());
 	}
 	
 	/**
@@ -156,21 +151,22 @@ public class E3D
 	 */
 	public void poll()
 	{
-		last = current.clone();
+		state.startPoll();
 
-		axes.put(Axis.X, rawJoystick.getRawAxis(0));
-		axes.put(Axis.Y, -rawJoystick.getRawAxis(1));
-		axes.put(Axis.Z, rawJoystick.getRawAxis(2));
-		axes.put(Axis.THROTTLE, rawJoystick.getRawAxis(3));
+		state.setAxis(Axis.X.ordinal(), rawJoystick.getRawAxis(0));
+		state.setAxis(Axis.Y.ordinal(), -rawJoystick.getRawAxis(1));
+		state.setAxis(Axis.Z.ordinal(), rawJoystick.getRawAxis(2));
+		state.setAxis(Axis.THROTTLE.ordinal(), rawJoystick.getRawAxis(3));
 		
-		current.put(Button.TRIGGER, rawJoystick.getRawButton(1));
-		current.put(Button.THUMB, rawJoystick.getRawButton(2));
-		for(int i = 3; i<=12; i++) current.put(Button.fromInt(i), rawJoystick.getRawButton(i)); //The rest of the buttons are just labeled by their number
+		state.setButton(Button.TRIGGER.ordinal(), rawJoystick.getRawButton(1));
+		state.setButton(Button.THUMB.ordinal(), rawJoystick.getRawButton(2));
+		for(int i = 3; i<=12; i++) state.setButton(Button.fromInt(i).ordinal(), rawJoystick.getRawButton(i)); //The rest of the buttons are just labeled by their number
 		
-		current.put(Button.THUMB_POV_LEFT, (rawJoystick.getPOV(0) == 270));
-		current.put(Button.THUMB_POV_RIGHT, (rawJoystick.getPOV(0) == 90));
-		current.put(Button.THUMB_POV_UP, (rawJoystick.getPOV(0) == 0));
-		current.put(Button.THUMB_POV_DOWN, (rawJoystick.getPOV(0) == 180));
+		int pov = rawJoystick.getPOV(0);
+		state.setButton(Button.THUMB_POV_LEFT.ordinal(), (pov == 270));
+		state.setButton(Button.THUMB_POV_RIGHT.ordinal(), (pov == 90));
+		state.setButton(Button.THUMB_POV_UP.ordinal(), (pov == 0));
+		state.setButton(Button.THUMB_POV_DOWN.ordinal(), (pov == 180));
 		
 		magnitude = Coords.rectToPolarRadius(getAxis(Axis.X), getAxis(Axis.Y));
 		angle = Coords.rectToPolarAngle(getAxis(Axis.X), getAxis(Axis.Y));
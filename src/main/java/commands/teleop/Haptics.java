@@ -0,0 +1,256 @@
+package commands.teleop;
+
+import java.util.Arrays;
+
+import utilities.FixedRateLoop;
+
+/**
+ * Runs controller rumble effects from one thread that is started with the
+ * robot, instead of a new thread for every effect. Each rumble motor is a
+ * channel with a few effect slots. Asking for an effect that is already running
+ * extends it instead of restarting it, and when effects overlap the strongest
+ * one wins.
+ *
+ * @author jack
+ *
+ */
+public class Haptics {
+	/**
+	 * The time between updates of the rumble motors, in seconds.
+	 */
+	public static final double PERIOD = 0.02;
+	/**
+	 * The most effects a channel runs at once.
+	 */
+	private static final int SLOTS = 4;
+
+	/**
+	 * Something that can rumble.
+	 */
+	public interface Output {
+		/**
+		 *
+		 * @param value
+		 *            the rumble strength from 0 to 1
+		 */
+		void set(double value);
+	}
+
+	private enum Pattern {
+		CONSTANT, PULSE, RAMP
+	}
+
+	/**
+	 * A timed effect. Slots are reused so requesting effects doesn't create
+	 * garbage.
+	 */
+	private static class Effect {
+		Pattern pattern;
+		double value, endValue, onTime, offTime, duration;
+		double start, end;
+		boolean active = false;
+
+		boolean matches(Pattern p, double v, double v2, double on, double off, double length) {
+			return active && pattern == p && value == v && endValue == v2 && onTime == on && offTime == off
+					&& duration == length;
+		}
+
+		double getValue(double now) {
+			double t = now - start;
+			switch (pattern) {
+			case PULSE:
+				return (t % (onTime + offTime)) < onTime ? value : 0;
+			case RAMP:
+				return value + (endValue - value) * Math.min(1, t / duration);
+			default:
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * One rumble motor.
+	 */
+	public static class Channel {
+		private final String name;
+		private volatile Output output;
+		private final Effect[] effects = new Effect[SLOTS];
+		private double level = 0;
+		private volatile double lastOutput = Double.NaN;
+
+		private Channel(String channelName, Output channelOutput) {
+			name = channelName;
+			output = channelOutput;
+			for (int i = 0; i < SLOTS; i++) {
+				effects[i] = new Effect();
+			}
+		}
+
+		/**
+		 * sets the rumble used when no effect is stronger
+		 *
+		 * @param value
+		 *            the rumble strength from 0 to 1
+		 */
+		public synchronized void setLevel(double value) {
+			level = value;
+		}
+
+		/**
+		 * rumbles at a constant strength
+		 *
+		 * @param value
+		 *            the rumble strength from 0 to 1
+		 * @param duration
+		 *            how long to rumble in seconds
+		 */
+		public void constant(double value, double duration) {
+			request(Pattern.CONSTANT, value, value, duration, 0, duration);
+		}
+
+		/**
+		 * turns the rumble on and off
+		 *
+		 * @param value
+		 *            the rumble strength when on
+		 * @param onTime
+		 *            how long each pulse is in seconds
+		 * @param offTime
+		 *            the time between pulses in seconds
+		 * @param duration
+		 *            how long to keep pulsing in seconds
+		 */
+		public void pulse(double value, double onTime, double offTime, double duration) {
+			request(Pattern.PULSE, value, value, onTime, offTime, duration);
+		}
+
+		/**
+		 * changes the rumble strength linearly
+		 *
+		 * @param from
+		 *            the starting strength
+		 * @param to
+		 *            the ending strength
+		 * @param duration
+		 *            how long the ramp takes in seconds
+		 */
+		public void ramp(double from, double to, double duration) {
+			request(Pattern.RAMP, from, to, 0, 0, duration);
+		}
+
+		/**
+		 * stops every effect and sets the level to 0
+		 */
+		public synchronized void stop() {
+			level = 0;
+			for (Effect e : effects) {
+				e.active = false;
+			}
+		}
+
+		private synchronized void request(Pattern pattern, double value, double endValue, double onTime,
+				double offTime, double duration) {
+			double now = now();
+			Effect slot = null;
+			for (Effect e : effects) {
+				if (e.matches(pattern, value, endValue, onTime, offTime, duration)) {
+					// the same effect is already running, so keep it going instead of restarting it
+					e.end = Math.max(e.end, now + duration);
+					return;
+				}
+				if (!e.active && slot == null) {
+					slot = e;
+				}
+			}
+			if (slot == null) {
+				// every slot is busy, so replace the one that ends first
+				slot = effects[0];
+				for (Effect e : effects) {
+					if (e.end < slot.end) {
+						slot = e;
+					}
+				}
+			}
+			slot.pattern = pattern;
+			slot.value = value;
+			slot.endValue = endValue;
+			slot.onTime = onTime;
+			slot.offTime = offTime;
+			slot.duration = duration;
+			slot.start = now;
+			slot.end = now + duration;
+			slot.active = true;
+		}
+
+		private synchronized double getValue(double now) {
+			double value = level;
+			for (Effect e : effects) {
+				if (e.active) {
+					if (now >= e.end) {
+						e.active = false;
+					} else {
+						value = Math.max(value, e.getValue(now));
+					}
+				}
+			}
+			return value;
+		}
+
+		private void update(double now) {
+			double value = getValue(now);
+			// only talk to the driver station when the rumble changes
+			if (value != lastOutput) {
+				output.set(value);
+				lastOutput = value;
+			}
+		}
+	}
+
+	private static volatile Channel[] channels = new Channel[0];
+	private static final FixedRateLoop loop = new FixedRateLoop("Haptics", PERIOD, Thread.NORM_PRIORITY - 1,
+			deltaTime -> update());
+
+	/**
+	 * starts the haptics thread. Should be called once when the robot starts.
+	 */
+	public static void start() {
+		loop.start();
+	}
+
+	/**
+	 * gets the channel with the given name, making it if it doesn't exist. If it
+	 * exists, its output is replaced, so controllers that are made again (like
+	 * every time teleop starts) keep using the same channel.
+	 *
+	 * @param name
+	 *            the name of the channel, like "PS4 0 heavy"
+	 * @param output
+	 *            the rumble motor
+	 * @return the channel
+	 */
+	public static synchronized Channel getChannel(String name, Output output) {
+		for (Channel c : channels) {
+			if (c.name.equals(name)) {
+				c.output = output;
+				c.lastOutput = Double.NaN;
+				return c;
+			}
+		}
+		Channel c = new Channel(name, output);
+		Channel[] newChannels = Arrays.copyOf(channels, channels.length + 1);
+		newChannels[channels.length] = c;
+		channels = newChannels;
+		return c;
+	}
+
+	private static double now() {
+		return System.nanoTime() / 1e9;
+	}
+
+	private static void update() {
+		double now = now();
+		for (Channel c : channels) {
+			c.update(now);
+		}
+	}
+}
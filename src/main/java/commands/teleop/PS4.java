@@ -1,39 +1,16 @@
 package commands.teleop;
-import java.util.EnumMap;
 import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 
 public class PS4
 {
-	private EnumMap<Button, Boolean> current, last;
-	private EnumMap<Axis, Double> axes;
+	private final ControllerState state = new ControllerState(Button.values().length, Axis.values().length);
 	private Joystick[] rawJoysticks = new Joystick[2];
 
-	private RumbleThread rumbleThread;
-	
-	private class RumbleThread extends Thread {
-		double value;
-		boolean heavy;
-		long ms;
-		
-		RumbleThread(double value, boolean heavy, double time) {
-			ms = (long)(1000*time);
-			this.value = value;
-			this.heavy = heavy;
-			this.start();
-		}
-		
-		public void run() {
-			rumble(value, heavy);
-			try {
-				Thread.sleep(ms);
-				rumble(0, heavy);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			
-		}
-	}
+	/**
+	 * The rumble motors, run by the haptics thread.
+	 */
+	private Haptics.Channel heavyRumble, lightRumble;
 	
 	/**
 	 * Initialize the PS4 controller with the port.
@@ -43,11 +20,10 @@ public class PS4
 	public PS4(int port) {
 		rawJoysticks[0] = new Joystick(port);
 		rawJoysticks[1] = new Joystick(port+1);
-		current = new EnumMap<Button, Boolean>(Button.class);
-		last = new EnumMap<Button, Boolean>(Button.class);
-		axes = new EnumMap<Axis, Double>(Axis.class);
-		poll(); //Populate the current EnumMap so the last EnumMap won't be null when the user polls for the first time.
-		rumbleThread = new RumbleThread(0,true,0); //Create the thread so it exists.
+		poll(); //Populate the current state so the first poll by the user has a last state.
+		Joystick rumbleJoystick = rawJoysticks[1];
+		heavyRumble = Haptics.getChannel("PS4 " + port + " heavy", value -> rumbleJoystick.setRumble(RumbleType.kLeftRumble, value));
+		lightRumble = Haptics.getChannel("PS4 " + port + " light", value -> rumbleJoystick.setRumble(RumbleType.kRightRumble, value));
 	}
 	
 	/**
@@ -73,6 +49,8 @@ public class PS4
 		DPAD_UP(0,0,0),
 		DPAD_DOWN(0,0,180);
 		
+		private static final Button[] values = Button.values(); //Cached so polling doesn't make a new array every loop
+		
 		int number;
 		int joystickNumber;
 		boolean dpad;
@@ -103,6 +81,8 @@ public class PS4
 		TILT_ROLL(0,1),
 		TILT_PITCH(1,1,true);
 		
+		private static final Axis[] values = Axis.values(); //Cached so polling doesn't make a new array every loop
+		
 		int number;
 		int joystickNumber;
 		double multiplier;
@@ -137,7 +117,7 @@ public class PS4
 	 * @return The value of said axis.
 	 */
 	public double getAxis(Axis axis) {
-		return axes.get(axis);
+		return state.getAxis(axis.ordinal());
 	}
 	
 	/**
@@ -147,7 +127,7 @@ public class PS4
 	 * @return True if the button is down.
 	 */
 	public boolean isDown(Button button) {
-		return current.get(button);
+		return state.isDown(button.ordinal());
 	}
 	
 	/**
@@ -157,7 +137,7 @@ public class PS4
 	 * @return True on the rising edge of the button.
 	 */
 	public boolean isPressed(Button button) {
-		return (current.get(button) && !last.get(button));
+		return state.isPressed(button.ordinal());
 	}
 	
 	/**
@@ -167,35 +147,56 @@ public class PS4
 	 * @return True on the falling edge of the button.
 	 */
 	public boolean isReleased(Button button) {
-		return (!current.get(button) && last.get(button));
+		return state.isReleased(button.ordinal());
 	}
 	
+	/**
+	 * Sets the rumble used when no timed effect is stronger.
+	 * 
+	 * @param value The rumble strength from 0 to 1.
+	 * @param heavy Whether to use the heavy (left) motor or the light (right) one.
+	 */
 	public void rumble(double value, boolean heavy) {
-		RumbleType type = (heavy) ? RumbleType.kLeftRumble : RumbleType.kRightRumble;
-		rawJoysticks[1].setRumble(type, value);
+		getRumble(heavy).setLevel(value);
 	}
 	
+	/**
+	 * Rumbles for a time. Calling this again while it's still rumbling just keeps it going.
+	 * 
+	 * @param value The rumble strength from 0 to 1.
+	 * @param heavy Whether to use the heavy (left) motor or the light (right) one.
+	 * @param time How long to rumble in seconds.
+	 */
 	public void rumbleForTime(double value, boolean heavy, double time) {
-		rumbleThread.interrupt();
-		rumbleThread = new RumbleThread(value, heavy, time);
+		getRumble(heavy).constant(value, time);
+	}
+	
+	/**
+	 * Gets a rumble motor, for effects like pulses and ramps.
+	 * 
+	 * @param heavy Whether to get the heavy (left) motor or the light (right) one.
+	 * @return The rumble motor's haptics channel.
+	 */
+	public Haptics.Channel getRumble(boolean heavy) {
+		return heavy ? heavyRumble : lightRumble;
 	}
 	
 	/**
 	 * Read the current state of each button and axis.
 	 */
 	public void poll() {
-		last = current.clone();
+		state.startPoll();
 		
-		for(Button button : Button.values()) {
+		for(Button button : Button.values) {
 			if(button.dpad)	{
-				current.put(button, rawJoysticks[button.joystickNumber].getPOV(button.number) == button.position);
+				state.setButton(button.ordinal(), rawJoysticks[button.joystickNumber].getPOV(button.number) == button.position);
 			} else {
-				current.put(button, rawJoysticks[button.joystickNumber].getRawButton(button.number));
+				state.setButton(button.ordinal(), rawJoysticks[button.joystickNumber].getRawButton(button.number));
 			}
 		}
 		
-		for(Axis axis : Axis.values()) {
-			axes.put(axis, rawJoysticks[axis.joystickNumber].getRawAxis(axis.number) * axis.multiplier + axis.offset );
+		for(Axis axis : Axis.values) {
+			state.setAxis(axis.ordinal(), rawJoysticks[axis.joystickNumber].getRawAxis(axis.number) * axis.multiplier + axis.offset );
 		}
 	}
 }
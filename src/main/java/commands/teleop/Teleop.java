@@ -78,11 +78,14 @@ public class Teleop extends OpMode {
 		
 		
 		brownout = false;
+		
+		// the match doesn't change during teleop, so this is only put once
+		SmartDashboard.putString("Match", robot.ds.getEventName() + robot.ds.getMatchNumber());
 	}
 	
 	private void setDriveMode(DriveMode newMode) {
 		if(newMode != driveMode) {
-			Logging.h("Switching from " + driveMode.toString() + " to " + newMode.toString());
+			Logging.h(() -> "Switching from " + driveMode.toString() + " to " + newMode.toString());
 			driveMode = newMode;
 		}
 	}
@@ -143,8 +146,8 @@ public class Teleop extends OpMode {
 		}
 		
 		// Log the encoder positions with low priority
-		Logging.l("Left enc.: " + robot.driveBase.left.getPosition());
-		Logging.l("Right enc.:" + robot.driveBase.right.getPosition());
+		Logging.l(() -> "Left enc.: " + robot.driveBase.left.getPosition());
+		Logging.l(() -> "Right enc.:" + robot.driveBase.right.getPosition());
 
 		// Set the power of the intake based on the user inputs.
 		robot.intake.setOutputSpeed(op.getAxis(Operator.Axis.OUTPUT_SPEED) * 0.4);
@@ -225,7 +228,6 @@ public class Teleop extends OpMode {
 //			SmartDashboard.putNumber("E3D Throttle axis", op.e3d.getAxis(E3D.Axis.THROTTLE));
 //			robot.lift.driveNoFeedback(liftPower, flipPower);
 //		}
-		SmartDashboard.putString("Match", robot.ds.getEventName() + robot.ds.getMatchNumber());
 	}
 	
 	/**
@@ -1,15 +1,12 @@
 package commands.teleop;
 
-import java.util.EnumMap;
-
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 import utilities.Logging;
 import edu.wpi.first.wpilibj.Joystick;
 
 public class XPlorer
 {
-	private EnumMap<Button, Boolean> current, last;
-	private EnumMap<Axis, Double> axes, lastAxes;
+	private final ControllerState state = new ControllerState(Button.values().length, Axis.values().length);
 	private Joystick rawJoystick;
 
 	/**
@@ -20,10 +17,7 @@ public class XPlorer
 	public XPlorer(int port)
 	{
 		rawJoystick= new Joystick(port);
-		current = new EnumMap<Button, Boolean>(Button.class);
-		last = new EnumMap<Button, Boolean>(Button.class);
-		axes = new EnumMap<Axis, Double>(Axis.class);
-		poll(); //Populate the current EnumMap so the last EnumMap won't be null when the user polls for the first time.
+		poll(); //Populate the current state so the first poll by the user has a last state.
 	}
 	
 	/**
@@ -53,7 +47,7 @@ public class XPlorer
 	 */
 	public double getAxis(Axis axis)
 	{
-		return axes.get(axis);
+		return state.getAxis(axis.ordinal());
 	}
 		
 	/**
@@ -64,7 +58,7 @@ public class XPlorer
 	 */
 	public boolean isDown(Button button)
 	{
-		return current.get(button);
+		return state.isDown(button.ordinal());
 	}
 	
 	/**
@@ -78,8 +72,8 @@ public class XPlorer
 		//Strum is special, because two states count as pressed.
 		//If we switch between those, it passed over the unpressed state without polling,
 		//so we want it to count as pressed anyway.
-		if(button == Button.STRUM) return (isDown(button) && lastAxes.get(Axis.STRUM) != axes.get(Axis.STRUM));
-		else return (current.get(button) && !last.get(button));
+		if(button == Button.STRUM) return (isDown(button) && state.getLastAxis(Axis.STRUM.ordinal()) != getAxis(Axis.STRUM));
+		else return state.isPressed(button.ordinal());
 	}
 	
 	/**
@@ -90,7 +84,7 @@ public class XPlorer
 	 */
 	public boolean isReleased(Button button)
 	{
-		return (!current.get(button) && last.get(button));
+		return state.isReleased(button.ordinal());
 	}
 	
 	/**
@@ -98,44 +92,53 @@ public class XPlorer
 	 */
 	public void poll()
 	{
-		last = current.clone();
-		lastAxes = axes.clone();
+		state.startPoll();
 
-		if(rawJoystick.getPOV(0) == 0) axes.put(Axis.STRUM, 1.0);
-		else if(rawJoystick.getPOV(0) == 180) axes.put(Axis.STRUM, -1.0);
-		else axes.put(Axis.STRUM, 0.0);
+		if(rawJoystick.getPOV(0) == 0) setAxis(Axis.STRUM, 1.0);
+		else if(rawJoystick.getPOV(0) == 180) setAxis(Axis.STRUM, -1.0);
+		else setAxis(Axis.STRUM, 0.0);
 		
 
 		double wb = rawJoystick.getRawAxis(4);
 		/*if(wb == -0.0078125) wb = 0;
 		else wb = (wb+1)/2;*/
 		
-		axes.put(Axis.WHAMMY_BAR, (wb + 1)/2);
-		axes.put(Axis.TILT, rawJoystick.getRawAxis(5));
-		current.put(Button.WHAMMY, axes.get(Axis.WHAMMY_BAR) > 0.5);
+		setAxis(Axis.WHAMMY_BAR, (wb + 1)/2);
+		setAxis(Axis.TILT, rawJoystick.getRawAxis(5));
+		setButton(Button.WHAMMY, getAxis(Axis.WHAMMY_BAR) > 0.5);
 		
-		current.put(Button.STRUM, !(axes.get(Axis.STRUM) == 0));
-		current.put(Button.STRUM_UP, axes.get(Axis.STRUM) > 0.5);
-		current.put(Button.STRUM_DOWN, axes.get(Axis.STRUM) < -0.5);
-		current.put(Button.GREEN, rawJoystick.getRawButton(1));
-		current.put(Button.RED, rawJoystick.getRawButton(2));
-		current.put(Button.BLUE, rawJoystick.getRawButton(3));
-		current.put(Button.YELLOW, rawJoystick.getRawButton(4));
-		current.put(Button.ORANGE, rawJoystick.getRawButton(5));
-		current.put(Button.BACK, rawJoystick.getRawButton(7));
-		current.put(Button.START, rawJoystick.getRawButton(8));
+		setButton(Button.STRUM, !(getAxis(Axis.STRUM) == 0));
+		setButton(Button.STRUM_UP, getAxis(Axis.STRUM) > 0.5);
+		setButton(Button.STRUM_DOWN, getAxis(Axis.STRUM) < -0.5);
+		setButton(Button.GREEN, rawJoystick.getRawButton(1));
+		setButton(Button.RED, rawJoystick.getRawButton(2));
+		setButton(Button.BLUE, rawJoystick.getRawButton(3));
+		setButton(Button.YELLOW, rawJoystick.getRawButton(4));
+		setButton(Button.ORANGE, rawJoystick.getRawButton(5));
+		setButton(Button.BACK, rawJoystick.getRawButton(7));
+		setButton(Button.START, rawJoystick.getRawButton(8));
 		
-		current.put(Button.LOWER, rawJoystick.getRawButton(7));
+		setButton(Button.LOWER, rawJoystick.getRawButton(7));
 		
-		axes.put(Axis.BUTTONS, buttonsToAxis());
+		setAxis(Axis.BUTTONS, buttonsToAxis());
+	}
+	
+	private void setButton(Button button, boolean down)
+	{
+		state.setButton(button.ordinal(), down);
+	}
+	
+	private void setAxis(Axis axis, double value)
+	{
+		state.setAxis(axis.ordinal(), value);
 	}
 	
 	public void setRumble(double rumble)
 	{
-		rumble = Math.abs(rumble);
-		Logging.h("Rumble: " + rumble);
-		rawJoystick.setRumble(RumbleType.kLeftRumble, rumble);
-		rawJoystick.setRumble(RumbleType.kRightRumble, rumble);
+		double magnitude = Math.abs(rumble);
+		Logging.h(() -> "Rumble: " + magnitude);
+		rawJoystick.setRumble(RumbleType.kLeftRumble, magnitude);
+		rawJoystick.setRumble(RumbleType.kRightRumble, magnitude);
 	}
 	
 	/**
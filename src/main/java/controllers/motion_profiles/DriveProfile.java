@@ -0,0 +1,396 @@
+package controllers.motion_profiles;
+
+import utilities.Logging;
+import utilities.Utilities;
+
+/**
+ * The profiles of both sides of the drivetrain, stored as one array per value
+ * instead of an MPPoint per point. Every point has a time, the position,
+ * velocity, acceleration and jerk of each side, and the heading the robot
+ * should be facing. The left and right profiles are views of the arrays, so
+ * they don't use any memory of their own.
+ *
+ * @author jack
+ *
+ */
+public class DriveProfile {
+	private final double[] time;
+	private final double[][] left;
+	private final double[][] right;
+	private final double[] heading;
+	/**
+	 * The heading channel is headingOffset + headingSign * heading, so mirrored
+	 * and turned views can share the heading array.
+	 */
+	private final double headingOffset;
+	private final double headingSign;
+
+	private final Side leftProfile;
+	private final Side rightProfile;
+
+	/**
+	 * The time between points if they are evenly spaced, or NaN if they aren't.
+	 * Only valid when spacingChecked is true.
+	 */
+	private double uniformDt = Double.NaN;
+	private volatile boolean spacingChecked = false;
+
+	static final int POSITION = 0, VELOCITY = 1, ACCELERATION = 2, JERK = 3, CHANNELS = 4;
+
+	/**
+	 * creates a profile with the given length, with every value 0
+	 *
+	 * @param length
+	 *            the number of points in the profile
+	 */
+	DriveProfile(int length) {
+		this(new double[length], new double[CHANNELS][length], new double[CHANNELS][length], new double[length], 0,
+				1);
+	}
+
+	private DriveProfile(double[] time, double[][] left, double[][] right, double[] heading, double headingOffset,
+			double headingSign) {
+		this.time = time;
+		this.left = left;
+		this.right = right;
+		this.heading = heading;
+		this.headingOffset = headingOffset;
+		this.headingSign = headingSign;
+		leftProfile = new Side(left);
+		rightProfile = new Side(right);
+	}
+
+	/**
+	 * sets the values of one side at a point
+	 */
+	static void set(double[][] side, int index, double position, double velocity, double acceleration,
+			double jerk) {
+		side[POSITION][index] = position;
+		side[VELOCITY][index] = velocity;
+		side[ACCELERATION][index] = acceleration;
+		side[JERK][index] = jerk;
+	}
+
+	/**
+	 * @return the array of times, for the generator to fill in
+	 */
+	double[] getTimes() {
+		return time;
+	}
+
+	/**
+	 * @return the arrays of the left side, indexed by channel then point
+	 */
+	double[][] getLeftValues() {
+		return left;
+	}
+
+	/**
+	 * @return the arrays of the right side, indexed by channel then point
+	 */
+	double[][] getRightValues() {
+		return right;
+	}
+
+	/**
+	 * @return the array of headings, for the generator to fill in
+	 */
+	double[] getHeadings() {
+		return heading;
+	}
+
+	/**
+	 * @return the profile for the left wheels
+	 */
+	public Profile getLeft() {
+		return leftProfile;
+	}
+
+	/**
+	 * @return the profile for the right wheels
+	 */
+	public Profile getRight() {
+		return rightProfile;
+	}
+
+	/**
+	 * @return the number of points
+	 */
+	public int size() {
+		return time.length;
+	}
+
+	/**
+	 * @param index
+	 *            the index of the point
+	 * @return the time of the point
+	 */
+	public double getTime(int index) {
+		return time[index];
+	}
+
+	/**
+	 * @param index
+	 *            the index of the point
+	 * @return the heading the robot should be facing at the point, in radians
+	 */
+	public double getHeading(int index) {
+		return headingOffset + headingSign * heading[index];
+	}
+
+	/**
+	 * @return the time of the last point
+	 */
+	public double getEndTime() {
+		return time[time.length - 1];
+	}
+
+	/**
+	 * interpolates the heading at the given time without creating any objects, for
+	 * correcting the heading with a gyro.
+	 *
+	 * @param t
+	 *            the time to get the heading at
+	 * @return the heading the robot should be facing in radians
+	 */
+	public double sampleHeading(double t) {
+		int last = time.length - 1;
+		if (t <= time[0]) {
+			return getHeading(0);
+		} else if (t >= time[last]) {
+			return getHeading(last);
+		}
+		int upper = findUpperIndex(t);
+		double alpha = (t - time[upper - 1]) / (time[upper] - time[upper - 1]);
+		double lower = heading[upper - 1];
+		// go the short way around if the heading wraps between the points
+		double change = heading[upper] - lower;
+		if (change > Math.PI) {
+			change -= 2 * Math.PI;
+		} else if (change < -Math.PI) {
+			change += 2 * Math.PI;
+		}
+		return headingOffset + headingSign * (lower + alpha * change);
+	}
+
+	/**
+	 * Finds when the center of the robot has gone a distance along the path,
+	 * which is halfway between how far the wheels have gone. Lets markers be
+	 * placed on precomputed profiles without the path.
+	 *
+	 * @param d
+	 *            the distance along the path (m)
+	 * @return the time at which the distance is reached, clamped to the start
+	 *         and end of the profile
+	 */
+	public double getTimeAtDistance(double d) {
+		int last = time.length - 1;
+		if (d <= 0 || last == 0) {
+			return time[0];
+		} else if (d >= getCenterDistance(last)) {
+			return time[last];
+		}
+		// binary search for the first point at or past the distance
+		int low = 1;
+		int high = last;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getCenterDistance(mid) >= d) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		double before = getCenterDistance(low - 1);
+		double spacing = getCenterDistance(low) - before;
+		double alpha = spacing > 0 ? (d - before) / spacing : 1;
+		return Utilities.lerp(time[low - 1], time[low], alpha);
+	}
+
+	/**
+	 * @return how far the center of the robot has gone at a point, forwards or
+	 *         backwards
+	 */
+	private double getCenterDistance(int index) {
+		double center = (left[POSITION][index] + right[POSITION][index]) / 2;
+		double start = (left[POSITION][0] + right[POSITION][0]) / 2;
+		return Math.abs(center - start);
+	}
+
+	/**
+	 * Makes a view of the profile for the same path mirrored and then turned. The
+	 * view shares this profile's arrays: mirroring only swaps the sides and turns
+	 * the heading the other way.
+	 *
+	 * @param rotation
+	 *            how far to turn the heading (radians, counterclockwise)
+	 * @param mirrored
+	 *            whether to mirror the profile before turning it
+	 * @return the view
+	 */
+	public DriveProfile transformed(double rotation, boolean mirrored) {
+		if (mirrored) {
+			return new DriveProfile(time, right, left, heading, rotation - headingOffset, -headingSign);
+		}
+		return new DriveProfile(time, left, right, heading, rotation + headingOffset, headingSign);
+	}
+
+	/**
+	 * @return the time between points if they are evenly spaced, or NaN if they
+	 *         aren't
+	 */
+	public double getTimeStep() {
+		if (!spacingChecked) {
+			checkSpacing();
+		}
+		return uniformDt;
+	}
+
+	/**
+	 * finds the index of the first point after the given time. The time must be
+	 * between the first and last points.
+	 */
+	private int findUpperIndex(double t) {
+		return ProfileSampling.findUpperIndex(time, getTimeStep(), t);
+	}
+
+	/**
+	 * checks whether the points are evenly spaced in time and sets uniformDt.
+	 */
+	private void checkSpacing() {
+		uniformDt = ProfileSampling.getUniformStep(time);
+		spacingChecked = true;
+	}
+
+	/**
+	 * joins profiles that are driven one after another into one profile. Each
+	 * profile is moved in time and wheel position so it starts at the last point
+	 * of the one before it, which it replaces. The robot has to be stopped where
+	 * they join, and if the profiles have the same time step the joined one does
+	 * too.
+	 *
+	 * @param parts
+	 *            the profiles, in order. Mirrored or turned views are read the way
+	 *            they are seen.
+	 * @return the joined profile
+	 */
+	static DriveProfile join(DriveProfile... parts) {
+		int length = 1;
+		for (DriveProfile part : parts) {
+			length += part.size() - 1;
+		}
+		DriveProfile out = new DriveProfile(length);
+		int index = 0;
+		for (int p = 0; p < parts.length; p++) {
+			DriveProfile part = parts[p];
+			double timeOffset = 0;
+			double leftOffset = 0;
+			double rightOffset = 0;
+			if (p > 0) {
+				// the start of the part replaces the stop at the end of the last one, so
+				// it starts accelerating from there
+				index--;
+				timeOffset = out.time[index] - part.time[0];
+				leftOffset = out.left[POSITION][index] - part.left[POSITION][0];
+				rightOffset = out.right[POSITION][index] - part.right[POSITION][0];
+			}
+			for (int i = 0; i < part.size(); i++, index++) {
+				out.time[index] = part.time[i] + timeOffset;
+				set(out.left, index, part.left[POSITION][i] + leftOffset, part.left[VELOCITY][i],
+						part.left[ACCELERATION][i], part.left[JERK][i]);
+				set(out.right, index, part.right[POSITION][i] + rightOffset, part.right[VELOCITY][i],
+						part.right[ACCELERATION][i], part.right[JERK][i]);
+				out.heading[index] = part.getHeading(i);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * The profile of one side, reading straight from the arrays.
+	 */
+	private class Side extends Profile {
+		private final double[][] values;
+
+		Side(double[][] sideValues) {
+			super(0);
+			values = sideValues;
+		}
+
+		/**
+		 * creates a new point, so use sample() in code that runs every loop
+		 */
+		@Override
+		public MPPoint getPoint(int index) {
+			return new MPPoint(values[VELOCITY][index], values[POSITION][index], time[index],
+					values[ACCELERATION][index], values[JERK][index]);
+		}
+
+		@Override
+		public int size() {
+			return time.length;
+		}
+
+		@Override
+		public double getEndTime() {
+			return DriveProfile.this.getEndTime();
+		}
+
+		@Override
+		public double sample(double t, MPPoint out) {
+			int last = time.length - 1;
+			if (t <= time[0] || t >= time[last]) {
+				// held at the first or last point, so it isn't accelerating
+				int index = t <= time[0] ? 0 : last;
+				out.position = values[POSITION][index];
+				out.velocity = values[VELOCITY][index];
+				out.time = time[index];
+				out.acceleration = 0;
+				out.jerk = 0;
+				return 0;
+			}
+			int upper = findUpperIndex(t);
+			int lower = upper - 1;
+			double alpha = (t - time[lower]) / (time[upper] - time[lower]);
+			out.position = Utilities.lerp(values[POSITION][lower], values[POSITION][upper], alpha);
+			out.velocity = Utilities.lerp(values[VELOCITY][lower], values[VELOCITY][upper], alpha);
+			out.time = Utilities.lerp(time[lower], time[upper], alpha);
+			out.acceleration = Utilities.lerp(values[ACCELERATION][lower], values[ACCELERATION][upper], alpha);
+			out.jerk = Utilities.lerp(values[JERK][lower], values[JERK][upper], alpha);
+			return out.acceleration;
+		}
+
+		@Override
+		public double getTimeStep() {
+			return DriveProfile.this.getTimeStep();
+		}
+
+		@Override
+		public Profile resample(double dt) {
+			Profile copy = new Profile(time.length);
+			for (int i = 0; i < time.length; i++) {
+				copy.setPoint(i, getPoint(i));
+			}
+			return copy.resample(dt);
+		}
+
+		@Override
+		public void setPoints(MPPoint... points) {
+			Logging.e("Can't set the points of one side of a drive profile");
+		}
+
+		@Override
+		public void setPoint(int index, MPPoint point) {
+			Logging.e("Can't set the points of one side of a drive profile");
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder out = new StringBuilder(time.length * 64);
+			for (int i = 0; i < time.length; i++) {
+				out.append(getPoint(i)).append('\n');
+			}
+			return out.toString();
+		}
+	}
+}
@@ -3,7 +3,8 @@ package controllers.motion_profiles;
 import utilities.Utilities;
 
 /**
- * Motion profile point class, has a position, velocity, and time (in ms)
+ * Motion profile point class, has a position, velocity, acceleration, jerk, and
+ * time (in ms)
  * 
  * @author jackf
  *
@@ -12,6 +13,11 @@ public class MPPoint {
 	public double position;
 	public double velocity;
 	public double time;
+	/**
+	 * The planned acceleration and jerk at the point.
+	 */
+	public double acceleration;
+	public double jerk;
 
 	/**
 	 * create a motion profile point
@@ -29,6 +35,26 @@ public class MPPoint {
 		time = t;
 	}
 
+	/**
+	 * create a motion profile point with an acceleration and jerk
+	 * 
+	 * @param vel
+	 *            the point's velocity
+	 * @param pos
+	 *            the point's position
+	 * @param t
+	 *            the time at which the point should be reached
+	 * @param accel
+	 *            the point's acceleration
+	 * @param jrk
+	 *            the point's jerk
+	 */
+	public MPPoint(double vel, double pos, double t, double accel, double jrk) {
+		this(vel, pos, t);
+		acceleration = accel;
+		jerk = jrk;
+	}
+
 	/**
 	 * linear interpolation between this point and another
 	 * 
@@ -43,12 +69,15 @@ public class MPPoint {
 		double newVel = Utilities.lerp(this.velocity, p2.velocity, alpha);
 		double newPos = Utilities.lerp(this.position, p2.position, alpha);
 		double newTime = Utilities.lerp(this.time, p2.time, alpha);
-		return new MPPoint(newVel, newPos, newTime);
+		double newAccel = Utilities.lerp(this.acceleration, p2.acceleration, alpha);
+		double newJerk = Utilities.lerp(this.jerk, p2.jerk, alpha);
+		return new MPPoint(newVel, newPos, newTime, newAccel, newJerk);
 	}
 	/**
 	 * returns a readable string of the point.
 	 */
 	public String toString() {
-		return "Position: " + position + ", velocity: " + velocity + ", time: " + time;
+		return "Position: " + position + ", velocity: " + velocity + ", acceleration: " + acceleration + ", time: "
+				+ time;
 	}
 }
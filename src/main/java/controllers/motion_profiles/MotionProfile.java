@@ -16,10 +16,22 @@ public class MotionProfile implements AbstractFeedbackController {
 	private double error = 0;
 	private Profile profile;
 	private double totalTime = 0;
-	private MPPoint lastTarget;
+	/**
+	 * stores the target position/velocity. Reused every loop so running the
+	 * profile doesn't create garbage.
+	 */
+	private final MPPoint target = new MPPoint(0, 0, 0);
 	private WheelProfileGenerator wpg;
 	// the amount to offset the encoder value by
 	private double offset;
+	/**
+	 * The output of the last run, returned again if no time has passed.
+	 */
+	private double lastOutput = 0;
+	/**
+	 * The markers fired from the profile's clock, or null if there are none.
+	 */
+	private ProfileMarkers markers;
 
 	public PIDcontroller pid;
 	public double kV = 0;
@@ -68,7 +80,6 @@ public class MotionProfile implements AbstractFeedbackController {
 		kA = accelGain;
 		profile = p;
 		wpg = wheelProfileGen;
-		lastTarget = p.start();
 	}
 
 	/**
@@ -92,7 +103,6 @@ public class MotionProfile implements AbstractFeedbackController {
 			Logging.w("Useless motion profile - less than 2 points");
 		} else {
 			profile.setPoints(points);
-			lastTarget = profile.start();
 		}
 	}
 
@@ -105,9 +115,48 @@ public class MotionProfile implements AbstractFeedbackController {
 	 *            whether to generate the points for a backwards profile
 	 */
 	public void generateProfileFromPath(Path path, boolean isBackwards) {
-		profile = wpg.genPoints(path, isBackwards);
+		profile = wpg.genProfile(path, isBackwards);
+	}
 
-		lastTarget = profile.start();
+	/**
+	 * sets the profile to follow, like one that was already generated.
+	 * 
+	 * @param p
+	 *            the profile to follow
+	 */
+	public void setProfile(Profile p) {
+		profile = p;
+	}
+
+	/**
+	 * sets the markers to fire as the profile runs. They start over from the
+	 * beginning.
+	 * 
+	 * @param profileMarkers
+	 *            the markers, or null for none
+	 */
+	public void setMarkers(ProfileMarkers profileMarkers) {
+		markers = profileMarkers;
+		if (markers != null) {
+			markers.reset();
+		}
+	}
+
+	/**
+	 * moves the profile's clock forwards and fires any markers it passes. run
+	 * calls this, and it should be called instead of run when something else
+	 * (like the Talon) follows the profile.
+	 * 
+	 * @param deltaTime
+	 *            the time passed since the last loop
+	 * @return the time since the profile started
+	 */
+	public double advance(double deltaTime) {
+		totalTime += deltaTime;
+		if (markers != null) {
+			markers.update(totalTime);
+		}
+		return totalTime;
 	}
 
 	@Override
@@ -139,23 +188,23 @@ public class MotionProfile implements AbstractFeedbackController {
 	}
 
 	/**
-	 * run the closed loop control
+	 * run the closed loop control. The acceleration feed forward uses the
+	 * acceleration planned by the profile.
 	 */
 	public double run(double current, double deltaTime) {
+		if (deltaTime <= 0) {
+			// happens when feedback is turned on. The PID would divide by 0, and the
+			// target hasn't moved anyway.
+			return lastOutput;
+		}
 		double offsetCurrent = current - offset;
 		// update current time
-		totalTime += deltaTime;
+		advance(deltaTime);
 
-		// stores the target position/velocity
-		MPPoint target;
-		double accel;
-		if (totalTime >= profile.getEndTime()) {
+		// get the target position/velocity and the planned acceleration of the profile
+		double accel = profile.sample(totalTime, target);
+		if (totalTime >= profile.getEndTime() && profile.isComplete()) {
 			Logging.l("Motion profile finished running");
-			target = profile.end();
-			accel = 0;
-		} else {
-			target = profile.getInterpolatedPoint(totalTime);
-			accel = (target.velocity - lastTarget.velocity) / deltaTime;
 		}
 
 		// calculate error
@@ -168,7 +217,8 @@ public class MotionProfile implements AbstractFeedbackController {
 		double velOut = kV * target.velocity;
 		double accelOut = kA * accel;
 
-		return pidOut + velOut + accelOut;
+		lastOutput = pidOut + velOut + accelOut;
+		return lastOutput;
 	}
 
 	/**
@@ -177,6 +227,7 @@ public class MotionProfile implements AbstractFeedbackController {
 	public void reset() {
 		totalTime = 0;
 		offset = 0;
+		lastOutput = 0;
 	}
 
 	/**
@@ -194,6 +245,13 @@ public class MotionProfile implements AbstractFeedbackController {
 		}
 	}
 
+	/**
+	 * @return the closed loop error from the last run
+	 */
+	public double getError() {
+		return error;
+	}
+
 	/**
 	 * writes the current closed loop error to the smartDashboard
 	 * 
@@ -0,0 +1,405 @@
+package controllers.motion_profiles;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import hardware.DriveBase2018;
+import path_generation.Path;
+import path_generation.Point;
+import path_generation.Waypoint;
+import utilities.Logging;
+
+/**
+ * Caches generated paths and their wheel profiles by the settings used to make
+ * them, so autons (and game data variants of the same auton) that drive the
+ * same path share one copy instead of generating it again. The least recently
+ * used entries are thrown out once the cache uses more than its memory budget.
+ *
+ * Paths are cached in a canonical form that starts at the origin facing along
+ * the X axis and isn't mirrored. Moving, turning or mirroring a path doesn't
+ * change its timing, so those variants are views of the canonical entry:
+ * mirroring only swaps which wheel drives which profile.
+ *
+ * Everything returned by the cache is shared, so it must not be modified.
+ *
+ * @author jack
+ *
+ */
+public class PathCache {
+	/**
+	 * The default memory budget in bytes.
+	 */
+	public static final long DEFAULT_BUDGET = 8 * 1024 * 1024;
+
+	/**
+	 * rough sizes used to estimate how much memory an entry uses.
+	 */
+	private static final int PATH_POINT_BYTES = 9 * 8;
+	private static final int PROFILE_POINT_BYTES = 10 * 8;
+	private static final int ENTRY_BYTES = 256;
+
+	/**
+	 * The entries in least to most recently used order.
+	 */
+	private static LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private static long budget = DEFAULT_BUDGET;
+	private static long bytes = 0;
+
+	private static long hits = 0;
+	private static long misses = 0;
+	private static long evictions = 0;
+	/**
+	 * Total time spent generating entries that weren't in the cache, in
+	 * nanoseconds.
+	 */
+	private static long generateTime = 0;
+
+	/**
+	 * Everything that changes the generated path and profiles. The waypoints are
+	 * copied so changing them after the key is made doesn't change the key. They
+	 * are stored relative to the first waypoint, and keys that only differ by
+	 * where the path starts or whether it's mirrored are equal.
+	 */
+	public static class Key {
+		private final double velocity;
+		private final double accel;
+		private final Path.VelocityMode velocityMode;
+		private final Path.SplineMode splineMode;
+		private final boolean isBackwards;
+		/**
+		 * x, y and rotation of each waypoint, relative to the first one.
+		 */
+		private final double[] waypoints;
+		private final int hash;
+		/**
+		 * Where the path starts and whether it is mirrored, which turn the
+		 * canonical entry into the one asked for.
+		 */
+		private final boolean isMirrored;
+		private final double startX;
+		private final double startY;
+		private final double startRotation;
+
+		/**
+		 * @param vel
+		 *            the max velocity
+		 * @param acc
+		 *            the max acceleration
+		 * @param velMode
+		 *            the velocity profile mode
+		 * @param spline
+		 *            the spline mode
+		 * @param mirrored
+		 *            whether the path is mirrored left to right
+		 * @param backwards
+		 *            whether the robot drives the path backwards
+		 * @param points
+		 *            the waypoints of the path, before mirroring. They aren't
+		 *            changed.
+		 */
+		public Key(double vel, double acc, Path.VelocityMode velMode, Path.SplineMode spline, boolean mirrored,
+				boolean backwards, Waypoint... points) {
+			velocity = vel;
+			accel = acc;
+			velocityMode = velMode;
+			splineMode = spline;
+			isMirrored = mirrored;
+			isBackwards = backwards;
+			startX = points.length > 0 ? points[0].position.x : 0;
+			startY = points.length > 0 ? points[0].position.y : 0;
+			startRotation = points.length > 0 ? points[0].rotation : 0;
+			// turn the path so it starts at the origin facing along the X axis
+			double cos = Math.cos(-startRotation);
+			double sin = Math.sin(-startRotation);
+			waypoints = new double[points.length * 3];
+			for (int i = 0; i < points.length; i++) {
+				double dx = points[i].position.x - startX;
+				double dy = points[i].position.y - startY;
+				waypoints[i * 3] = round(cos * dx - sin * dy);
+				waypoints[i * 3 + 1] = round(sin * dx + cos * dy);
+				waypoints[i * 3 + 2] = round(points[i].rotation - startRotation);
+			}
+
+			int h = Arrays.hashCode(waypoints);
+			h = 31 * h + Double.hashCode(velocity);
+			h = 31 * h + Double.hashCode(accel);
+			h = 31 * h + velocityMode.hashCode();
+			h = 31 * h + splineMode.hashCode();
+			h = 31 * h + (isBackwards ? 1 : 0);
+			hash = h;
+		}
+
+		/**
+		 * rounds to a micrometer (or microradian), so moved copies of a path have
+		 * the same canonical waypoints even though turning them isn't exact
+		 */
+		private static double round(double value) {
+			// + 0.0 turns -0 into 0 so it hashes the same
+			return Math.rint(value * 1e6) / 1e6 + 0.0;
+		}
+
+		/**
+		 * @return whether the key is the canonical path itself, not a view of it
+		 */
+		boolean isCanonical() {
+			return !isMirrored && startX == 0 && startY == 0 && startRotation == 0;
+		}
+
+		/**
+		 * turns a canonical entry into the one the key asks for. The profiles are
+		 * shared, so this takes the same time for any length of path.
+		 *
+		 * @param canonical
+		 *            the entry of the canonical path
+		 * @return the entry for this key
+		 */
+		Entry view(Entry canonical) {
+			if (isCanonical()) {
+				return canonical;
+			}
+			Path path = null;
+			if (canonical.path != null) {
+				path = canonical.path.transformed(startX, startY, startRotation, false);
+				if (isMirrored) {
+					path = path.mirrored();
+				}
+			}
+			// the left wheel of the mirrored path drives the right wheel's profile, and
+			// it turns the other way
+			DriveProfile drive = canonical.drive.transformed(isMirrored ? -startRotation : startRotation,
+					isMirrored);
+			return new Entry(path, drive, canonical.endTime, canonical.waypointTimes, 0);
+		}
+
+		/**
+		 * @return the canonical waypoints of the key, starting at the origin
+		 */
+		Waypoint[] getWaypoints() {
+			Waypoint[] points = new Waypoint[waypoints.length / 3];
+			for (int i = 0; i < points.length; i++) {
+				points[i] = new Waypoint(new Point(waypoints[i * 3], waypoints[i * 3 + 1]), waypoints[i * 3 + 2]);
+			}
+			return points;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) o;
+			return hash == k.hash && Double.compare(velocity, k.velocity) == 0 && Double.compare(accel, k.accel) == 0
+					&& velocityMode == k.velocityMode && splineMode == k.splineMode && isBackwards == k.isBackwards
+					&& Arrays.equals(waypoints, k.waypoints);
+		}
+	}
+
+	/**
+	 * A path and the profiles generated from it.
+	 */
+	public static class Entry {
+		/**
+		 * The path, or null if the profiles were precomputed.
+		 */
+		public final Path path;
+		/**
+		 * The profiles of both sides, and the views of each side.
+		 */
+		public final DriveProfile drive;
+		public final Profile left;
+		public final Profile right;
+		/**
+		 * The time it takes to drive the path.
+		 */
+		public final double endTime;
+		/**
+		 * The time each waypoint of the path is reached, so markers can be placed
+		 * without the path.
+		 */
+		public final double[] waypointTimes;
+		/**
+		 * Estimate of the memory used by the entry.
+		 */
+		final long bytes;
+
+		public Entry(Path path, DriveProfile drive, double endTime, double[] waypointTimes) {
+			this(path, drive, endTime, waypointTimes, estimateBytes(path, drive));
+		}
+
+		/**
+		 * creates an entry that uses the given amount of memory, 0 for views of
+		 * another entry that share its memory
+		 */
+		private Entry(Path path, DriveProfile drive, double endTime, double[] waypointTimes, long bytes) {
+			this.path = path;
+			this.drive = drive;
+			this.left = drive.getLeft();
+			this.right = drive.getRight();
+			this.endTime = endTime;
+			this.waypointTimes = waypointTimes;
+			this.bytes = bytes;
+		}
+
+		private static long estimateBytes(Path path, DriveProfile drive) {
+			long size = ENTRY_BYTES + (long) drive.size() * PROFILE_POINT_BYTES;
+			if (path != null) {
+				size += (long) path.size() * PATH_POINT_BYTES;
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * Gets the path and profiles for a key. If they aren't cached they are loaded
+	 * from the precomputed profiles in the ProfileStore, or generated if they
+	 * aren't there either. Moved and mirrored paths are views of the canonical
+	 * entry.
+	 *
+	 * @param key
+	 *            the settings of the path
+	 * @return the path and profiles
+	 */
+	public static Entry get(Key key) {
+		synchronized (PathCache.class) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				hits++;
+				return key.view(entry);
+			}
+			misses++;
+		}
+		// generate outside the lock so other threads can still use the cache
+		long start = System.nanoTime();
+		Entry entry = generate(key);
+		long elapsed = System.nanoTime() - start;
+
+		synchronized (PathCache.class) {
+			generateTime += elapsed;
+			// another thread may have made the same entry in the meantime
+			Entry existing = entries.get(key);
+			if (existing != null) {
+				return key.view(existing);
+			}
+			entries.put(key, entry);
+			bytes += entry.bytes;
+			evict();
+		}
+		return key.view(entry);
+	}
+
+	private static Entry generate(Key key) {
+		Waypoint[] points = key.getWaypoints();
+		long storeKey = ProfileStore.hash(key.velocity, key.accel, key.isBackwards, points);
+		// only paths with the default modes are precomputed
+		boolean defaultModes = key.velocityMode == Path.defaultVelocityMode
+				&& key.splineMode == Path.defaultSplineMode;
+		ProfileStore.Entry stored = defaultModes ? ProfileStore.get(storeKey) : null;
+		if (stored != null) {
+			return new Entry(null, stored.drive, stored.endTime, stored.waypointTimes);
+		}
+		Path path = new Path(key.velocity, key.accel, key.velocityMode, key.splineMode, points);
+		Logging.l(path);
+		DriveProfile drive = DriveBase2018.driveProfileGen.genProfile(path, key.isBackwards);
+		double[] waypointTimes = new double[points.length];
+		for (int i = 0; i < points.length; i++) {
+			waypointTimes[i] = path.getWaypointTime(i);
+		}
+		if (defaultModes) {
+			ProfileStore.record(storeKey, drive, path.endTime, waypointTimes);
+		}
+		return new Entry(path, drive, path.endTime, waypointTimes);
+	}
+
+	/**
+	 * Throws out least recently used entries until the cache is within its budget.
+	 * The newest entry is always kept.
+	 */
+	private static void evict() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (bytes > budget && entries.size() > 1) {
+			bytes -= it.next().bytes;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Sets the memory budget of the cache.
+	 *
+	 * @param budgetBytes
+	 *            the most memory the cache should use, in bytes
+	 */
+	public static synchronized void setBudget(long budgetBytes) {
+		budget = budgetBytes;
+		evict();
+	}
+
+	/**
+	 * Removes everything from the cache and resets the counters.
+	 */
+	public static synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		generateTime = 0;
+	}
+
+	/**
+	 * @return the number of lookups that were already cached
+	 */
+	public static synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups that had to load or generate the path
+	 */
+	public static synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of entries thrown out to stay within the budget
+	 */
+	public static synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the estimated memory used by the cache, in bytes
+	 */
+	public static synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return roughly how much time the cache has saved, in seconds. Each hit is
+	 *         counted as the average time it took to handle a miss.
+	 */
+	public static synchronized double getSavedTime() {
+		if (misses == 0) {
+			return 0;
+		}
+		return hits * (generateTime / 1e9) / misses;
+	}
+
+	/**
+	 * @return a readable summary of the counters
+	 */
+	public static synchronized String getStats() {
+		return "Path cache: " + hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+				+ entries.size() + " entries, " + bytes / 1024 + " KiB, ~" + String.format("%.3f", getSavedTime())
+				+ "s saved";
+	}
+}
@@ -1,6 +1,7 @@
 package controllers.motion_profiles;
 
 import utilities.Logging;
+import utilities.Utilities;
 
 /**
  * stores a list of points and allows reading an interpolated point at any time
@@ -16,10 +17,21 @@ public class Profile {
 	private MPPoint[] trajectory;
 
 	/**
-	 * Used to dramatically speed up searching through points by starting from this
-	 * index.
+	 * The time between points if they are evenly spaced, or NaN if they aren't.
+	 * Only valid when spacingChecked is true.
 	 */
-	private int lastLowerIndex = 0;
+	private double uniformDt = Double.NaN;
+	/**
+	 * Whether uniformDt has been worked out since the points last changed. Profiles
+	 * can be shared between threads, so this is volatile to make sure uniformDt is
+	 * seen after it's set.
+	 */
+	private volatile boolean spacingChecked = false;
+	/**
+	 * The time of each point, for looking points up. Only valid when
+	 * spacingChecked is true.
+	 */
+	private double[] times;
 
 	/**
 	 * creates a profile with the given length
@@ -42,6 +54,7 @@ public class Profile {
 			Logging.e("Useless motion profile - less than 2 points");
 		} else {
 			trajectory = points;
+			spacingChecked = false;
 		}
 	}
 
@@ -55,6 +68,7 @@ public class Profile {
 	 */
 	public void setPoint(int index, MPPoint point) {
 		trajectory[index] = point;
+		spacingChecked = false;
 	}
 
 	/**
@@ -69,41 +83,170 @@ public class Profile {
 	}
 
 	/**
-	 * returns an interpolated point at the given time.
+	 * @return the number of points in the profile
+	 */
+	public int size() {
+		return trajectory.length;
+	}
+
+	/**
+	 * returns an interpolated point at the given time. Creates a new point, so use
+	 * sample() instead in code that runs every loop.
 	 * 
 	 * @param time
 	 *            the time to get the point at
 	 * @return the point
 	 */
 	public MPPoint getInterpolatedPoint(double time) {
-		// Start searching at the last lower index. This only one or two points will
-		// usually have to be searched through. This method is to avoid doing something
-		// that requires more effort like a binary search, and it's faster for the case
-		// that is typically used.
-		int upperIndex = lastLowerIndex;
-
-		// check for start/end
-		if (time == 0)
-			return start();
-		else if (time >= getEndTime())
-			return end();
-		
-		// loop through until a set of two points that contain the given time are found
-		while (!(getPoint(upperIndex).time > time && getPoint(upperIndex - 1).time < time)) {
-			upperIndex++;
-			if (upperIndex > trajectory.length)
-				upperIndex = 1;
+		MPPoint out = new MPPoint(0, 0, 0);
+		sample(time, out);
+		return out;
+	}
+
+	/**
+	 * interpolates the profile at the given time without creating any objects.
+	 * Times before the start or after the end give the first or last point.
+	 * 
+	 * @param time
+	 *            the time to get the point at
+	 * @param out
+	 *            the point to write the position, velocity, acceleration, jerk
+	 *            and time into
+	 * @return the planned acceleration at the given time, 0 before the start or
+	 *         after the end
+	 */
+	public double sample(double time, MPPoint out) {
+		MPPoint first = start();
+		MPPoint last = end();
+		if (time <= first.time) {
+			set(out, first);
+			return out.acceleration;
+		} else if (time >= last.time) {
+			set(out, last);
+			return out.acceleration;
 		}
 
-		int lowerIndex = upperIndex - 1;
-		lastLowerIndex = lowerIndex;
-		MPPoint upper = getPoint(upperIndex);
-		MPPoint lower = getPoint(lowerIndex);
+		int upperIndex = findUpperIndex(time);
+		MPPoint upper = trajectory[upperIndex];
+		MPPoint lower = trajectory[upperIndex - 1];
 
 		// find what fraction of the way from upper to lower the time is
-		double alpha = (time - lower.time) / (upper.time - lower.time);
+		double segmentTime = upper.time - lower.time;
+		double alpha = (time - lower.time) / segmentTime;
 
-		return lower.lerp(upper, alpha);
+		out.position = Utilities.lerp(lower.position, upper.position, alpha);
+		out.velocity = Utilities.lerp(lower.velocity, upper.velocity, alpha);
+		out.time = Utilities.lerp(lower.time, upper.time, alpha);
+		out.acceleration = Utilities.lerp(lower.acceleration, upper.acceleration, alpha);
+		out.jerk = Utilities.lerp(lower.jerk, upper.jerk, alpha);
+		return out.acceleration;
+	}
+
+	/**
+	 * copies a point that the profile is held at, so it isn't accelerating
+	 */
+	private static void set(MPPoint out, MPPoint point) {
+		out.position = point.position;
+		out.velocity = point.velocity;
+		out.time = point.time;
+		out.acceleration = 0;
+		out.jerk = 0;
+	}
+
+	/**
+	 * @return the time between points if they are evenly spaced, or NaN if they
+	 *         aren't
+	 */
+	public double getTimeStep() {
+		if (!spacingChecked) {
+			checkSpacing();
+		}
+		return uniformDt;
+	}
+
+	/**
+	 * finds the index of the first point after the given time. The time must be
+	 * between the first and last points.
+	 * 
+	 * @param time
+	 *            the time to search for
+	 * @return the index of the first point with a greater time
+	 */
+	private int findUpperIndex(double time) {
+		if (!spacingChecked) {
+			checkSpacing();
+		}
+		return ProfileSampling.findUpperIndex(times, uniformDt, time);
+	}
+
+	/**
+	 * copies the times of the points and checks whether they are evenly spaced.
+	 */
+	private void checkSpacing() {
+		double[] pointTimes = new double[trajectory.length];
+		for (int i = 0; i < pointTimes.length; i++) {
+			pointTimes[i] = trajectory[i].time;
+		}
+		times = pointTimes;
+		uniformDt = ProfileSampling.getUniformStep(pointTimes);
+		spacingChecked = true;
+	}
+
+	/**
+	 * creates a copy of the profile with points evenly spaced dt apart, so looking
+	 * up a point is just an index calculation. Position is interpolated with a
+	 * cubic hermite spline between the points, and the velocity is the derivative
+	 * of that, so the two always agree. The velocity of each point is the average
+	 * velocity over the segment before it, so the slope of the spline at inner
+	 * points is estimated from the positions on both sides instead. The planned
+	 * acceleration and jerk are interpolated linearly. The last point is held
+	 * until the next multiple of dt.
+	 * 
+	 * @param dt
+	 *            the time between points
+	 * @return the resampled profile
+	 */
+	public Profile resample(double dt) {
+		int points = trajectory.length;
+		double[] time = new double[points];
+		double[] position = new double[points];
+		double[] velocity = new double[points];
+		for (int i = 0; i < points; i++) {
+			time[i] = trajectory[i].time;
+			position[i] = trajectory[i].position;
+			velocity[i] = trajectory[i].velocity;
+		}
+		double[] slope = ProfileSampling.getSlopes(time, position, velocity);
+		MPPoint first = start();
+		MPPoint last = end();
+		int length = ProfileSampling.getResampledLength(first.time, last.time, dt);
+		Profile out = new Profile(length);
+
+		double[] basis = new double[ProfileSampling.BASIS_SIZE];
+		int upperIndex = 1;
+		for (int i = 0; i < length; i++) {
+			double t = first.time + i * dt;
+			if (t >= last.time) {
+				out.setPoint(i, new MPPoint(last.velocity, last.position, t, last.acceleration, last.jerk));
+				continue;
+			}
+			while (time[upperIndex] <= t) {
+				upperIndex++;
+			}
+			int lowerIndex = upperIndex - 1;
+			MPPoint lower = trajectory[lowerIndex];
+			MPPoint upper = trajectory[upperIndex];
+			double segmentTime = upper.time - lower.time;
+			double s = (t - lower.time) / segmentTime;
+			ProfileSampling.getHermiteBasis(s, basis);
+			double pointPosition = ProfileSampling.interpolatePosition(basis, position, slope, lowerIndex,
+					segmentTime);
+			double pointVelocity = ProfileSampling.interpolateVelocity(basis, position, slope, lowerIndex,
+					segmentTime);
+			out.setPoint(i, new MPPoint(pointVelocity, pointPosition, t,
+					Utilities.lerp(lower.acceleration, upper.acceleration, s), Utilities.lerp(lower.jerk, upper.jerk, s)));
+		}
+		return out;
 	}
 
 	/**
@@ -121,7 +264,15 @@ public class Profile {
 	 * @return the last point
 	 */
 	public MPPoint end() {
-		return getPoint(trajectory.length - 1);
+		return getPoint(size() - 1);
+	}
+
+	/**
+	 * @return whether the profile goes all the way to the end of its path. Only
+	 *         false for profiles that are still being generated.
+	 */
+	public boolean isComplete() {
+		return true;
 	}
 
 	/**
@@ -134,10 +285,10 @@ public class Profile {
 	}
 
 	public String toString() {
-		String out = "";
+		StringBuilder out = new StringBuilder(trajectory.length * 64);
 		for (MPPoint getPoint : trajectory) {
-			out += getPoint.toString() + "\n";
+			out.append(getPoint).append('\n');
 		}
-		return out;
+		return out.toString();
 	}
 }
\ No newline at end of file
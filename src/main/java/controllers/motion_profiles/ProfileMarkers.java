@@ -0,0 +1,162 @@
+package controllers.motion_profiles;
+
+import utilities.Logging;
+
+/**
+ * Named events at times along a motion profile, like raising the lift a second
+ * before the robot gets to the scale. The motion profile fires each marker from
+ * its own clock on the first loop at or after the marker's time, so they don't
+ * drift from where the robot is on the path like timers started alongside it do.
+ *
+ * The markers and their callbacks are kept in arrays sized when the table is
+ * made, sorted by time, so firing them doesn't create garbage in the control
+ * loop. Callbacks are run by the control loop, so they should be quick and only
+ * set things that are safe to set from another thread.
+ *
+ * @author jack
+ *
+ */
+public class ProfileMarkers {
+	/**
+	 * The number of markers a table can hold if no size is given.
+	 */
+	public static final int DEFAULT_CAPACITY = 8;
+
+	private final String[] names;
+	private final double[] times;
+	private final Runnable[] callbacks;
+	private int count = 0;
+	/**
+	 * The number of markers that have fired. Only changed by the control loop.
+	 */
+	private volatile int fired = 0;
+
+	/**
+	 * creates a table with room for DEFAULT_CAPACITY markers
+	 */
+	public ProfileMarkers() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            the most markers the table can hold
+	 */
+	public ProfileMarkers(int capacity) {
+		names = new String[capacity];
+		times = new double[capacity];
+		callbacks = new Runnable[capacity];
+	}
+
+	/**
+	 * adds a marker. Markers at the same time fire in the order they were added.
+	 *
+	 * @param name
+	 *            the name of the marker
+	 * @param time
+	 *            the time on the profile's clock to fire the marker at
+	 */
+	public void add(String name, double time) {
+		if (count == names.length) {
+			Logging.e("Too many markers, couldn't add " + name);
+			return;
+		}
+		// keep the markers sorted so firing them only looks at the next one
+		int index = count;
+		while (index > 0 && times[index - 1] > time) {
+			names[index] = names[index - 1];
+			times[index] = times[index - 1];
+			callbacks[index] = callbacks[index - 1];
+			index--;
+		}
+		names[index] = name;
+		times[index] = time;
+		callbacks[index] = null;
+		count++;
+	}
+
+	/**
+	 * sets the callback to run when every marker with a name fires. Should be set
+	 * before the profile starts.
+	 *
+	 * @param name
+	 *            the name of the markers
+	 * @param callback
+	 *            the callback, run by the control loop
+	 */
+	public void on(String name, Runnable callback) {
+		boolean found = false;
+		for (int i = 0; i < count; i++) {
+			if (names[i].equals(name)) {
+				callbacks[i] = callback;
+				found = true;
+			}
+		}
+		if (!found) {
+			Logging.w("No marker named " + name);
+		}
+	}
+
+	/**
+	 * fires the markers the clock has passed since the last update. Called by the
+	 * motion profile every loop.
+	 *
+	 * @param time
+	 *            the time on the profile's clock
+	 */
+	public void update(double time) {
+		int next = fired;
+		while (next < count && times[next] <= time) {
+			Runnable callback = callbacks[next];
+			next++;
+			fired = next;
+			if (callback != null) {
+				callback.run();
+			}
+		}
+	}
+
+	/**
+	 * sets every marker to fire again, for when the profile starts over.
+	 */
+	public void reset() {
+		fired = 0;
+	}
+
+	/**
+	 * @param name
+	 *            the name of the marker
+	 * @return whether the first marker with the name has fired
+	 */
+	public boolean hasFired(String name) {
+		int done = fired;
+		for (int i = 0; i < done; i++) {
+			if (names[i].equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param name
+	 *            the name of the marker
+	 * @return the time of the first marker with the name, or NaN if there isn't
+	 *         one
+	 */
+	public double getTime(String name) {
+		for (int i = 0; i < count; i++) {
+			if (names[i].equals(name)) {
+				return times[i];
+			}
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * @return the number of markers in the table
+	 */
+	public int size() {
+		return count;
+	}
+}
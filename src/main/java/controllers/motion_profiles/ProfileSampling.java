@@ -0,0 +1,161 @@
+package controllers.motion_profiles;
+
+/**
+ * Looking up points by time and resampling profiles, shared by Profile,
+ * DriveProfile and SkidsteerDriveGenerator so they all find and interpolate
+ * points the same way. Works on arrays of times and positions, so it doesn't
+ * need MPPoints.
+ *
+ * @author jack
+ *
+ */
+final class ProfileSampling {
+	/**
+	 * the number of values getHermiteBasis fills in
+	 */
+	static final int BASIS_SIZE = 8;
+
+	private ProfileSampling() {
+	}
+
+	/**
+	 * checks whether the times are evenly spaced.
+	 *
+	 * @param time
+	 *            the times of the points
+	 * @return the time between points if they are evenly spaced, or NaN if they
+	 *         aren't
+	 */
+	static double getUniformStep(double[] time) {
+		int last = time.length - 1;
+		double start = time[0];
+		double dt = last > 0 ? (time[last] - start) / last : 0;
+		double tolerance = 1e-9 * Math.max(1, Math.abs(time[last]));
+		boolean uniform = dt > 0;
+		for (int i = 1; i <= last && uniform; i++) {
+			uniform = Math.abs(time[i] - (start + i * dt)) <= tolerance;
+		}
+		return uniform ? dt : Double.NaN;
+	}
+
+	/**
+	 * finds the index of the first point after the given time. The time must be
+	 * between the first and last points.
+	 *
+	 * @param time
+	 *            the times of the points
+	 * @param uniformDt
+	 *            the time between points from getUniformStep, or NaN
+	 * @param t
+	 *            the time to search for
+	 * @return the index of the first point with a greater time
+	 */
+	static int findUpperIndex(double[] time, double uniformDt, double t) {
+		int last = time.length - 1;
+		if (!Double.isNaN(uniformDt)) {
+			// evenly spaced, so the index can be calculated directly. Rounding might
+			// put it off by one, so fix that.
+			int index = (int) ((t - time[0]) / uniformDt) + 1;
+			index = Math.max(1, Math.min(last, index));
+			if (time[index] <= t && index < last) {
+				index++;
+			} else if (time[index - 1] > t && index > 1) {
+				index--;
+			}
+			return index;
+		}
+		// binary search for the first point after the time
+		int low = 1;
+		int high = last;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (time[mid] > t) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the number of points dt apart needed to cover the times from start
+	 *         to end, with the last point held until the next multiple of dt
+	 */
+	static int getResampledLength(double start, double end, double dt) {
+		// the small offset keeps rounding from adding an extra point
+		int length = (int) Math.ceil((end - start) / dt - 1e-9) + 1;
+		return Math.max(length, 2);
+	}
+
+	/**
+	 * estimates the velocity at each point from the positions of the points on
+	 * either side, weighting the closer one more. The velocity of each point is
+	 * the average over the segment before it, so it can't be used as the slope.
+	 * The first and last points use their own velocity.
+	 *
+	 * @param time
+	 *            the times of the points
+	 * @param position
+	 *            the positions of the points
+	 * @param velocity
+	 *            the velocities of the points
+	 * @return the slope of the position at each point
+	 */
+	static double[] getSlopes(double[] time, double[] position, double[] velocity) {
+		int last = time.length - 1;
+		double[] slope = new double[time.length];
+		slope[0] = velocity[0];
+		slope[last] = velocity[last];
+		for (int i = 1; i < last; i++) {
+			double dtBefore = time[i] - time[i - 1];
+			double dtAfter = time[i + 1] - time[i];
+			double velBefore = (position[i] - position[i - 1]) / dtBefore;
+			double velAfter = (position[i + 1] - position[i]) / dtAfter;
+			slope[i] = (velBefore * dtAfter + velAfter * dtBefore) / (dtBefore + dtAfter);
+		}
+		return slope;
+	}
+
+	/**
+	 * fills in the cubic hermite basis functions and their derivatives.
+	 *
+	 * @param s
+	 *            how far through the segment, from 0 to 1
+	 * @param basis
+	 *            the array to fill, BASIS_SIZE long
+	 */
+	static void getHermiteBasis(double s, double[] basis) {
+		double s2 = s * s;
+		double s3 = s2 * s;
+		basis[0] = 2 * s3 - 3 * s2 + 1;
+		basis[1] = s3 - 2 * s2 + s;
+		basis[2] = -2 * s3 + 3 * s2;
+		basis[3] = s3 - s2;
+		basis[4] = 6 * s2 - 6 * s;
+		basis[5] = 3 * s2 - 4 * s + 1;
+		basis[6] = -6 * s2 + 6 * s;
+		basis[7] = 3 * s2 - 2 * s;
+	}
+
+	/**
+	 * @return the position on the hermite spline between a point and the next
+	 */
+	static double interpolatePosition(double[] basis, double[] position, double[] slope, int lower,
+			double segmentTime) {
+		int upper = lower + 1;
+		return basis[0] * position[lower] + basis[1] * segmentTime * slope[lower] + basis[2] * position[upper]
+				+ basis[3] * segmentTime * slope[upper];
+	}
+
+	/**
+	 * @return the velocity on the hermite spline between a point and the next,
+	 *         which is the derivative of interpolatePosition
+	 */
+	static double interpolateVelocity(double[] basis, double[] position, double[] slope, int lower,
+			double segmentTime) {
+		int upper = lower + 1;
+		return (basis[4] * position[lower] + basis[6] * position[upper]) / segmentTime + basis[5] * slope[lower]
+				+ basis[7] * slope[upper];
+	}
+}
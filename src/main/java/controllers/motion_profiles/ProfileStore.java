@@ -0,0 +1,289 @@
+package controllers.motion_profiles;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import path_generation.Waypoint;
+import utilities.Logging;
+
+/**
+ * Stores motion profiles that were generated when the code was built, so the
+ * robot doesn't have to generate them again. Profiles are looked up with a hash
+ * of the waypoints and speed settings used to make them, so if the waypoints
+ * change the old profile is just not found and the caller should generate a
+ * new one.
+ *
+ * The file is a header (magic number, version, count) followed by an index of
+ * (key, offset) pairs, then each profile as an end time, a waypoint count, the
+ * time each waypoint is reached (for markers), a point count, and (time, left position, left velocity, left acceleration, left jerk, right
+ * position, right velocity, right acceleration, right jerk, heading) for each
+ * point.
+ *
+ * The whole file is read from the jar into profiles once when the robot
+ * starts, so getting a profile doesn't copy or read anything.
+ *
+ * @author jack
+ *
+ */
+public class ProfileStore {
+	/**
+	 * The name of the profile file inside the jar.
+	 */
+	public static final String RESOURCE = "/profiles.bin";
+
+	private static final int MAGIC = 0x46544d50;
+	/**
+	 * Change this whenever path or profile generation changes so old files are
+	 * ignored.
+	 */
+	private static final int VERSION = 7;
+	private static final int HEADER_BYTES = 12;
+	private static final int INDEX_BYTES = 12;
+	private static final int POINT_BYTES = 80;
+
+	/**
+	 * The profiles read from the file by key.
+	 */
+	private static HashMap<Long, Entry> loaded = new HashMap<Long, Entry>();
+
+	/**
+	 * Whether generated profiles should be saved so they can be written to a
+	 * file.
+	 */
+	private static boolean recording = false;
+	private static LinkedHashMap<Long, Entry> recorded = new LinkedHashMap<Long, Entry>();
+
+	/**
+	 * The drive profile for a path.
+	 */
+	public static class Entry {
+		public final DriveProfile drive;
+		public final double endTime;
+		/**
+		 * The time each waypoint of the path is reached.
+		 */
+		public final double[] waypointTimes;
+
+		public Entry(DriveProfile drive, double endTime, double[] waypointTimes) {
+			this.drive = drive;
+			this.endTime = endTime;
+			this.waypointTimes = waypointTimes;
+		}
+	}
+
+	/**
+	 * Loads the profile file from the jar.
+	 */
+	public static void load() {
+		InputStream in = ProfileStore.class.getResourceAsStream(RESOURCE);
+		if (in == null) {
+			Logging.w("No precomputed motion profiles found, they will be generated instead.");
+			return;
+		}
+		try {
+			load(in);
+		} catch (IOException e) {
+			Logging.w("Could not read precomputed motion profiles: " + e.getMessage());
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				Logging.w("Could not close precomputed motion profiles: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Reads every profile in a profile file.
+	 *
+	 * @param file
+	 *            the contents of the file
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public static synchronized void load(InputStream file) throws IOException {
+		loaded.clear();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(file));
+		if (in.readInt() != MAGIC) {
+			Logging.w("Precomputed motion profile file is not valid.");
+			return;
+		}
+		if (in.readInt() != VERSION) {
+			Logging.w("Precomputed motion profiles are from a different version, they will be generated instead.");
+			return;
+		}
+		int count = in.readInt();
+		// the profiles are in the same order as the index, so the offsets aren't
+		// needed
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = in.readLong();
+			in.readInt();
+		}
+		for (int i = 0; i < count; i++) {
+			double endTime = in.readDouble();
+			double[] waypointTimes = new double[in.readInt()];
+			for (int j = 0; j < waypointTimes.length; j++) {
+				waypointTimes[j] = in.readDouble();
+			}
+			int length = in.readInt();
+			DriveProfile drive = new DriveProfile(length);
+			double[] time = drive.getTimes();
+			double[][] left = drive.getLeftValues();
+			double[][] right = drive.getRightValues();
+			double[] heading = drive.getHeadings();
+			for (int j = 0; j < length; j++) {
+				time[j] = in.readDouble();
+				DriveProfile.set(left, j, in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+				DriveProfile.set(right, j, in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+				heading[j] = in.readDouble();
+			}
+			loaded.put(keys[i], new Entry(drive, endTime, waypointTimes));
+		}
+		Logging.h("Loaded " + count + " precomputed motion profiles.");
+	}
+
+	/**
+	 * Gets the precomputed profiles for a key. The profiles are shared, so they
+	 * must not be modified.
+	 *
+	 * @param key
+	 *            the key from hash()
+	 * @return the profiles, or null if there aren't any for the key
+	 */
+	public static synchronized Entry get(long key) {
+		if (recording) {
+			return recorded.get(key);
+		}
+		return loaded.get(key);
+	}
+
+	/**
+	 * Sets whether profiles generated from now on are saved to be written to a
+	 * file.
+	 *
+	 * @param record
+	 *            whether to record profiles
+	 */
+	public static synchronized void setRecording(boolean record) {
+		recording = record;
+	}
+
+	/**
+	 * @return whether profiles are being recorded
+	 */
+	public static synchronized boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * Saves the profiles for a path if recording is on.
+	 *
+	 * @param key
+	 *            the key from hash()
+	 * @param drive
+	 *            the profiles of both sides of the drivetrain
+	 * @param endTime
+	 *            the end time of the path
+	 * @param waypointTimes
+	 *            the time each waypoint of the path is reached
+	 */
+	public static synchronized void record(long key, DriveProfile drive, double endTime, double[] waypointTimes) {
+		if (recording && !recorded.containsKey(key)) {
+			recorded.put(key, new Entry(drive, endTime, waypointTimes));
+		}
+	}
+
+	/**
+	 * Writes all the recorded profiles to a file.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @return the number of profiles written
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public static synchronized int write(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(recorded.size());
+			// write the index
+			int offset = HEADER_BYTES + recorded.size() * INDEX_BYTES;
+			for (Map.Entry<Long, Entry> e : recorded.entrySet()) {
+				out.writeLong(e.getKey());
+				out.writeInt(offset);
+				offset += 16 + e.getValue().waypointTimes.length * 8 + e.getValue().drive.size() * POINT_BYTES;
+			}
+			// write the points
+			for (Entry e : recorded.values()) {
+				out.writeDouble(e.endTime);
+				out.writeInt(e.waypointTimes.length);
+				for (double t : e.waypointTimes) {
+					out.writeDouble(t);
+				}
+				double[][] left = e.drive.getLeftValues();
+				double[][] right = e.drive.getRightValues();
+				out.writeInt(e.drive.size());
+				for (int i = 0; i < e.drive.size(); i++) {
+					out.writeDouble(e.drive.getTime(i));
+					for (int channel = 0; channel < DriveProfile.CHANNELS; channel++) {
+						out.writeDouble(left[channel][i]);
+					}
+					for (int channel = 0; channel < DriveProfile.CHANNELS; channel++) {
+						out.writeDouble(right[channel][i]);
+					}
+					out.writeDouble(e.drive.getHeading(i));
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return recorded.size();
+	}
+
+	/**
+	 * Hashes the settings used to make a path's profiles. FNV-1a over the raw
+	 * bits of every number.
+	 *
+	 * @param velocity
+	 *            the max velocity of the path
+	 * @param accel
+	 *            the max acceleration of the path
+	 * @param isBackwards
+	 *            whether the robot drives the path backwards
+	 * @param waypoints
+	 *            the waypoints of the path
+	 * @return the key for the profiles
+	 */
+	public static long hash(double velocity, double accel, boolean isBackwards, Waypoint... waypoints) {
+		long h = 0xcbf29ce484222325L;
+		h = hash(h, VERSION);
+		h = hash(h, Double.doubleToLongBits(velocity));
+		h = hash(h, Double.doubleToLongBits(accel));
+		h = hash(h, isBackwards ? 1 : 0);
+		for (Waypoint wp : waypoints) {
+			h = hash(h, Double.doubleToLongBits(wp.position.x));
+			h = hash(h, Double.doubleToLongBits(wp.position.y));
+			h = hash(h, Double.doubleToLongBits(wp.rotation));
+		}
+		return h;
+	}
+
+	private static long hash(long h, long value) {
+		for (int i = 0; i < 8; i++) {
+			h ^= (value >>> (i * 8)) & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+}
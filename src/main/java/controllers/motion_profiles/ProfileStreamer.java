@@ -0,0 +1,173 @@
+package controllers.motion_profiles;
+
+import java.util.concurrent.locks.LockSupport;
+
+import hardware.interfaces.MotionProfileBuffer;
+import utilities.Logging;
+
+/**
+ * Streams the points of a profile into a MotionProfileBuffer from a background
+ * thread, a batch at a time, so the motor controller can run the profile on its
+ * own. The profile's points have to be evenly spaced in time (see
+ * Profile.resample).
+ *
+ * @author jack
+ *
+ */
+public class ProfileStreamer implements Runnable {
+	/**
+	 * The most points pushed each time the thread runs.
+	 */
+	public static final int BATCH_SIZE = 32;
+
+	private final MotionProfileBuffer buffer;
+	private Thread thread;
+	private volatile boolean running = false;
+
+	private volatile Profile profile;
+	private volatile int durationMs;
+	/**
+	 * The index of the next point to push. Only changed by the streaming thread
+	 * once it is started.
+	 */
+	private volatile int nextIndex = 0;
+
+	/**
+	 *
+	 * @param mpBuffer
+	 *            the buffer to stream points to
+	 */
+	public ProfileStreamer(MotionProfileBuffer mpBuffer) {
+		buffer = mpBuffer;
+	}
+
+	/**
+	 * finds the time between points of a profile in milliseconds
+	 *
+	 * @param p
+	 *            the profile
+	 * @return the time between points, or -1 if they aren't evenly spaced by a
+	 *         whole number of milliseconds
+	 */
+	public static int getDurationMs(Profile p) {
+		double dt = p.getTimeStep() * 1000;
+		if (Double.isNaN(dt) || Math.abs(dt - Math.round(dt)) > 1e-6) {
+			return -1;
+		}
+		return (int) Math.round(dt);
+	}
+
+	/**
+	 * checks whether a profile can be streamed to the buffer
+	 *
+	 * @param p
+	 *            the profile
+	 * @return whether the points are evenly spaced by a duration the buffer
+	 *         supports
+	 */
+	public boolean canStream(Profile p) {
+		int duration = getDurationMs(p);
+		return duration > 0 && buffer.supportsDuration(duration);
+	}
+
+	/**
+	 * clears the buffer and starts streaming a profile to it. Fills the buffer
+	 * once before returning so there are points ready to run. Any profile already
+	 * streaming is stopped.
+	 *
+	 * @param p
+	 *            the profile to stream
+	 */
+	public synchronized void start(Profile p) {
+		stop();
+		if (!canStream(p)) {
+			Logging.e("Can't stream a profile that isn't evenly spaced by a supported duration");
+			return;
+		}
+		buffer.clear();
+		profile = p;
+		durationMs = getDurationMs(p);
+		nextIndex = 0;
+		fill();
+		buffer.process();
+
+		running = true;
+		thread = new Thread(this, "Profile streamer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY - 1);
+		thread.start();
+	}
+
+	/**
+	 * stops streaming. Points already in the buffer are left there.
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+	}
+
+	/**
+	 *
+	 * @return whether the streaming thread is running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 *
+	 * @return the number of points pushed to the buffer so far
+	 */
+	public int getPointsPushed() {
+		return nextIndex;
+	}
+
+	/**
+	 *
+	 * @return whether every point of the profile has been pushed
+	 */
+	public boolean isAllPushed() {
+		return profile != null && nextIndex >= profile.size();
+	}
+
+	/**
+	 * pushes as many points as fit in the buffer, up to BATCH_SIZE
+	 */
+	private void fill() {
+		int count = Math.min(Math.min(buffer.getFreeSpace(), BATCH_SIZE), profile.size() - nextIndex);
+		int last = profile.size() - 1;
+		for (int i = 0; i < count; i++) {
+			MPPoint point = profile.getPoint(nextIndex);
+			buffer.push(point.position, point.velocity, durationMs, nextIndex == last);
+			nextIndex++;
+		}
+	}
+
+	/**
+	 * keeps the buffer full until the last point is reached. Runs twice per point
+	 * so the motor controller never runs out.
+	 */
+	@Override
+	public void run() {
+		long period = durationMs * 1000000L / 2;
+		while (running) {
+			if (!isAllPushed()) {
+				fill();
+			}
+			buffer.process();
+			if (buffer.isFinished()) {
+				break;
+			}
+			LockSupport.parkNanos(period);
+		}
+		running = false;
+	}
+}
@@ -0,0 +1,267 @@
+package controllers.motion_profiles;
+
+import path_generation.Path;
+import utilities.Utilities;
+
+/**
+ * Generates the profiles of both sides of a skidsteer drivetrain from a path in
+ * one pass. Gives the same profiles as a SkidsteerProfileGenerator for each
+ * side, but the turn between points and the resampling are only worked out
+ * once, and the points go straight into a DriveProfile's arrays instead of
+ * MPPoints.
+ *
+ * @author jack
+ *
+ */
+public class SkidsteerDriveGenerator {
+	/**
+	 * how far the wheels are from the center of the robot
+	 */
+	private final double halfWidth;
+
+	/**
+	 * constructor
+	 *
+	 * @param wheelDistance
+	 *            the distance between the left and right wheels
+	 */
+	public SkidsteerDriveGenerator(double wheelDistance) {
+		halfWidth = wheelDistance / 2;
+	}
+
+	/**
+	 * generates the profiles from the given path, with points
+	 * WheelProfileGenerator.RESAMPLE_DT apart.
+	 *
+	 * @param p
+	 *            the path to generate the profiles from
+	 * @param isBackwards
+	 *            whether to generate profiles for a backwards-driving robot
+	 * @return the generated profiles
+	 */
+	public DriveProfile genProfile(Path p, boolean isBackwards) {
+		int n = p.size();
+		double[] time = new double[n];
+		double[][] left = new double[DriveProfile.CHANNELS][n];
+		double[][] right = new double[DriveProfile.CHANNELS][n];
+		double[] heading = new double[n];
+		genPoints(p, isBackwards, time, left, right, heading);
+		return resample(time, left, right, heading, WheelProfileGenerator.RESAMPLE_DT);
+	}
+
+	/**
+	 * generates one profile that drives several paths one after another. Each
+	 * path starts where the last one ended, in both time and wheel position, so
+	 * the robot doesn't stop between them unless the paths stop at their ends.
+	 *
+	 * @param paths
+	 *            the paths to drive, in order
+	 * @param isBackwards
+	 *            whether each path is driven backwards
+	 * @return the generated profiles, with points
+	 *         WheelProfileGenerator.RESAMPLE_DT apart
+	 */
+	public DriveProfile genProfile(Path[] paths, boolean[] isBackwards) {
+		int n = 1;
+		for (Path p : paths) {
+			n += p.size() - 1;
+		}
+		double[] time = new double[n];
+		double[][] left = new double[DriveProfile.CHANNELS][n];
+		double[][] right = new double[DriveProfile.CHANNELS][n];
+		double[] heading = new double[n];
+		// the last point filled in so far
+		int last = 0;
+		for (int leg = 0; leg < paths.length; leg++) {
+			Path p = paths[leg];
+			double[] legTime = new double[p.size()];
+			double[][] legLeft = new double[DriveProfile.CHANNELS][p.size()];
+			double[][] legRight = new double[DriveProfile.CHANNELS][p.size()];
+			double[] legHeading = new double[p.size()];
+			genPoints(p, isBackwards[leg], legTime, legLeft, legRight, legHeading);
+			double startTime = time[last];
+			double leftStart = left[DriveProfile.POSITION][last];
+			double rightStart = right[DriveProfile.POSITION][last];
+			// the first point of each path after the first is the last point of the one
+			// before it
+			int first = leg == 0 ? 0 : 1;
+			for (int i = first; i < p.size(); i++) {
+				int index = last + i;
+				time[index] = startTime + legTime[i];
+				for (int channel = 0; channel < DriveProfile.CHANNELS; channel++) {
+					left[channel][index] = legLeft[channel][i];
+					right[channel][index] = legRight[channel][i];
+				}
+				left[DriveProfile.POSITION][index] += leftStart;
+				right[DriveProfile.POSITION][index] += rightStart;
+				heading[index] = legHeading[i];
+			}
+			last += p.size() - 1;
+		}
+		return resample(time, left, right, heading, WheelProfileGenerator.RESAMPLE_DT);
+	}
+
+	/**
+	 * works out the position, velocity, acceleration and jerk of each side at
+	 * every point of the path, the same way SkidsteerProfileGenerator.genPoints
+	 * does.
+	 */
+	private void genPoints(Path p, boolean isBackwards, double[] time, double[][] left, double[][] right,
+			double[] heading) {
+		double sign = isBackwards ? -1 : 1;
+		// the right wheel is halfWidth to the right, the left wheel is the same
+		// distance to the left
+		double arcScale = isBackwards ? -halfWidth : halfWidth;
+		double leftTotal = 0;
+		double rightTotal = 0;
+		double leftFirstRatio = 1;
+		double rightFirstRatio = 1;
+		double leftLastRatio = 1;
+		double rightLastRatio = 1;
+		heading[0] = robotHeading(p.getHeading(0), isBackwards);
+		for (int i = 1; i < p.size(); i++) {
+			double dT = p.getTime(i) - p.getTime(i - 1);
+			double radians = angleBetween(p.getHeading(i - 1), p.getHeading(i));
+			double linDist = p.getDistance(i) - p.getDistance(i - 1);
+			double leftDist = radians * -arcScale + linDist;
+			double rightDist = radians * arcScale + linDist;
+			leftTotal += leftDist;
+			rightTotal += rightDist;
+
+			// the wheel goes this many times as far as the center, so its acceleration
+			// is the center's scaled the same way, plus how fast the ratio changes
+			double leftRatio = linDist != 0 ? leftDist / linDist : 1;
+			double rightRatio = linDist != 0 ? rightDist / linDist : 1;
+			if (i == 1) {
+				leftFirstRatio = leftRatio;
+				leftLastRatio = leftRatio;
+				rightFirstRatio = rightRatio;
+				rightLastRatio = rightRatio;
+			}
+			double leftRatioRate = dT > 0 ? (leftRatio - leftLastRatio) / dT : 0;
+			double rightRatioRate = dT > 0 ? (rightRatio - rightLastRatio) / dT : 0;
+			leftLastRatio = leftRatio;
+			rightLastRatio = rightRatio;
+
+			double accel = p.getAcceleration(i);
+			double vel = p.getVelocity(i);
+			double jerk = p.getJerk(i);
+			time[i] = p.getTime(i);
+			DriveProfile.set(left, i, sign * leftTotal, sign * (leftDist / dT),
+					sign * (accel * leftRatio + vel * leftRatioRate),
+					sign * (jerk * leftRatio + 2 * accel * leftRatioRate));
+			DriveProfile.set(right, i, sign * rightTotal, sign * (rightDist / dT),
+					sign * (accel * rightRatio + vel * rightRatioRate),
+					sign * (jerk * rightRatio + 2 * accel * rightRatioRate));
+			heading[i] = robotHeading(p.getHeading(i), isBackwards);
+		}
+		// the first point starts at the velocity of the first segment
+		left[DriveProfile.VELOCITY][0] = left[DriveProfile.VELOCITY][1];
+		right[DriveProfile.VELOCITY][0] = right[DriveProfile.VELOCITY][1];
+		// the last point is where the path stops, not the average over the last
+		// segment
+		int last = p.size() - 1;
+		if (last > 0) {
+			left[DriveProfile.VELOCITY][last] = sign * p.getVelocity(last) * leftLastRatio;
+			right[DriveProfile.VELOCITY][last] = sign * p.getVelocity(last) * rightLastRatio;
+		}
+		left[DriveProfile.ACCELERATION][0] = sign * p.getAcceleration(0) * leftFirstRatio;
+		left[DriveProfile.JERK][0] = sign * p.getJerk(0) * leftFirstRatio;
+		right[DriveProfile.ACCELERATION][0] = sign * p.getAcceleration(0) * rightFirstRatio;
+		right[DriveProfile.JERK][0] = sign * p.getJerk(0) * rightFirstRatio;
+	}
+
+	/**
+	 * resamples both sides so the points are evenly spaced in time, the same way
+	 * Profile.resample does. Finding the segment and the hermite basis functions
+	 * are shared between the sides, and the slope at each point is only worked
+	 * out once.
+	 */
+	private static DriveProfile resample(double[] time, double[][] left, double[][] right, double[] heading,
+			double dt) {
+		int lastPoint = time.length - 1;
+		double first = time[0];
+		double end = time[lastPoint];
+		int length = ProfileSampling.getResampledLength(first, end, dt);
+		DriveProfile out = new DriveProfile(length);
+		double[] outTime = out.getTimes();
+		double[] outHeading = out.getHeadings();
+		double[] leftSlope = ProfileSampling.getSlopes(time, left[DriveProfile.POSITION],
+				left[DriveProfile.VELOCITY]);
+		double[] rightSlope = ProfileSampling.getSlopes(time, right[DriveProfile.POSITION],
+				right[DriveProfile.VELOCITY]);
+
+		double[] basis = new double[ProfileSampling.BASIS_SIZE];
+		int upperIndex = 1;
+		for (int i = 0; i < length; i++) {
+			double t = first + i * dt;
+			outTime[i] = t;
+			if (t >= end) {
+				hold(left, lastPoint, out.getLeftValues(), i);
+				hold(right, lastPoint, out.getRightValues(), i);
+				outHeading[i] = heading[lastPoint];
+				continue;
+			}
+			while (time[upperIndex] <= t) {
+				upperIndex++;
+			}
+			int lowerIndex = upperIndex - 1;
+			double segmentTime = time[upperIndex] - time[lowerIndex];
+			double s = (t - time[lowerIndex]) / segmentTime;
+			ProfileSampling.getHermiteBasis(s, basis);
+
+			interpolate(left, leftSlope, lowerIndex, segmentTime, s, basis, out.getLeftValues(), i);
+			interpolate(right, rightSlope, lowerIndex, segmentTime, s, basis, out.getRightValues(), i);
+			double change = angleBetween(heading[lowerIndex], heading[upperIndex]);
+			outHeading[i] = angleBetween(0, heading[lowerIndex] + s * change);
+		}
+		return out;
+	}
+
+	/**
+	 * holds the last point of one side
+	 */
+	private static void hold(double[][] values, int lastPoint, double[][] out, int i) {
+		DriveProfile.set(out, i, values[DriveProfile.POSITION][lastPoint], values[DriveProfile.VELOCITY][lastPoint],
+				values[DriveProfile.ACCELERATION][lastPoint], values[DriveProfile.JERK][lastPoint]);
+	}
+
+	/**
+	 * interpolates one side between a point and the next with a cubic hermite
+	 * spline. The acceleration and jerk are interpolated linearly.
+	 */
+	private static void interpolate(double[][] values, double[] slope, int lower, double segmentTime, double s,
+			double[] basis, double[][] out, int i) {
+		int upper = lower + 1;
+		double[] position = values[DriveProfile.POSITION];
+		double[] accel = values[DriveProfile.ACCELERATION];
+		double[] jerk = values[DriveProfile.JERK];
+		out[DriveProfile.POSITION][i] = ProfileSampling.interpolatePosition(basis, position, slope, lower,
+				segmentTime);
+		out[DriveProfile.VELOCITY][i] = ProfileSampling.interpolateVelocity(basis, position, slope, lower,
+				segmentTime);
+		out[DriveProfile.ACCELERATION][i] = Utilities.lerp(accel[lower], accel[upper], s);
+		out[DriveProfile.JERK][i] = Utilities.lerp(jerk[lower], jerk[upper], s);
+	}
+
+	/**
+	 * @return the heading the robot faces, which is backwards from the path when
+	 *         it drives backwards
+	 */
+	private static double robotHeading(double pathHeading, boolean isBackwards) {
+		return isBackwards ? angleBetween(0, pathHeading + Math.PI) : pathHeading;
+	}
+
+	/**
+	 * @return the change from one angle to another, between -pi and pi
+	 */
+	private static double angleBetween(double angle1, double angle2) {
+		double angleDif = angle2 - angle1;
+		if (angleDif > Math.PI) {
+			angleDif -= 2 * Math.PI;
+		} else if (angleDif < -Math.PI) {
+			angleDif += 2 * Math.PI;
+		}
+		return angleDif;
+	}
+}
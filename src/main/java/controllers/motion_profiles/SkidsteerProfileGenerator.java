@@ -28,37 +28,52 @@ public class SkidsteerProfileGenerator extends WheelProfileGenerator {
 
 	@Override
 	public Profile genPoints(Path p, boolean isBackwards) {
-		Profile outProfile = new Profile(p.waypoints.size());
-		Waypoint firstWP = p.waypoints.get(0);
+		Profile outProfile = new Profile(p.size());
 		
 		MPPoint startMPPoint = new MPPoint(0, 0, 0);
 		outProfile.setPoint(0, startMPPoint);
 		
 		double totalDist = 0;
-		Waypoint lastWP = firstWP;
-		for (int i = 1; i < p.waypoints.size(); i++) {
-			// get the current waypoint
-			Waypoint wp = p.waypoints.get(i);
-
+		double firstRatio = 1;
+		double lastRatio = 1;
+		for (int i = 1; i < p.size(); i++) {
 			// get the velocity and distance
-			double dT = wp.time - p.waypoints.get(i - 1).time;
-			double arcDist = getSignedArcDistance(lastWP, wp, isBackwards);
-			double linDist = wp.distance - lastWP.distance;
+			double dT = p.getTime(i) - p.getTime(i - 1);
+			double arcDist = getSignedArcDistance(p.getHeading(i - 1), p.getHeading(i), isBackwards);
+			double linDist = p.getDistance(i) - p.getDistance(i - 1);
 			double dist = arcDist + linDist;
 			totalDist += dist;
 			double vel = dist / dT;
+			// the wheel goes this many times as far as the center, so its acceleration
+			// is the center's scaled the same way, plus how fast the ratio changes
+			double wheelRatio = linDist != 0 ? dist / linDist : 1;
+			if (i == 1) {
+				firstRatio = wheelRatio;
+				lastRatio = wheelRatio;
+			}
+			double ratioRate = dT > 0 ? (wheelRatio - lastRatio) / dT : 0;
+			lastRatio = wheelRatio;
+			double accel = p.getAcceleration(i) * wheelRatio + p.getVelocity(i) * ratioRate;
+			double jerk = p.getJerk(i) * wheelRatio + 2 * p.getAcceleration(i) * ratioRate;
 			// create the profile point and add it
 			MPPoint currentMPPoint;
 			if (isBackwards) {
-				currentMPPoint = new MPPoint(-vel, -totalDist, wp.time);
+				currentMPPoint = new MPPoint(-vel, -totalDist, p.getTime(i), -accel, -jerk);
 			} else {
-				currentMPPoint = new MPPoint(vel, totalDist, wp.time);
+				currentMPPoint = new MPPoint(vel, totalDist, p.getTime(i), accel, jerk);
 			}
 			outProfile.setPoint(i, currentMPPoint);
-
-			lastWP = wp;
 		}
 		outProfile.getPoint(0).velocity = outProfile.getPoint(1).velocity;
+		double sign = isBackwards ? -1 : 1;
+		// the last point is where the path stops, not the average over the last
+		// segment
+		int last = p.size() - 1;
+		if (last > 0) {
+			outProfile.getPoint(last).velocity = sign * p.getVelocity(last) * lastRatio;
+		}
+		outProfile.getPoint(0).acceleration = sign * p.getAcceleration(0) * firstRatio;
+		outProfile.getPoint(0).jerk = sign * p.getJerk(0) * firstRatio;
 		// return it!
 		return outProfile;
 	}
@@ -87,16 +102,16 @@ public class SkidsteerProfileGenerator extends WheelProfileGenerator {
 	 * Used to generate the distance a wheel travels on a circular arc from the two
 	 * points.
 	 * 
-	 * @param first
-	 *            the first waypoint
-	 * @param second
-	 *            the second waypoint
+	 * @param firstRotation
+	 *            the heading of the first point
+	 * @param secondRotation
+	 *            the heading of the second point
 	 * @param backwards
 	 *            whether the robot is moving backwards
 	 * @return
 	 */
-	private double getSignedArcDistance(Waypoint first, Waypoint second, boolean backwards) {
-		double radians = angleBetween(first.rotation, second.rotation);
+	private double getSignedArcDistance(double firstRotation, double secondRotation, boolean backwards) {
+		double radians = angleBetween(firstRotation, secondRotation);
 		double arcDist = radians * rightOffset;
 		if (backwards) {
 			return -arcDist;
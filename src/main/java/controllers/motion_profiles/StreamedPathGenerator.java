@@ -0,0 +1,166 @@
+package controllers.motion_profiles;
+
+import java.util.ArrayList;
+
+import path_generation.Path;
+import path_generation.PathStream;
+import utilities.Logging;
+
+/**
+ * Generates the wheel profiles of a path on a background thread, one spline
+ * segment at a time, publishing each step to a pair of StreamedProfiles. The
+ * robot can start driving the first segment while the rest of the path is
+ * still being generated. Every step ends with the robot stopped at the end of
+ * what has been generated, so if generation falls behind the robot stops
+ * instead of running off the end.
+ *
+ * @author jack
+ *
+ */
+public class StreamedPathGenerator implements Runnable {
+	/**
+	 * How far ahead (s) of the robot points are locked when the path is planned
+	 * again. Has to be longer than it takes to generate a segment, or the points
+	 * change after the robot has started following them.
+	 */
+	public static final double LOCK_AHEAD = 0.25;
+
+	private final PathStream stream;
+	private final WheelProfileGenerator leftGen;
+	private final WheelProfileGenerator rightGen;
+	private final boolean isBackwards;
+	private final StreamedProfile left;
+	private final StreamedProfile right;
+
+	private Thread thread;
+	private volatile boolean done = false;
+	private volatile long startTime = 0;
+	private volatile long firstPublishTime = 0;
+	private volatile long doneTime = 0;
+
+	/**
+	 *
+	 * @param pathStream
+	 *            the path to generate
+	 * @param leftProfileGen
+	 *            the profile generator for the left wheels
+	 * @param rightProfileGen
+	 *            the profile generator for the right wheels
+	 * @param backwards
+	 *            whether the robot drives the path backwards
+	 */
+	public StreamedPathGenerator(PathStream pathStream, WheelProfileGenerator leftProfileGen,
+			WheelProfileGenerator rightProfileGen, boolean backwards) {
+		stream = pathStream;
+		leftGen = leftProfileGen;
+		rightGen = rightProfileGen;
+		isBackwards = backwards;
+		left = new StreamedProfile(new MPPoint(0, 0, 0));
+		right = new StreamedProfile(new MPPoint(0, 0, 0));
+	}
+
+	/**
+	 * starts generating the path on a background thread
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			Logging.w("Streamed path generation already started");
+			return;
+		}
+		startTime = System.nanoTime();
+		thread = new Thread(this, "Path generator");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.NORM_PRIORITY - 1);
+		thread.start();
+	}
+
+	/**
+	 * @return the profile for the left wheels
+	 */
+	public StreamedProfile getLeft() {
+		return left;
+	}
+
+	/**
+	 * @return the profile for the right wheels
+	 */
+	public StreamedProfile getRight() {
+		return right;
+	}
+
+	/**
+	 * @return whether the whole path has been generated
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * @return the time (s) from starting until the first segment could be
+	 *         driven, or NaN if it hasn't been published yet
+	 */
+	public double getTimeToFirstProfile() {
+		long first = firstPublishTime;
+		return first == 0 ? Double.NaN : (first - startTime) / 1e9;
+	}
+
+	/**
+	 * @return the time (s) it took to generate the whole path, or NaN if it
+	 *         isn't done yet
+	 */
+	public double getGenerationTime() {
+		return done ? (doneTime - startTime) / 1e9 : Double.NaN;
+	}
+
+	@Override
+	public void run() {
+		while (stream.hasNext()) {
+			// the robot has to be able to keep following the points it's about to reach
+			double followerTime = Math.max(left.getSampleTime(), right.getSampleTime());
+			double lockTime = followerTime + LOCK_AHEAD;
+			int lockIndex = stream.getLockIndex(lockTime);
+			Path before = stream.getPath();
+			double keepUntil = before.size() > 0 ? before.getTime(lockIndex) : 0;
+
+			// if the robot is already waiting at the end, it can't start again until the
+			// new points are published. It hasn't moved if it hasn't started following.
+			Path path = stream.next(lockIndex, followerTime > 0 ? lockTime : 0);
+			double startFrom = path.getTime(lockIndex);
+			boolean complete = !stream.hasNext();
+			left.publish(merge(left.getCurrent(), leftGen.genProfile(path, isBackwards), keepUntil, startFrom),
+					complete);
+			right.publish(merge(right.getCurrent(), rightGen.genProfile(path, isBackwards), keepUntil, startFrom),
+					complete);
+			if (firstPublishTime == 0) {
+				firstPublishTime = System.nanoTime();
+			}
+			double followedTo = Math.max(left.getSampleTime(), right.getSampleTime());
+			if (followerTime <= keepUntil && followedTo > keepUntil && lockIndex > 0) {
+				Logging.w("Path generation fell behind the robot, the profile changed while it was being followed");
+			}
+		}
+		doneTime = System.nanoTime();
+		done = true;
+	}
+
+	/**
+	 * keeps the points of the old profile before a time, followed by the points
+	 * of the new one from a time on
+	 */
+	private static Profile merge(Profile old, Profile next, double keepUntil, double startFrom) {
+		ArrayList<MPPoint> points = new ArrayList<MPPoint>(next.size());
+		for (int i = 0; i < old.size() && old.getPoint(i).time < keepUntil; i++) {
+			points.add(old.getPoint(i));
+		}
+		for (int i = 0; i < next.size(); i++) {
+			if (next.getPoint(i).time >= startFrom) {
+				points.add(next.getPoint(i));
+			}
+		}
+		Profile out = new Profile(points.size());
+		for (int i = 0; i < points.size(); i++) {
+			out.setPoint(i, points.get(i));
+		}
+		return out;
+	}
+}
@@ -0,0 +1,124 @@
+package controllers.motion_profiles;
+
+import utilities.Logging;
+
+/**
+ * A profile that grows while it is being followed, for paths generated by a
+ * StreamedPathGenerator. The points are kept in a profile that is replaced
+ * whenever more of the path is generated, so the control loop always samples a
+ * whole, consistent set of points without locking. Until the whole path is
+ * generated the points end with the robot stopped.
+ *
+ * @author jack
+ *
+ */
+public class StreamedProfile extends Profile {
+	/**
+	 * The points published so far.
+	 */
+	private volatile Profile current;
+	private volatile boolean complete = false;
+	/**
+	 * The latest time the profile has been sampled at, so the generator knows
+	 * which points the robot has already reached.
+	 */
+	private volatile double sampleTime = 0;
+
+	/**
+	 * creates a profile with the robot stopped at the start
+	 *
+	 * @param start
+	 *            the point to hold until points are published
+	 */
+	public StreamedProfile(MPPoint start) {
+		super(0);
+		Profile p = new Profile(2);
+		p.setPoint(0, start);
+		p.setPoint(1, new MPPoint(0, start.position, start.time));
+		current = p;
+	}
+
+	/**
+	 * replaces the points. Points the robot has already reached should be the
+	 * same as the ones they replace.
+	 *
+	 * @param p
+	 *            the profile to follow from now on
+	 * @param isComplete
+	 *            whether the profile goes to the end of the path
+	 */
+	void publish(Profile p, boolean isComplete) {
+		current = p;
+		complete = isComplete;
+	}
+
+	/**
+	 * @return the points published so far
+	 */
+	Profile getCurrent() {
+		return current;
+	}
+
+	/**
+	 * @return the latest time the profile has been sampled at
+	 */
+	public double getSampleTime() {
+		return sampleTime;
+	}
+
+	@Override
+	public double sample(double time, MPPoint out) {
+		if (time > sampleTime) {
+			sampleTime = time;
+		}
+		return current.sample(time, out);
+	}
+
+	@Override
+	public boolean isComplete() {
+		return complete;
+	}
+
+	@Override
+	public MPPoint getPoint(int index) {
+		return current.getPoint(index);
+	}
+
+	@Override
+	public int size() {
+		return current.size();
+	}
+
+	@Override
+	public MPPoint end() {
+		return current.end();
+	}
+
+	/**
+	 * The points change, so the profile can't be streamed to a Talon.
+	 */
+	@Override
+	public double getTimeStep() {
+		return Double.NaN;
+	}
+
+	@Override
+	public Profile resample(double dt) {
+		return current.resample(dt);
+	}
+
+	@Override
+	public void setPoints(MPPoint... points) {
+		Logging.e("Can't set the points of a streamed profile");
+	}
+
+	@Override
+	public void setPoint(int index, MPPoint point) {
+		Logging.e("Can't set the points of a streamed profile");
+	}
+
+	@Override
+	public String toString() {
+		return current.toString();
+	}
+}
@@ -0,0 +1,274 @@
+package controllers.motion_profiles;
+
+import java.util.ArrayList;
+
+import hardware.DriveBase2018;
+import path_generation.Path;
+import path_generation.Point;
+import path_generation.Waypoint;
+
+/**
+ * Plans several paths that are driven one after another as one trajectory, so
+ * the drive switches from one to the next at the exact point in the profile
+ * with no reset in between. Where one path ends where the next starts, facing
+ * the same way and driving the same direction, the robot keeps moving between
+ * them. Otherwise (like when it turns around to drive the other way) it stops
+ * for just an instant.
+ *
+ * Paths that start and end stopped are planned the same way as paths driven
+ * on their own, so their profiles can be given to the sequence (like from the
+ * PathCache) instead of generating them again. They're just moved to where
+ * they start in time and wheel position. Paths that start or end moving are
+ * planned with TIME_OPTIMAL, which can start and end at any velocity.
+ *
+ * @author jack
+ *
+ */
+public class TrajectorySequence {
+	/**
+	 * How close (m) the end of one path has to be to the start of the next one
+	 * for the robot to keep moving between them.
+	 */
+	public static final double JOIN_POSITION_TOLERANCE = 0.01;
+	/**
+	 * How close (radians) the heading at the end of one path has to be to the
+	 * heading at the start of the next one for the robot to keep moving between
+	 * them.
+	 */
+	public static final double JOIN_HEADING_TOLERANCE = 0.02;
+
+	/**
+	 * One of the paths in the sequence.
+	 */
+	private static class Leg {
+		final double velocity;
+		final double accel;
+		final boolean isBackwards;
+		final Waypoint[] waypoints;
+		Path path;
+		/**
+		 * The profile of the path on its own, if one was given. Only generated if
+		 * it wasn't, or the path has to be planned again.
+		 */
+		DriveProfile drive;
+		double endTime;
+
+		Leg(double velocity, double accel, boolean isBackwards, Waypoint[] waypoints) {
+			this.velocity = velocity;
+			this.accel = accel;
+			this.isBackwards = isBackwards;
+			this.waypoints = waypoints;
+		}
+	}
+
+	private final ArrayList<Leg> legs = new ArrayList<Leg>();
+	/**
+	 * The velocity of the center of the robot where each path starts, plus the
+	 * end of the last one.
+	 */
+	private double[] joinVelocity;
+	/**
+	 * The time each path starts at, plus the end of the last one.
+	 */
+	private double[] joinTime;
+	private DriveProfile profile;
+
+	/**
+	 * adds a path to the end of the sequence.
+	 *
+	 * @param velocity
+	 *            the max velocity of the path
+	 * @param accel
+	 *            the max acceleration of the path
+	 * @param isBackwards
+	 *            whether the robot drives the path backwards
+	 * @param isMirrored
+	 *            whether to mirror the path left to right
+	 * @param waypoints
+	 *            the waypoints of the path. They aren't changed.
+	 * @return the index of the path in the sequence
+	 */
+	public int add(double velocity, double accel, boolean isBackwards, boolean isMirrored, Waypoint... waypoints) {
+		Waypoint[] points = new Waypoint[waypoints.length];
+		for (int i = 0; i < points.length; i++) {
+			Waypoint wp = waypoints[i];
+			points[i] = isMirrored ? new Waypoint(new Point(wp.position.x, -wp.position.y), -wp.rotation)
+					: new Waypoint(new Point(wp.position.x, wp.position.y), wp.rotation);
+		}
+		legs.add(new Leg(velocity, accel, isBackwards, points));
+		profile = null;
+		return legs.size() - 1;
+	}
+
+	/**
+	 * gives a path the profile it has when it's driven on its own, so it isn't
+	 * generated again if the robot stops at both of its ends.
+	 *
+	 * @param leg
+	 *            the index of the path
+	 * @param path
+	 *            the generated path, or null if the profile was precomputed
+	 * @param drive
+	 *            the profile of the path, mirrored the same way as the waypoints
+	 * @param endTime
+	 *            the time it takes to drive the path
+	 */
+	public void useProfile(int leg, Path path, DriveProfile drive, double endTime) {
+		Leg l = legs.get(leg);
+		l.path = path;
+		l.drive = drive;
+		l.endTime = endTime;
+		profile = null;
+	}
+
+	/**
+	 * @return the number of paths in the sequence
+	 */
+	public int size() {
+		return legs.size();
+	}
+
+	/**
+	 * plans the velocities where the paths join, generating the paths that need
+	 * it, then joins the profiles of the whole sequence.
+	 */
+	public void plan() {
+		int n = legs.size();
+		joinVelocity = new double[n + 1];
+		// the robot can only keep moving where the paths line up. The paths on
+		// either side are planned again with TIME_OPTIMAL.
+		boolean[] replan = new boolean[n];
+		for (int i = 1; i < n; i++) {
+			if (canKeepMoving(legs.get(i - 1), legs.get(i))) {
+				joinVelocity[i] = Double.POSITIVE_INFINITY;
+				replan[i - 1] = true;
+				replan[i] = true;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			Leg leg = legs.get(i);
+			if (replan[i] || leg.drive == null) {
+				leg.path = new Path(leg.velocity, leg.accel, Path.defaultVelocityMode, Path.defaultSplineMode,
+						leg.waypoints);
+				leg.drive = null;
+			}
+		}
+		// lower the join velocities to what each path can speed up to, then what
+		// each path can slow down from
+		for (int i = 0; i < n; i++) {
+			if (joinVelocity[i + 1] > 0) {
+				Leg leg = legs.get(i);
+				joinVelocity[i + 1] = Math.min(joinVelocity[i + 1],
+						leg.path.getMaxEndVelocity(leg.velocity, leg.accel, joinVelocity[i]));
+			}
+		}
+		for (int i = n - 1; i >= 0; i--) {
+			if (joinVelocity[i] > 0) {
+				Leg leg = legs.get(i);
+				joinVelocity[i] = Math.min(joinVelocity[i],
+						leg.path.getMaxStartVelocity(leg.velocity, leg.accel, joinVelocity[i + 1]));
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			Leg leg = legs.get(i);
+			if (replan[i]) {
+				leg.path.planTimeOptimal(leg.velocity, leg.accel, joinVelocity[i], joinVelocity[i + 1]);
+				// the next path starts at whatever this one actually ends at
+				joinVelocity[i + 1] = leg.path.getVelocity(leg.path.size() - 1);
+			}
+			if (leg.path != null && leg.drive == null) {
+				leg.endTime = leg.path.endTime;
+			}
+		}
+
+		// paths the robot keeps moving between are generated as one profile, and
+		// those profiles are joined where the robot stops
+		ArrayList<DriveProfile> parts = new ArrayList<DriveProfile>();
+		joinTime = new double[n + 1];
+		int first = 0;
+		while (first < n) {
+			int last = first;
+			while (last + 1 < n && canKeepMoving(legs.get(last), legs.get(last + 1))) {
+				last++;
+			}
+			DriveProfile part = legs.get(first).drive;
+			if (part == null) {
+				Path[] paths = new Path[last - first + 1];
+				boolean[] backwards = new boolean[paths.length];
+				for (int i = first; i <= last; i++) {
+					paths[i - first] = legs.get(i).path;
+					backwards[i - first] = legs.get(i).isBackwards;
+				}
+				part = DriveBase2018.driveProfileGen.genProfile(paths, backwards);
+			}
+			parts.add(part);
+			for (int i = first; i <= last; i++) {
+				joinTime[i + 1] = joinTime[i] + legs.get(i).endTime;
+			}
+			if (last + 1 < n) {
+				// the next part starts at the last point of this one, which can be a
+				// bit after the path ends
+				joinTime[last + 1] = joinTime[first] + part.getEndTime() - part.getTime(0);
+			}
+			first = last + 1;
+		}
+		profile = DriveProfile.join(parts.toArray(new DriveProfile[parts.size()]));
+	}
+
+	/**
+	 * @return whether the robot can keep moving from the end of one path to the
+	 *         start of the next
+	 */
+	private static boolean canKeepMoving(Leg from, Leg to) {
+		Waypoint end = from.waypoints[from.waypoints.length - 1];
+		Waypoint start = to.waypoints[0];
+		double turn = Math.abs(Math.IEEEremainder(start.rotation - end.rotation, 2 * Math.PI));
+		double gap = end.getPoint().distance(start.getPoint());
+		return from.isBackwards == to.isBackwards && gap <= JOIN_POSITION_TOLERANCE && turn <= JOIN_HEADING_TOLERANCE;
+	}
+
+	/**
+	 * @return the profile of the whole sequence, or null if it hasn't been planned
+	 */
+	public DriveProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * @param leg
+	 *            the index of the path
+	 * @return the generated path, or null if the path was given a precomputed
+	 *         profile
+	 */
+	public Path getPath(int leg) {
+		return legs.get(leg).path;
+	}
+
+	/**
+	 * @param leg
+	 *            the index of the path
+	 * @return the time in the sequence the path starts at
+	 */
+	public double getStartTime(int leg) {
+		return joinTime[leg];
+	}
+
+	/**
+	 * @param leg
+	 *            the index of the path
+	 * @return the time in the sequence the path ends at
+	 */
+	public double getEndTime(int leg) {
+		return joinTime[leg + 1];
+	}
+
+	/**
+	 * @param leg
+	 *            the index of the path
+	 * @return the velocity of the center of the robot at the end of the path, 0
+	 *         if it stops there
+	 */
+	public double getEndVelocity(int leg) {
+		return joinVelocity[leg + 1];
+	}
+}
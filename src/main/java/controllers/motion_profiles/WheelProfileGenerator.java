@@ -9,6 +9,12 @@ import path_generation.*;
  *
  */
 public abstract class WheelProfileGenerator {
+	/**
+	 * The time between points of generated profiles in seconds. 10ms is also a
+	 * trajectory duration the Talon motion profile buffer supports.
+	 */
+	public static final double RESAMPLE_DT = 0.01;
+
 	/**
 	 * generates the profile from the given path.
 	 * 
@@ -19,4 +25,18 @@ public abstract class WheelProfileGenerator {
 	 * @return the generated profile
 	 */
 	public abstract Profile genPoints(Path p, boolean isBackwards);
+
+	/**
+	 * generates the profile from the given path, then resamples it so the points
+	 * are evenly spaced in time.
+	 * 
+	 * @param p
+	 *            the path to generate a profile from
+	 * @param isBackwards
+	 *            whether to generate a profile for a backwards-driving robot
+	 * @return the generated profile with points RESAMPLE_DT apart
+	 */
+	public Profile genProfile(Path p, boolean isBackwards) {
+		return genPoints(p, isBackwards).resample(RESAMPLE_DT);
+	}
 }
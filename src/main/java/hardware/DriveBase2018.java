@@ -1,16 +1,27 @@
 package hardware;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 import com.ctre.phoenix.motorcontrol.VelocityMeasPeriod;
 import controllers.PIDcontroller;
+import controllers.motion_profiles.DriveProfile;
 import controllers.motion_profiles.MotionProfile;
+import controllers.motion_profiles.Profile;
+import controllers.motion_profiles.ProfileMarkers;
+import controllers.motion_profiles.SkidsteerDriveGenerator;
 import controllers.motion_profiles.SkidsteerProfileGenerator;
+import controllers.motion_profiles.StreamedPathGenerator;
 import controllers.motion_profiles.WheelProfileGenerator;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import hardware.interfaces.DriveBase;
 import path_generation.Path;
+import path_generation.PathStream;
 import path_generation.Waypoint;
+import utilities.DashboardPublisher;
+import utilities.DashboardPublisher.NumberKey;
 import utilities.Logging;
+import utilities.Snapshot;
 import utilities.Utilities;
 
 /**
@@ -31,14 +42,55 @@ public class DriveBase2018 extends DriveBase {
 	final static double velGain = 0.255;
 	final static double accelGain = 0.003;
 
-	private PIDcontroller leftMotionProfilePID = new PIDcontroller(6.5, 13, 0.275);
-	private PIDcontroller rightMotionProfilePID = new PIDcontroller(6.5, 13, 0.275);
-	private WheelProfileGenerator leftProfileGen;
-	private WheelProfileGenerator rightProfileGen;
+	final static double mpP = 6.5;
+	final static double mpI = 13;
+	final static double mpD = 0.275;
+
+	/**
+	 * Whether the Talons should run motion profiles themselves when they can,
+	 * instead of running them in the robot loop.
+	 */
+	public static boolean useTalonMotionProfiles = true;
+
+	private PIDcontroller leftMotionProfilePID = new PIDcontroller(mpP, mpI, mpD);
+	private PIDcontroller rightMotionProfilePID = new PIDcontroller(mpP, mpI, mpD);
+	// TODO set offsets appropriately
+	public final static WheelProfileGenerator leftProfileGen = new SkidsteerProfileGenerator(-wheelDistance / 2);
+	public final static WheelProfileGenerator rightProfileGen = new SkidsteerProfileGenerator(wheelDistance / 2);
+	/**
+	 * Generates both sides at once, which is about twice as fast as using the
+	 * left and right generators.
+	 */
+	public final static SkidsteerDriveGenerator driveProfileGen = new SkidsteerDriveGenerator(wheelDistance);
 
 	public MotionProfile leftMotionProfile;
 	public MotionProfile rightMotionProfile;
 
+	/**
+	 * Profiles waiting for the control loop to start driving them. Set by
+	 * drivePath, which can be called from any thread.
+	 */
+	private final AtomicReference<Profile[]> pendingPath = new AtomicReference<Profile[]>();
+	/**
+	 * The markers to fire along the pending profiles. Set before pendingPath, so
+	 * they're seen by the control loop along with it.
+	 */
+	private volatile ProfileMarkers pendingMarkers;
+
+	/**
+	 * Sensor readings from the control loop, read by the telemetry thread.
+	 */
+	private static final int LEFT_POSITION = 0, RIGHT_POSITION = 1, LEFT_MP_ERROR = 2, RIGHT_MP_ERROR = 3,
+			LEFT_CURRENT = 4, RIGHT_CURRENT = 5, SENSOR_COUNT = 6;
+	private final Snapshot sensors = new Snapshot(SENSOR_COUNT);
+	private final double[] sensorValues = new double[SENSOR_COUNT];
+	private final NumberKey leftCurrentKey = DashboardPublisher.addNumber("left current", 0.1, 0.1),
+			rightCurrentKey = DashboardPublisher.addNumber("right current", 0.1, 0.1),
+			leftPositionKey = DashboardPublisher.addNumber("left position", 0.1, 0.001),
+			rightPositionKey = DashboardPublisher.addNumber("right position", 0.1, 0.001),
+			leftErrorKey = DashboardPublisher.addNumber("left MP error", 0.1, 0.001),
+			rightErrorKey = DashboardPublisher.addNumber("right MP error", 0.1, 0.001);
+
 	public double leftPower = 0;
 	public double rightPower = 0;
 
@@ -80,15 +132,14 @@ public class DriveBase2018 extends DriveBase {
 		registerMotorController(left);
 		registerMotorController(right);
 
-		// TODO set offsets appropriately
-		leftProfileGen = new SkidsteerProfileGenerator(-wheelDistance / 2);
-		rightProfileGen = new SkidsteerProfileGenerator(wheelDistance / 2);
-
 		leftMotionProfilePID.setDOnMeasurement(false);
 		rightMotionProfilePID.setDOnMeasurement(false);
 
 		leftMotionProfile = new MotionProfile(leftMotionProfilePID, velGain, accelGain, leftProfileGen);
 		rightMotionProfile = new MotionProfile(rightMotionProfilePID, velGain, accelGain, rightProfileGen);
+
+		left.feedbackTalon.setupTalonMotionProfileGains(mpP, mpI, mpD, velGain);
+		right.feedbackTalon.setupTalonMotionProfileGains(mpP, mpI, mpD, velGain);
 	}
 
 	public double getWheelVelocity() {
@@ -99,14 +150,33 @@ public class DriveBase2018 extends DriveBase {
 		return v;
 	}
 	
-	public void update(double dT) {
-		super.update(dT);
-		SmartDashboard.putNumber("left current", left.feedbackTalon.talon.getOutputCurrent());
-		SmartDashboard.putNumber("right current", right.feedbackTalon.talon.getOutputCurrent());
-		SmartDashboard.putNumber("left position", left.getPosition());
-		SmartDashboard.putNumber("right position", right.getPosition());
-		leftMotionProfile.writeErrorToDashboard("left MP error");
-		rightMotionProfile.writeErrorToDashboard("right MP error");
+	/**
+	 * saves the sensor readings so the telemetry thread can read them. Should only
+	 * be called from the control loop.
+	 */
+	public void recordSensors() {
+		sensors.beginWrite();
+		sensors.set(LEFT_POSITION, left.getPosition());
+		sensors.set(RIGHT_POSITION, right.getPosition());
+		sensors.set(LEFT_MP_ERROR, leftMotionProfile.getError());
+		sensors.set(RIGHT_MP_ERROR, rightMotionProfile.getError());
+		sensors.set(LEFT_CURRENT, left.feedbackTalon.talon.getOutputCurrent());
+		sensors.set(RIGHT_CURRENT, right.feedbackTalon.talon.getOutputCurrent());
+		sensors.endWrite();
+	}
+
+	/**
+	 * gives the latest sensor readings from the control loop to the dashboard
+	 * publisher. Should only be called from the telemetry thread.
+	 */
+	public void logToDashboard() {
+		sensors.read(sensorValues);
+		leftCurrentKey.set(sensorValues[LEFT_CURRENT]);
+		rightCurrentKey.set(sensorValues[RIGHT_CURRENT]);
+		leftPositionKey.set(sensorValues[LEFT_POSITION]);
+		rightPositionKey.set(sensorValues[RIGHT_POSITION]);
+		leftErrorKey.set(sensorValues[LEFT_MP_ERROR]);
+		rightErrorKey.set(sensorValues[RIGHT_MP_ERROR]);
 	}
 	
 	public void enableCurrentLimiting() {
@@ -135,6 +205,29 @@ public class DriveBase2018 extends DriveBase {
 		right.enableCurrentLimit(false);
 	}
 	
+	/**
+	 * Disabling feedback happens right away, and also cancels any path that
+	 * hasn't been started by the control loop yet. Locked with update, so the
+	 * control loop can't send the Talons anything while feedback is being
+	 * turned off from another thread.
+	 */
+	@Override
+	public synchronized void setFeedbackActive(boolean active) {
+		if (!active) {
+			pendingPath.set(null);
+		}
+		super.setFeedbackActive(active);
+	}
+
+	/**
+	 * runs the feedback loops. Called by the control loop, and locked with
+	 * setFeedbackActive and startPendingPath.
+	 */
+	@Override
+	public synchronized void update(double dT) {
+		super.update(dT);
+	}
+
 	@Override
 	public void drive(double... inputs) {
 		if (inputs.length == 2) {
@@ -192,23 +285,118 @@ public class DriveBase2018 extends DriveBase {
 	}
 
 	public void drivePath(Path p, boolean isBackwards) {
+		// generate both profiles in one pass then drive them
+		DriveProfile drive = driveProfileGen.genProfile(p, isBackwards);
+		drivePath(drive.getLeft(), drive.getRight());
+	}
+
+	/**
+	 * drives profiles that have already been generated. The profiles are started
+	 * by the control loop the next time it runs.
+	 * 
+	 * @param leftProfile
+	 *            the profile for the left wheels
+	 * @param rightProfile
+	 *            the profile for the right wheels
+	 */
+	public void drivePath(Profile leftProfile, Profile rightProfile) {
+		drivePath(leftProfile, rightProfile, null);
+	}
+
+	/**
+	 * drives profiles that have already been generated, firing markers from the
+	 * profiles' clock as they run. The profiles are started by the control loop
+	 * the next time it runs.
+	 * 
+	 * @param leftProfile
+	 *            the profile for the left wheels
+	 * @param rightProfile
+	 *            the profile for the right wheels
+	 * @param markers
+	 *            the markers to fire, or null for none
+	 */
+	public void drivePath(Profile leftProfile, Profile rightProfile, ProfileMarkers markers) {
+		pendingMarkers = markers;
+		pendingPath.set(new Profile[] { leftProfile, rightProfile });
+	}
+
+	/**
+	 * drives a path while it is still being generated. The robot starts as soon
+	 * as the first segment is ready, and stops at the end of what has been
+	 * generated if generation falls behind.
+	 * 
+	 * @param stream
+	 *            the path to generate
+	 * @param isBackwards
+	 *            whether to drive the path backwards
+	 * @return the generator, to check when the whole path is done
+	 */
+	public StreamedPathGenerator drivePathStreamed(PathStream stream, boolean isBackwards) {
+		StreamedPathGenerator generator = new StreamedPathGenerator(stream, leftProfileGen, rightProfileGen,
+				isBackwards);
+		generator.start();
+		drivePath(generator.getLeft(), generator.getRight());
+		return generator;
+	}
+
+	/**
+	 * starts driving the profiles given to drivePath, if there are any. Should only
+	 * be called from the control loop.
+	 */
+	public void startPendingPath() {
+		if (pendingPath.get() == null) {
+			return;
+		}
+		// locked so a path can't start after setFeedbackActive(false) cancels it
+		synchronized (this) {
+			Profile[] path = pendingPath.getAndSet(null);
+			if (path != null) {
+				startPath(path[0], path[1], pendingMarkers);
+			}
+		}
+	}
+
+	/**
+	 * starts driving profiles. The Talons run the profiles themselves if they can,
+	 * otherwise they are run in the control loop.
+	 * 
+	 * @param leftProfile
+	 *            the profile for the left wheels
+	 * @param rightProfile
+	 *            the profile for the right wheels
+	 * @param markers
+	 *            the markers to fire, or null for none
+	 */
+	private void startPath(Profile leftProfile, Profile rightProfile, ProfileMarkers markers) {
 		// reset motion profiles
 		leftMotionProfile.reset();
 		rightMotionProfile.reset();
 
-		// generate profiles
-		leftMotionProfile.generateProfileFromPath(p, isBackwards);
-		rightMotionProfile.generateProfileFromPath(p, isBackwards);
+		leftMotionProfile.setProfile(leftProfile);
+		rightMotionProfile.setProfile(rightProfile);
+		// both sides run on the same clock, so only the left fires the markers
+		leftMotionProfile.setMarkers(markers);
+		rightMotionProfile.setMarkers(null);
 
 		// set offsets
 		leftMotionProfile.setOffset(left.getPosition());
 		rightMotionProfile.setOffset(right.getPosition());
 
-		// enable them
 		left.setFeedbackController(leftMotionProfile);
 		right.setFeedbackController(rightMotionProfile);
-		left.setFeedbackActive(true);
-		right.setFeedbackActive(true);
+
+		if (useTalonMotionProfiles && left.canRunMotionProfile(leftProfile)
+				&& right.canRunMotionProfile(rightProfile)) {
+			// stream the profiles to the talons
+			left.startMotionProfile(leftProfile);
+			right.startMotionProfile(rightProfile);
+		} else {
+			// enable them
+			left.feedbackTalon.stopMotionProfile();
+			right.feedbackTalon.stopMotionProfile();
+			left.setFeedbackActive(true);
+			right.setFeedbackActive(true);
+		}
 	}
 
 	/**
@@ -4,6 +4,7 @@ package hardware;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 
 import controllers.AbstractFeedbackController;
+import controllers.motion_profiles.Profile;
 import hardware.interfaces.CANMotorController;
 import hardware.interfaces.FeedbackMotorController;
 
@@ -14,8 +15,8 @@ import hardware.interfaces.FeedbackMotorController;
  */
 public class FeedbackLinkedCAN extends LinkedCANMotorControllers implements FeedbackMotorController {
 	public FeedbackTalon feedbackTalon;
-	private AbstractFeedbackController feedbackController;
-	private boolean feedbackActive = false;
+	private volatile AbstractFeedbackController feedbackController;
+	private volatile boolean feedbackActive = false;
 	/**
 	 * Creates a new set of linked talons.
      *
@@ -77,7 +78,7 @@ public class FeedbackLinkedCAN extends LinkedCANMotorControllers implements Feed
 
 	@Override
 	public void setFeedbackActive(boolean active) {
-		feedbackTalon.feedbackActive = active;
+		feedbackTalon.setFeedbackActive(active);
 		feedbackActive = active;
 	}
 
@@ -100,6 +101,29 @@ public class FeedbackLinkedCAN extends LinkedCANMotorControllers implements Feed
 	public void runFeedback(double deltaTime) {
 		feedbackTalon.runFeedback(deltaTime);
 	}
+
+	/**
+	 * checks if the feedback talon can run a profile itself
+	 * 
+	 * @param profile
+	 *            the profile to check
+	 * @return whether the talon can run it
+	 */
+	public boolean canRunMotionProfile(Profile profile) {
+		return feedbackTalon.canRunMotionProfile(profile);
+	}
+
+	/**
+	 * has the feedback talon run a profile itself, with the other motor controllers
+	 * following it.
+	 * 
+	 * @param profile
+	 *            the profile to run
+	 */
+	public void startMotionProfile(Profile profile) {
+		feedbackTalon.startMotionProfile(profile);
+		feedbackActive = true;
+	}
 	
 	public void setCurrentLimit(int amps){
 		super.setCurrentLimit(amps);
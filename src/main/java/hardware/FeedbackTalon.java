@@ -1,9 +1,13 @@
 package hardware;
 
+import com.ctre.phoenix.motion.SetValueMotionProfile;
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 
 import controllers.AbstractFeedbackController;
+import controllers.motion_profiles.MotionProfile;
+import controllers.motion_profiles.Profile;
+import controllers.motion_profiles.ProfileStreamer;
 import hardware.interfaces.FeedbackMotorController;
 import utilities.Logging;
 import utilities.Utilities;
@@ -11,17 +15,51 @@ import utilities.Utilities;
 public class FeedbackTalon extends Talon implements FeedbackMotorController, Utilities.Conversions {
 	static final int CONFIG_TIMEOUT_MS = 20;
 	boolean isEncoderReversed = false;
-	private AbstractFeedbackController feedbackController;
-	boolean feedbackActive = false;
-	private boolean isTalonClosedLoopMode = false;
-	private double lastSetpoint = 0;
+	// read by the control loop, and set from the robot thread
+	private volatile AbstractFeedbackController feedbackController;
+	volatile boolean feedbackActive = false;
+	private volatile boolean isTalonClosedLoopMode = false;
+	private volatile double lastSetpoint = 0;
+
+	/**
+	 * The number of points the Talon should have ready before it starts running a
+	 * motion profile.
+	 */
+	static final int MIN_READY_POINTS = 5;
+	/**
+	 * the Talon's motion profile buffer and the thread that fills it, used when the
+	 * Talon runs motion profiles itself.
+	 */
+	private final TalonMotionProfileBuffer mpBuffer;
+	private final ProfileStreamer mpStreamer;
+	private volatile boolean isTalonMotionProfileMode = false;
+	/**
+	 * Whether the Talon has started running the current profile. Once it has, it
+	 * stays enabled until the end, and gaps in the points are left to the
+	 * Talon's underrun handling.
+	 */
+	private boolean isMotionProfileStarted = false;
+	/**
+	 * Whether the Talon ran out of points in the current profile, so it's only
+	 * logged once.
+	 */
+	private boolean loggedUnderrun = false;
+	/**
+	 * Whether the sensor phase is flipped on the Talon, which also flips the
+	 * position it reports. Only changed when the motor or encoder direction is
+	 * set up, since the Talon reports positions with the old phase for a while
+	 * after it changes.
+	 */
+	private boolean sensorPhase = false;
 
 	public FeedbackTalon(int talonID) {
 		super(talonID);
+		mpBuffer = new TalonMotionProfileBuffer(talon);
+		mpStreamer = new ProfileStreamer(mpBuffer);
 	}
 
 	public FeedbackTalon(int talonID, FeedbackDevice device) {
-		super(talonID);
+		this(talonID);
 		setFeedbackDevice(device);
 	}
 
@@ -39,12 +77,116 @@ public class FeedbackTalon extends Talon implements FeedbackMotorController, Uti
 		isTalonClosedLoopMode = false;
 	}
 
+	/**
+	 * sets the gains the Talon uses to run motion profiles. Gains are in the same
+	 * units as the MotionProfile's (output power per meter of error, per meter per
+	 * second of velocity, etc.) and are converted to the Talon's units. The Talon
+	 * has no acceleration feedforward, so that gain can't be used.
+	 * 
+	 * @param kP
+	 *            the proportional gain
+	 * @param kI
+	 *            the integral gain
+	 * @param kD
+	 *            the derivative gain
+	 * @param kV
+	 *            the velocity feedforward gain
+	 */
+	public void setupTalonMotionProfileGains(double kP, double kI, double kD, double kV) {
+		// the talon's full output is 1023, and its loop runs every 1ms
+		double ticksPerMeter = Distance.M.convert(1, Distance.ENCODER_TICK);
+		double perTick = 1023 / ticksPerMeter;
+		int slot = TalonMotionProfileBuffer.PROFILE_SLOT;
+		talon.config_kP(slot, kP * perTick, CONFIG_TIMEOUT_MS);
+		talon.config_kI(slot, kI * perTick * 0.001, CONFIG_TIMEOUT_MS);
+		talon.config_kD(slot, kD * perTick / 0.001, CONFIG_TIMEOUT_MS);
+		// velocity is in ticks per 100ms
+		talon.config_kF(slot, kV * perTick * 10, CONFIG_TIMEOUT_MS);
+	}
+
+	/**
+	 * checks if the Talon can run a profile itself
+	 * 
+	 * @param profile
+	 *            the profile to check
+	 * @return whether the profile's points are evenly spaced by a time the Talon
+	 *         supports
+	 */
+	public boolean canRunMotionProfile(Profile profile) {
+		return mpStreamer.canStream(profile);
+	}
+
+	/**
+	 * has the Talon run a profile itself, starting from the current position. The
+	 * points are streamed to the Talon from a background thread.
+	 * 
+	 * @param profile
+	 *            the profile to run
+	 */
+	public void startMotionProfile(Profile profile) {
+		stopMotionProfile();
+		mpBuffer.setStart(talon.getSelectedSensorPosition(0), isReversed);
+		talon.configMotionProfileTrajectoryPeriod(0, CONFIG_TIMEOUT_MS);
+		talon.changeMotionControlFramePeriod(ProfileStreamer.getDurationMs(profile) / 2);
+		talon.set(ControlMode.MotionProfile, SetValueMotionProfile.Disable.value);
+		mpStreamer.start(profile);
+		isMotionProfileStarted = false;
+		loggedUnderrun = false;
+		isTalonMotionProfileMode = true;
+		feedbackActive = true;
+	}
+
+	/**
+	 * stops the Talon from running a profile and clears its buffer.
+	 */
+	public void stopMotionProfile() {
+		if (isTalonMotionProfileMode) {
+			mpStreamer.stop();
+			mpBuffer.clear();
+			talon.set(ControlMode.MotionProfile, SetValueMotionProfile.Disable.value);
+			isTalonMotionProfileMode = false;
+		}
+	}
+
+	/**
+	 * 
+	 * @return whether the Talon is running a motion profile itself
+	 */
+	public boolean isTalonMotionProfileMode() {
+		return isTalonMotionProfileMode;
+	}
+
+	/**
+	 * 
+	 * @return whether the Talon reached the end of its motion profile
+	 */
+	public boolean isMotionProfileFinished() {
+		return isTalonMotionProfileMode && mpBuffer.isFinished();
+	}
+
+	/**
+	 * sets the sensor phase so the Talon's output moves its sensor forwards when
+	 * it runs a profile itself, which is when one of the motor or encoder is
+	 * reversed but not both. The positions read from the Talon are flipped back,
+	 * so the phase doesn't change getPosition.
+	 */
+	private void updateSensorPhase() {
+		sensorPhase = isReversed != isEncoderReversed;
+		talon.setSensorPhase(sensorPhase);
+	}
+
+	@Override
+	public void setInverted(boolean inverted) {
+		super.setInverted(inverted);
+		updateSensorPhase();
+	}
+
 	public double getRawPosition() {
-		return talon.getSelectedSensorPosition(0);
+		return sensorPhase ? -talon.getSelectedSensorPosition(0) : talon.getSelectedSensorPosition(0);
 	}
 
 	public double getRawVelocity() {
-		return talon.getSelectedSensorVelocity(0);
+		return sensorPhase ? -talon.getSelectedSensorVelocity(0) : talon.getSelectedSensorVelocity(0);
 	}
 
 	public double getRawCLError() {
@@ -53,7 +195,7 @@ public class FeedbackTalon extends Talon implements FeedbackMotorController, Uti
 
 	@Override
 	public double getPosition() {
-		double d = Distance.ENCODER_TICK.convert(talon.getSelectedSensorPosition(0), Distance.M);
+		double d = Distance.ENCODER_TICK.convert(getRawPosition(), Distance.M);
 		if (isEncoderReversed) {
 			return -d;
 		} else {
@@ -69,6 +211,9 @@ public class FeedbackTalon extends Talon implements FeedbackMotorController, Uti
 	@Override
 	public void setFeedbackActive(boolean active) {
 		feedbackActive = active;
+		if (!active) {
+			stopMotionProfile();
+		}
 	}
 
 	@Override
@@ -78,12 +223,40 @@ public class FeedbackTalon extends Talon implements FeedbackMotorController, Uti
 
 	@Override
 	public void runFeedback(double deltaTime) {
-		if (isTalonClosedLoopMode) {
+		if (isTalonMotionProfileMode) {
+			// hold the last point once it's reached, and wait for a few points to be
+			// ready before starting. Once started it stays enabled, and the Talon
+			// holds its last point if it runs out.
+			SetValueMotionProfile value;
+			if (mpBuffer.isFinished()) {
+				value = SetValueMotionProfile.Hold;
+			} else if (isMotionProfileStarted) {
+				value = SetValueMotionProfile.Enable;
+				if (!loggedUnderrun && mpBuffer.hasUnderrun()) {
+					Logging.w("Talon ran out of motion profile points");
+					loggedUnderrun = true;
+				}
+			} else if (mpBuffer.getReadyCount() >= MIN_READY_POINTS || mpStreamer.isAllPushed()) {
+				value = SetValueMotionProfile.Enable;
+				isMotionProfileStarted = true;
+			} else {
+				value = SetValueMotionProfile.Disable;
+			}
+			talon.set(ControlMode.MotionProfile, value.value);
+			AbstractFeedbackController controller = feedbackController;
+			if (value == SetValueMotionProfile.Enable && controller instanceof MotionProfile) {
+				// the talon follows the profile, so only keep the profile's clock going
+				// for its markers
+				((MotionProfile) controller).advance(deltaTime);
+			}
+		} else if (isTalonClosedLoopMode) {
 			//Logging.h("Motion Magic Mode run!");
 			talon.set(ControlMode.MotionMagic, lastSetpoint);
 		} else {
-			if (feedbackActive) {
-				double output = feedbackController.run(getPosition(), deltaTime);
+			// read once, since it can be set to null from another thread
+			AbstractFeedbackController controller = feedbackController;
+			if (feedbackActive && controller != null) {
+				double output = controller.run(getPosition(), deltaTime);
 				setPower(output);
 			} else {
 				//Logging.l("runFeedback run with feedback inactive");
@@ -120,6 +293,7 @@ public class FeedbackTalon extends Talon implements FeedbackMotorController, Uti
 	@Override
 	public void setEncoderReversed(boolean reversed) {
 		isEncoderReversed = reversed;
+		updateSensorPhase();
 	}
 
 	@Override
@@ -7,6 +7,10 @@ import com.ctre.phoenix.motorcontrol.NeutralMode;
 import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import hardware.Lift.Positions;
+import utilities.DashboardPublisher;
+import utilities.DashboardPublisher.BooleanKey;
+import utilities.DashboardPublisher.NumberKey;
+import utilities.DashboardPublisher.StringKey;
 import utilities.Logging;
 
 /**
@@ -27,6 +31,15 @@ public class Intake {
 	private DigitalInput cubeSwitch;
 	private boolean currentSwitchStatus = false;
 	
+	private final NumberKey targetVelocityKey = DashboardPublisher.addNumber("Intake Target Velocity"),
+			leftVelocityErrorKey = DashboardPublisher.addNumber("Left Intake Velocity Error", 0.1, 1),
+			rightVelocityErrorKey = DashboardPublisher.addNumber("Right Intake Velocity Error", 0.1, 1),
+			timeKey = DashboardPublisher.addNumber("Intake Time", 0.1, 0.05),
+			leftVelocityKey = DashboardPublisher.addNumber("Left Intake Velocity", 0.1, 1),
+			rightVelocityKey = DashboardPublisher.addNumber("Right Intake Velocity", 0.1, 1);
+	private final StringKey stateKey = DashboardPublisher.addString("Intake State");
+	private final BooleanKey hasCubeKey = DashboardPublisher.addBoolean("Has Cube?");
+	
 	boolean autoliftEnabled = true;
 	
 	//Used to delay lifting
@@ -114,9 +127,9 @@ public class Intake {
 		velocity *= MAX_INTAKE_VELOCITY;
 		leftTalon.talon.set(ControlMode.Velocity, velocity);
 		rightTalon.talon.set(ControlMode.Velocity, -velocity);
-		SmartDashboard.putNumber("Intake Target Velocity", velocity);
-		SmartDashboard.putNumber("Left Intake Velocity Error", velocity - leftTalon.talon.getSelectedSensorVelocity(0));
-		SmartDashboard.putNumber("Right Intake Velocity Error", velocity - rightTalon.talon.getSelectedSensorVelocity(0));
+		targetVelocityKey.set(velocity);
+		leftVelocityErrorKey.set(velocity - leftTalon.talon.getSelectedSensorVelocity(0));
+		rightVelocityErrorKey.set(velocity - rightTalon.talon.getSelectedSensorVelocity(0));
 	}
 	
 	public void periodic(double deltaTime) {
@@ -196,11 +209,11 @@ public class Intake {
 			time = 0;
 			break;
 		}
-		SmartDashboard.putString("Intake State", currentState.toString());
-		SmartDashboard.putBoolean("Has Cube?", hasCube());
-		SmartDashboard.putNumber("Intake Time", time);
-		SmartDashboard.putNumber("Left Intake Velocity", leftTalon.talon.getSelectedSensorVelocity(0));
-		SmartDashboard.putNumber("Right Intake Velocity", rightTalon.talon.getSelectedSensorVelocity(0));
+		stateKey.set(currentState.name());
+		hasCubeKey.set(hasCube());
+		timeKey.set(time);
+		leftVelocityKey.set(leftTalon.talon.getSelectedSensorVelocity(0));
+		rightVelocityKey.set(rightTalon.talon.getSelectedSensorVelocity(0));
 	}
 
 	
@@ -209,7 +222,7 @@ public class Intake {
 	}
 
 	public void setState(State newState) {
-		Logging.h("Switching Intake from " + currentState.toString() + " to " + newState.toString());
+		Logging.h(() -> "Switching Intake from " + currentState.toString() + " to " + newState.toString());
 		currentState = newState;
 		time = 0;
 	}
@@ -5,7 +5,12 @@ import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 
 import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import utilities.DashboardPublisher;
+import utilities.DashboardPublisher.BooleanKey;
+import utilities.DashboardPublisher.NumberKey;
+import utilities.DashboardPublisher.StringKey;
 import utilities.Logging;
+import utilities.Snapshot;
 
 /**
  * Class for the lift mechanism.
@@ -103,26 +108,64 @@ public class Lift {
 		}
 	}
 
+	private static final Positions[] POSITIONS = Positions.values();
+
 	/**
 	 * The current position of the stuff
 	 */
-	public Positions currentPos = Positions.STARTING;
+	public volatile Positions currentPos = Positions.STARTING;
 
-	private boolean resettingDown = false;
+	/**
+	 * What the lift was last asked to do, written by the robot thread and read
+	 * by the control loop, which is the only thread that sets the lift's
+	 * Talons. Holds the mode, the target position, and the powers to drive at
+	 * without feedback.
+	 */
+	private final Snapshot request = new Snapshot(REQUEST_SIZE);
+	private static final int MODE = 0, TARGET = 1, LIFT_POWER = 2, FLIP_POWER = 3, REQUEST_SIZE = 4;
+	/**
+	 * The modes of the request: track the target with motion magic, drive at the
+	 * requested powers, or drive down slowly to zero the pot.
+	 */
+	private static final int TRACKING = 0, MANUAL = 1, RESETTING_DOWN = 2;
+	/**
+	 * The mode of the last request, so the robot thread doesn't have to read it
+	 * back.
+	 */
+	private volatile int requestedMode = TRACKING;
+	/**
+	 * The request the control loop is running, read from the snapshot each loop.
+	 */
+	private final double[] currentRequest = new double[REQUEST_SIZE];
+	/**
+	 * Set when the limit switch is hit while resetting down, so the control loop
+	 * zeroes the Talons' sensors.
+	 */
+	private volatile boolean errorResetRequested = false;
 	private boolean lastResettingDown = false;
 	/**
 	 * the motor which drives the lift
 	 */
 	private FeedbackLinkedCAN liftMotor;
 	private FeedbackTalon flipMotor;
+	
+	private final StringKey setpointKey = DashboardPublisher.addString("Lift setpoint name");
+	private final NumberKey liftPosKey = DashboardPublisher.addNumber("lift encoder pos", 0.1, 1),
+			liftErrorKey = DashboardPublisher.addNumber("lift closed loop error", 0.1, 1),
+			flipPosKey = DashboardPublisher.addNumber("flip encoder pos", 0.1, 1),
+			flipErrorKey = DashboardPublisher.addNumber("flip closed loop error", 0.1, 1),
+			flipVoltageKey = DashboardPublisher.addNumber("flip talon output voltage", 0.1, 0.05),
+			liftVoltageKey = DashboardPublisher.addNumber("Lift motor output voltage", 0.1, 0.05);
+	private final BooleanKey limSwitchKey = DashboardPublisher.addBoolean("Lift lim switch"),
+			resettingDownKey = DashboardPublisher.addBoolean("Resetting Down");
 	private DigitalInput limitSwitch;
-	private boolean limSwitchVal = false;
+	private volatile boolean limSwitchVal = false;
 	private boolean lastSwitchVal = false;
 	/**
 	 * Whether the lift is active. If true, feedback loop is run, if false it's set
 	 * to 0 all the time.
 	 */
-	private boolean active = true;
+	private volatile boolean active = true;
 
 	/**
 	 * Stores the parameters for the lift talon
@@ -187,7 +230,8 @@ public class Lift {
 	}
 
 	/**
-	 * Drive the lift with no feedback control.
+	 * Drive the lift with no feedback control, until it's told to track a
+	 * position again.
 	 * 
 	 * @param liftPow
 	 *            the raw power to the lift
@@ -195,18 +239,18 @@ public class Lift {
 	 *            the raw power to the flipper
 	 */
 	public void driveNoFeedback(double liftPow, double flipPow) {
-		liftMotor.setPower(liftPow);
-		flipMotor.setPower(flipPow);
+		publishRequest(MANUAL, liftPow, flipPow);
 	}
 
 	/**
-	 * Drives the lift to the given position.
+	 * Drives the lift to the given position. The control loop sets the
+	 * setpoints on its next run.
 	 * 
 	 * @param position
 	 *            The position to go to.
 	 */
 	public void trackToPos(Positions position) {
-		Logging.h("Tracking to: " + position.toString());
+		Logging.h(() -> "Tracking to: " + position.toString());
 		// The lift should only be able to go to l/h scale from starting, otherwise go
 		// to starting flip position.
 		if (currentPos == Positions.STARTING && position.liftPos > Positions.STARTING.liftPos) {
@@ -214,21 +258,27 @@ public class Lift {
 		} else {
 			currentPos = position;
 		}
-		// Set the setpoint of the lift motor
-		liftMotor.feedbackTalon.setSetpoint(currentPos.liftPos);
-
-		// The flip motor can't be up higher than ground_tilt if the lift is too low.
-		// Mostly a sanity check for invalid setpoints to avoid damage.
-		if (liftMotor.feedbackTalon.getRawPosition() < FLIP_MIN_POS
-				|| currentPos.flipPos >= Positions.GROUND_TILT.flipPos) {
-			flipMotor.setSetpoint(currentPos.flipPos);
-		} else {
-			flipMotor.setSetpoint(Positions.GROUND.flipPos);
-		}
+		publishRequest(TRACKING, 0, 0);
+	}
+
+	/**
+	 * hands a new request to the control loop. Only called from the robot
+	 * thread, since the snapshot can only have one writer.
+	 */
+	private void publishRequest(int mode, double liftPow, double flipPow) {
+		requestedMode = mode;
+		request.beginWrite();
+		request.set(MODE, mode);
+		request.set(TARGET, currentPos.ordinal());
+		request.set(LIFT_POWER, liftPow);
+		request.set(FLIP_POWER, flipPow);
+		request.endWrite();
 	}
 
 	/**
-	 * Runs the closed loop motion magic controller thingy on the lift
+	 * Runs the closed loop motion magic controller thingy on the lift. This is
+	 * the only place the lift's outputs are set, so requests from the robot
+	 * thread can't be overridden halfway through a loop.
 	 */
 	public void periodic() {
 		// Set lastSwitchVal to do edge detection and update switch value
@@ -245,6 +295,14 @@ public class Lift {
 		 * Logging.h("Switched resettingDown to " + resettingDown); }
 		 */
 
+		request.read(currentRequest);
+		int mode = (int) currentRequest[MODE];
+		boolean resettingDown = mode == RESETTING_DOWN;
+		if (errorResetRequested) {
+			errorResetRequested = false;
+			resetError();
+		}
+
 		// Run if the resetDown function is called. Shouldn't be needed with a string
 		// pot.
 		if (resettingDown) {
@@ -252,11 +310,16 @@ public class Lift {
 				Logging.h("Lift is no longer active.");
 			}
 			liftMotor.setPower(-DOWN_SLOW_SPEED);
+		} else if (mode == MANUAL) {
+			liftMotor.setPower(currentRequest[LIFT_POWER]);
+			flipMotor.setPower(currentRequest[FLIP_POWER]);
 		} else if (active) {
+			Positions target = POSITIONS[(int) currentRequest[TARGET]];
+			liftMotor.feedbackTalon.setSetpoint(target.liftPos);
 			// Starting pos is a special case, since it's right at the minimum flip
 			// position.
-			if (currentPos == Positions.STARTING) {
-				flipMotor.setSetpoint(currentPos.flipPos);
+			if (target == Positions.STARTING) {
+				flipMotor.setSetpoint(target.flipPos);
 			} else {
 				if (lastResettingDown != resettingDown) {
 					Logging.h("Lift is active again.");
@@ -265,8 +328,8 @@ public class Lift {
 				// Ensure that the flipper won't flip until it's above the top of the first
 				// stage.
 				if (liftMotor.feedbackTalon.getRawPosition() < FLIP_MIN_POS
-						|| currentPos.flipPos >= Positions.GROUND_TILT.flipPos) {
-					flipMotor.setSetpoint(currentPos.flipPos);
+						|| target.flipPos >= Positions.GROUND_TILT.flipPos) {
+					flipMotor.setSetpoint(target.flipPos);
 				} else {
 					flipMotor.setSetpoint(Positions.GROUND.flipPos);
 				}
@@ -285,23 +348,24 @@ public class Lift {
 	 */
 	public void limSwitchPressed() {
 		// Special case if reset down thing is used.
-		if (resettingDown) {
+		if (requestedMode == RESETTING_DOWN) {
 			stopResettingDown();
-			resetError();
+			errorResetRequested = true;
 			Logging.h("Manual Down Hit Switch");
-			Logging.h("Current Target: " + currentPos.toString());
+			Logging.h(() -> "Current Target: " + currentPos.toString());
 		}
 		// If resetDown isn't used, only zero for ground position.
 		if (currentPos == Positions.GROUND) {
-			resetError();
+			errorResetRequested = true;
 		}
 		// Go to ground position.
 		trackToPos(Positions.GROUND);
-		Logging.h("Current Target: still " + currentPos.toString());
+		Logging.h(() -> "Current Target: still " + currentPos.toString());
 	}
 	
 	/**
-	 * Sets the sensor position for the talons to make the closed loop error 0
+	 * Sets the sensor position for the talons to make the closed loop error 0.
+	 * Run by the control loop when limSwitchPressed asks for it.
 	 */
 	private void resetError() {
 		//Set sensor postion
@@ -320,7 +384,7 @@ public class Lift {
 	 */
 	public void resetDown() {
 		if (currentPos != Positions.H_SCALE && currentPos != Positions.L_SCALE && currentPos != Positions.STARTING && currentPos != Positions.GROUND_TILT) {
-			resettingDown = true;
+			publishRequest(RESETTING_DOWN, 0, 0);
 		}
 	}
 	
@@ -328,7 +392,9 @@ public class Lift {
 	 * Stops moving the lift downards to reset error.
 	 */
 	public void stopResettingDown() {
-		resettingDown = false;
+		if (requestedMode == RESETTING_DOWN) {
+			publishRequest(TRACKING, 0, 0);
+		}
 	}
 
 	/**
@@ -345,15 +411,15 @@ public class Lift {
 	 * dashboard.position
 	 */
 	public void logToDashboard() {
-		SmartDashboard.putString("Lift setpoint name", currentPos.name());
-		SmartDashboard.putNumber("lift encoder pos", liftMotor.feedbackTalon.getRawPosition());
-		SmartDashboard.putNumber("lift closed loop error", liftMotor.feedbackTalon.getRawCLError());
-		SmartDashboard.putNumber("flip encoder pos", flipMotor.getRawPosition());
-		SmartDashboard.putNumber("flip closed loop error", flipMotor.getRawCLError());
-		SmartDashboard.putNumber("flip talon output voltage", flipMotor.talon.getMotorOutputVoltage());
-		SmartDashboard.putNumber("Lift motor output voltage", liftMotor.feedbackTalon.talon.getMotorOutputVoltage());
-		SmartDashboard.putBoolean("Lift lim switch", limSwitchVal);
-		SmartDashboard.putBoolean("Resetting Down", resettingDown);
+		setpointKey.set(currentPos.name());
+		liftPosKey.set(liftMotor.feedbackTalon.getRawPosition());
+		liftErrorKey.set(liftMotor.feedbackTalon.getRawCLError());
+		flipPosKey.set(flipMotor.getRawPosition());
+		flipErrorKey.set(flipMotor.getRawCLError());
+		flipVoltageKey.set(flipMotor.talon.getMotorOutputVoltage());
+		liftVoltageKey.set(liftMotor.feedbackTalon.talon.getMotorOutputVoltage());
+		limSwitchKey.set(limSwitchVal);
+		resettingDownKey.set(requestedMode == RESETTING_DOWN);
 	}
 
 	/**
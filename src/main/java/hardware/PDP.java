@@ -1,23 +1,33 @@
 package hardware;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintStream;
 import edu.wpi.first.wpilibj.PowerDistributionPanel;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import utilities.DashboardPublisher;
+import utilities.DashboardPublisher.NumberKey;
 import utilities.Logging;
+import utilities.TelemetryLog;
 import edu.wpi.first.wpilibj.DriverStation;
 
 public class PDP extends PowerDistributionPanel
 {
-	private PrintStream logStream;
+	private TelemetryLog log;
 	
-	private static final int PORTS = 16;
+	private static final int PORTS = TelemetryLog.CHANNELS;
 	private static String DIR = "/home/lvuser/current_log/";
 	private static final double LOG_FREQUENCY = 0.1;
-	private static final int PERCISION = 2;
-	private double time = 0;
+	private volatile double time = 0;
 	private double lastTime = -LOG_FREQUENCY;
+	/**
+	 * Set by forceLogCurrent so the next logCurrent logs no matter what
+	 */
+	private volatile boolean forceLog = false;
+	/**
+	 * reused for every record so logging doesn't create garbage
+	 */
+	private final double[] currents = new double[PORTS];
 	private DriverStation DS;
+	private final NumberKey logTimeKey = DashboardPublisher.addNumber("PDP Log time", 0.5, 0);
 	
 	/**
 	 * Create the pdp object
@@ -28,7 +38,7 @@ public class PDP extends PowerDistributionPanel
 		DS = DriverStation.getInstance();
 		if(DS.isFMSAttached()) {
 			DIR += DS.getEventName().replace(' ', '_').replace('/','-') + "/" + DS.getMatchType().toString() + "/";
-			logName = DS.getMatchType().toString().charAt(0) + DS.getMatchNumber() + ".csv";
+			logName = DS.getMatchType().toString().charAt(0) + DS.getMatchNumber() + ".bin";
 		} else { 
 		}
 		
@@ -39,24 +49,15 @@ public class PDP extends PowerDistributionPanel
 		if(files != null) {
 			if(logName == null) {
 				for(String filename : files) {
-					if(filename.contains(".csv")) {
+					if(filename.contains(".bin")) {
 						count ++;
 					}
 				}
-				logName = DIR + "log" + count + ".csv";
+				logName = DIR + "log" + count + ".bin";
 			}
 			SmartDashboard.putString("logName", logName);
 			try {
-				File logFile = new File(logName);
-				logFile.createNewFile();
-				logStream = new PrintStream(logName);
-				String outputString = "Time,\tVoltage,\tTemperature,\t";
-				for(int i = 0; i<PORTS; i++) {
-					outputString += "Port " + i + " Current,\t";
-				}
-				outputString += "Mode";
-				logStream.println(outputString);
-				logStream.flush();
+				log = new TelemetryLog(logName);
 			} catch (IOException e) { 
 				Logging.h("Could not create new current log \"" + logName + "\"");
 			}
@@ -68,39 +69,46 @@ public class PDP extends PowerDistributionPanel
 	
 	public void periodic(double deltaTime) {
 		time += deltaTime;
-		SmartDashboard.putNumber("PDP Log time", time);
+		logTimeKey.set(time);
 	}
 	
-	private String getMode() {
-		String mode;
+	private int getMode() {
+		int mode;
 		if(DS.isAutonomous()) {
-			mode = "Auton";
+			mode = TelemetryLog.MODE_AUTON;
 		} else if(DS.isEnabled()) {
-			mode = "Teleop";
+			mode = TelemetryLog.MODE_TELEOP;
 		} else {
-			mode = "Disabled";
+			mode = TelemetryLog.MODE_DISABLED;
 		}
 		return mode;
 	}
 	
+	/**
+	 * makes the next call of logCurrent log, even if the robot is disabled.
+	 */
 	public void forceLogCurrent() {
-		SmartDashboard.putBoolean("LogStream", (logStream != null));
-		if(logStream != null) {
-			String outputString = String.format("%." + PERCISION + "f", time) + ",\t" + String.format("%.2f", this.getVoltage()) + ",\t" + String.format("%.2f", this.getTemperature()) + ",\t";
-			for(int i = 0; i<PORTS; i++) {
-				outputString += String.format("%." + PERCISION + "f", this.getCurrent(i)) + ",\t";
-			}
-			outputString += getMode();
-			SmartDashboard.putString("PDP Data", outputString);
-			logStream.println(outputString);
-			logStream.flush();
-			lastTime = time;
-		}
+		forceLog = true;
 	}
 	
+	/**
+	 * logs the currents every LOG_FREQUENCY while the robot is enabled, and once
+	 * after forceLogCurrent. Only adds a record to the log's ring buffer, the file
+	 * is written by the log's own thread. Should always be called from the same
+	 * thread.
+	 */
 	public void logCurrent() {
-		if(time >= lastTime + LOG_FREQUENCY) {
-			forceLogCurrent();
+		boolean forced = forceLog;
+		if(forced || (DS.isEnabled() && time >= lastTime + LOG_FREQUENCY)) {
+			forceLog = false;
+			SmartDashboard.putBoolean("LogStream", (log != null));
+			if(log != null) {
+				for(int i = 0; i<PORTS; i++) {
+					currents[i] = this.getCurrent(i);
+				}
+				log.append(time, this.getVoltage(), this.getTemperature(), currents, getMode());
+				lastTime = time;
+			}
 		}
 	}
 }
\ No newline at end of file
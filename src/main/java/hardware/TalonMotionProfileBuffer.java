@@ -0,0 +1,128 @@
+package hardware;
+
+import com.ctre.phoenix.motion.MotionProfileStatus;
+import com.ctre.phoenix.motion.TrajectoryPoint;
+import com.ctre.phoenix.motion.TrajectoryPoint.TrajectoryDuration;
+import com.ctre.phoenix.motorcontrol.can.TalonSRX;
+
+import hardware.interfaces.MotionProfileBuffer;
+import utilities.Utilities;
+
+/**
+ * The motion profile buffer of a Talon SRX. Converts points from meters to
+ * encoder ticks (and ticks per 100ms) in the Talon's sensor direction, offset
+ * by where the profile started.
+ *
+ * @author jack
+ *
+ */
+public class TalonMotionProfileBuffer implements MotionProfileBuffer, Utilities.Conversions {
+	/**
+	 * The profile slot the Talon uses for motion profiles. Slot 0 is used for
+	 * motion magic.
+	 */
+	public static final int PROFILE_SLOT = 1;
+
+	private final TalonSRX talon;
+	private final MotionProfileStatus status = new MotionProfileStatus();
+	/**
+	 * reused for every point so pushing doesn't create garbage.
+	 */
+	private final TrajectoryPoint point = new TrajectoryPoint();
+	/**
+	 * -1 to flip positions into the Talon's sensor direction, otherwise 1
+	 */
+	private double sign = 1;
+	/**
+	 * the Talon sensor position the profile starts at, in ticks
+	 */
+	private double offset = 0;
+
+	/**
+	 *
+	 * @param talonSRX
+	 *            the talon to buffer points on
+	 */
+	public TalonMotionProfileBuffer(TalonSRX talonSRX) {
+		talon = talonSRX;
+		point.profileSlotSelect0 = PROFILE_SLOT;
+		point.profileSlotSelect1 = 0;
+		point.headingDeg = 0;
+	}
+
+	/**
+	 * sets where the profile starts and which way is positive
+	 *
+	 * @param startTicks
+	 *            the Talon's sensor position at the start of the profile
+	 * @param reversed
+	 *            whether positive positions are negative on the Talon's sensor
+	 */
+	public void setStart(double startTicks, boolean reversed) {
+		offset = startTicks;
+		sign = reversed ? -1 : 1;
+	}
+
+	@Override
+	public boolean supportsDuration(int durationMs) {
+		return getDuration(durationMs) != null;
+	}
+
+	private static TrajectoryDuration getDuration(int durationMs) {
+		for (TrajectoryDuration d : TrajectoryDuration.values()) {
+			if (d.value == durationMs && durationMs > 0) {
+				return d;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized int getFreeSpace() {
+		talon.getMotionProfileStatus(status);
+		return status.topBufferRem;
+	}
+
+	@Override
+	public synchronized void push(double position, double velocity, int durationMs, boolean isLast) {
+		point.position = offset + sign * Distance.M.convert(position, Distance.ENCODER_TICK);
+		// the talon wants velocity in ticks per 100ms
+		point.velocity = sign * Velocity.M_S.convert(velocity, Velocity.ENCODER_TPS) / 10;
+		point.timeDur = getDuration(durationMs);
+		point.zeroPos = false;
+		point.isLastPoint = isLast;
+		talon.pushMotionProfileTrajectory(point);
+	}
+
+	@Override
+	public void process() {
+		talon.processMotionProfileBuffer();
+	}
+
+	@Override
+	public synchronized boolean isFinished() {
+		talon.getMotionProfileStatus(status);
+		return status.activePointValid && status.isLast;
+	}
+
+	@Override
+	public synchronized boolean hasUnderrun() {
+		talon.getMotionProfileStatus(status);
+		return status.hasUnderrun;
+	}
+
+	/**
+	 *
+	 * @return the number of points in the Talon's buffer, ready to run
+	 */
+	public synchronized int getReadyCount() {
+		talon.getMotionProfileStatus(status);
+		return status.btmBufferCnt;
+	}
+
+	@Override
+	public synchronized void clear() {
+		talon.clearMotionProfileTrajectories();
+		talon.clearMotionProfileHasUnderrun(0);
+	}
+}
@@ -11,7 +11,7 @@ import java.util.ArrayList;
  */
 
 public abstract class DriveBase {
-	protected boolean isFeedbackActive = false;
+	protected volatile boolean isFeedbackActive = false;
 	// these two should be mutually exclusive.
 	private ArrayList<MotorController> controllers;
 	private ArrayList<FeedbackMotorController> feedbackControllers;
@@ -0,0 +1,65 @@
+package hardware.interfaces;
+
+/**
+ * Abstract interface for a motor controller's motion profile buffer, which runs
+ * the points of a profile on its own once they are pushed to it. Positions and
+ * velocities are in meters and meters per second, relative to where the
+ * profile was started.
+ *
+ * @author jack
+ *
+ */
+public interface MotionProfileBuffer {
+	/**
+	 * checks if the buffer can run points of the given duration
+	 *
+	 * @param durationMs
+	 *            the time of each point in milliseconds
+	 * @return whether points of that duration are supported
+	 */
+	boolean supportsDuration(int durationMs);
+
+	/**
+	 *
+	 * @return how many more points can be pushed right now
+	 */
+	int getFreeSpace();
+
+	/**
+	 * adds a point to the end of the buffer
+	 *
+	 * @param position
+	 *            the target position
+	 * @param velocity
+	 *            the target velocity
+	 * @param durationMs
+	 *            how long the point should be run for in milliseconds
+	 * @param isLast
+	 *            whether this is the last point of the profile
+	 */
+	void push(double position, double velocity, int durationMs, boolean isLast);
+
+	/**
+	 * moves pushed points into the motor controller. Has to be called more often
+	 * than points are used up.
+	 */
+	void process();
+
+	/**
+	 *
+	 * @return whether the last point has been reached
+	 */
+	boolean isFinished();
+
+	/**
+	 *
+	 * @return whether the buffer ran out of points before the last one since it
+	 *         was cleared
+	 */
+	boolean hasUnderrun();
+
+	/**
+	 * removes all the points from the buffer
+	 */
+	void clear();
+}
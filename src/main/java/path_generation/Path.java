@@ -1,9 +1,11 @@
 package path_generation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import hardware.DriveBase2018;
 import utilities.Logging;
+import utilities.Utilities;
 
 /**
  * A path of waypoints with times, velocities, and positions.
@@ -17,11 +19,102 @@ public class Path {
     public static final int defaultPoints = 100;
     public static final VelocityMode defaultVelocityMode = VelocityMode.TRAPAZOIDAL;
     public static final SplineMode defaultSplineMode = SplineMode.QUINTIC_HERMITE;
+    /**
+     * The default distance (m) a sampled path is allowed to be from the spline.
+     * 0 or less samples defaultPoints evenly spaced points per curve instead.
+     */
+    public static final double defaultPositionTolerance = 0.002;
+    /**
+     * The default amount (radians) the heading is allowed to change between two
+     * points of a sampled path.
+     */
+    public static final double defaultHeadingTolerance = 0.05;
+    /**
+     * The farthest apart (m) two sampled points can be, even on a straight line,
+     * so the velocity profile still has enough points to ramp up and down.
+     */
+    public static final double maxPointSpacing = 0.25;
+    /**
+     * The most sideways acceleration (m/s^2) TIME_OPTIMAL paths allow in turns,
+     * so cubes don't slide off and the wheels don't slip.
+     */
+    public static final double maxCentripetalAccel = 3;
+    /**
+     * The max jerk (m/s^3) of S_CURVE paths.
+     */
+    public static final double maxJerk = 20;
+    /**
+     * The most time (s) between two points of an S_CURVE path. Points are added
+     * along the curve where they are farther apart, so the wheel profiles can
+     * follow the changing acceleration.
+     */
+    public static final double maxTimeSpacing = 0.01;
+    /**
+     * How many times a curve can be split in half when sampling it.
+     */
+    private static final int maxSubdivisions = 16;
 
     /**
-     * a path consists of a list of waypoints.
+     * The x coordinate of each point on the path.
+     */
+    private double[] x;
+    /**
+     * The y coordinate of each point on the path.
+     */
+    private double[] y;
+    /**
+     * The heading of each point (angle in radians from the positive X axis).
+     */
+    private double[] heading;
+    /**
+     * The curvature at each point (1 / turning radius in m, positive when
+     * turning left).
+     */
+    private double[] curvature;
+    /**
+     * The distance of each point along the path.
+     */
+    private double[] distance;
+    /**
+     * The velocity of each point.
+     */
+    private double[] velocity;
+    /**
+     * The time at which each point should be reached.
+     */
+    private double[] time;
+    /**
+     * The acceleration at each point.
+     */
+    private double[] acceleration;
+    /**
+     * The jerk (change in acceleration per second) at each point.
+     */
+    private double[] jerk;
+    /**
+     * The index of the last point of each spline segment.
+     */
+    private int[] segmentEnd = new int[0];
+    /**
+     * The number of points stored in the arrays.
+     */
+    private int length = 0;
+    /**
+     * The points as Waypoint objects. Only built if something asks for them.
+     */
+    private ArrayList<Waypoint> waypoints;
+    /**
+     * Whether this path is a transformed view of another path's points. The
+     * stored points are mirrored across the X axis if viewMirrored is true, then
+     * rotated by viewRotation about the origin and moved by (viewX, viewY).
      */
-    public ArrayList<Waypoint> waypoints;
+    private boolean isView = false;
+    private boolean viewMirrored = false;
+    private double viewX = 0;
+    private double viewY = 0;
+    private double viewRotation = 0;
+    private double viewCos = 1;
+    private double viewSin = 0;
     /**
      * The time at which the robot should be at the endpoint of the path
      */
@@ -32,12 +125,15 @@ public class Path {
     public double endPos;
 
     /**
-     * the different velocity profile modes.
+     * the different velocity profile modes. TIME_OPTIMAL is the fastest profile
+     * that keeps both wheels within the max velocity and acceleration and the
+     * robot within maxCentripetalAccel. S_CURVE also limits the jerk to maxJerk,
+     * so the acceleration changes smoothly.
      *
      * @author jack
      */
     public enum VelocityMode {
-        TRIANGULAR, TRAPAZOIDAL, CONSTANT,
+        TRIANGULAR, TRAPAZOIDAL, CONSTANT, TIME_OPTIMAL, S_CURVE,
     }
 
     /**
@@ -69,12 +165,7 @@ public class Path {
      * @param points         the waypoints to make a path between
      */
     public Path(double velocity, double accel, VelocityMode velMode, Waypoint... points) {
-        waypoints = new ArrayList<Waypoint>();
-        genChainPath(defaultSplineMode, 0.8, points);
-        alignWaypoints();
-        getPositions();
-        getVelocities(velocity, accel, velMode);
-        getTimes();
+        this(velocity, accel, velMode, defaultSplineMode, points);
     }
 
     /**
@@ -86,12 +177,68 @@ public class Path {
      * @param points         the waypoints to make a path between
      */
     public Path(double velocity, double accel, VelocityMode velMode, SplineMode splineMode, Waypoint... points) {
-        waypoints = new ArrayList<Waypoint>();
-        genChainPath(splineMode, 0.8, points);
-        alignWaypoints();
-        getPositions();
-        getVelocities(velocity, accel, velMode);
-        getTimes();
+        this(velocity, accel, velMode, splineMode, defaultPositionTolerance, defaultHeadingTolerance, points);
+    }
+
+    /**
+     * creates a longer path between multiple points, sampled to the given
+     * tolerances. Points are placed by distance along the curve, so tight curves
+     * get more of them and straight lines get fewer.
+     *
+     * @param velocity          the max velocity
+     * @param accel             the max acceleration
+     * @param velMode           the velocity profile mode
+     * @param splineMode        the type of spline
+     * @param positionTolerance how far (m) the path can be from the spline, 0 or
+     *                          less for defaultPoints evenly spaced points per curve
+     * @param headingTolerance  how much (radians) the heading can change between
+     *                          two points
+     * @param points            the waypoints to make a path between
+     */
+    public Path(double velocity, double accel, VelocityMode velMode, SplineMode splineMode,
+            double positionTolerance, double headingTolerance, Waypoint... points) {
+        SplineSegment[] segments = getSegments(splineMode, 0.8, points);
+        if (positionTolerance > 0) {
+            genAdaptivePath(segments, positionTolerance, headingTolerance);
+        } else {
+            genUniformPath(segments, defaultPoints);
+            getPositions();
+        }
+        planVelocities(velocity, accel, velMode);
+    }
+
+    /**
+     * creates an empty path that segments are added to one at a time, by
+     * PathStream.
+     */
+    Path() {
+        allocate(16);
+    }
+
+    /**
+     * creates a view of another path's points with a different transform
+     */
+    private Path(Path source, double dx, double dy, double rotation, boolean mirrored) {
+        x = source.x;
+        y = source.y;
+        heading = source.heading;
+        curvature = source.curvature;
+        distance = source.distance;
+        velocity = source.velocity;
+        time = source.time;
+        acceleration = source.acceleration;
+        jerk = source.jerk;
+        segmentEnd = source.segmentEnd;
+        length = source.length;
+        endTime = source.endTime;
+        endPos = source.endPos;
+        isView = true;
+        viewMirrored = mirrored;
+        viewX = dx;
+        viewY = dy;
+        viewRotation = rotation;
+        viewCos = Math.cos(rotation);
+        viewSin = Math.sin(rotation);
     }
 
     /**
@@ -114,12 +261,260 @@ public class Path {
      * @param mode           the velocity profile mode
      */
     public Path(Waypoint start, Waypoint end, double velocity, double accel, VelocityMode mode) {
-        waypoints = new ArrayList<Waypoint>();
-        genPath(start, end, defaultSplineMode, 1);
-        alignWaypoints();
-        getPositions();
-        getVelocities(velocity, accel, mode);
-        getTimes();
+        genAdaptivePath(getSegments(start, end, defaultSplineMode, 1), defaultPositionTolerance,
+                defaultHeadingTolerance);
+        planVelocities(velocity, accel, mode);
+    }
+
+
+    /**
+     * @return the number of points in the path
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * @param i the index of the point
+     * @return the x coordinate of the point
+     */
+    public double getX(int i) {
+        if (!isView) {
+            return x[i];
+        }
+        double py = viewMirrored ? -y[i] : y[i];
+        return viewX + viewCos * x[i] - viewSin * py;
+    }
+
+    /**
+     * @param i the index of the point
+     * @return the y coordinate of the point
+     */
+    public double getY(int i) {
+        if (!isView) {
+            return y[i];
+        }
+        double py = viewMirrored ? -y[i] : y[i];
+        return viewY + viewSin * x[i] + viewCos * py;
+    }
+
+    /**
+     * @param i the index of the point
+     * @return the heading of the point in radians
+     */
+    public double getHeading(int i) {
+        if (!isView) {
+            return heading[i];
+        }
+        return angleBetween(0, viewRotation + (viewMirrored ? -heading[i] : heading[i]));
+    }
+
+    /**
+     * @param i the index of the point
+     * @return the curvature at the point (1 / turning radius, positive when
+     * turning left)
+     */
+    public double getCurvature(int i) {
+        return viewMirrored ? -curvature[i] : curvature[i];
+    }
+
+    /**
+     * @param i the index of the point
+     * @return the distance of the point along the path
+     */
+    public double getDistance(int i) {
+        return distance[i];
+    }
+
+    /**
+     * @param i the index of the point
+     * @return the velocity at the point
+     */
+    public double getVelocity(int i) {
+        return velocity[i];
+    }
+
+    /**
+     * @param i the index of the point
+     * @return the time at which the point should be reached
+     */
+    public double getTime(int i) {
+        return time[i];
+    }
+
+    /**
+     * @param i the index of the point
+     * @return the acceleration at the point
+     */
+    public double getAcceleration(int i) {
+        return acceleration[i];
+    }
+
+    /**
+     * @param i the index of the point
+     * @return the jerk at the point
+     */
+    public double getJerk(int i) {
+        return jerk[i];
+    }
+
+    /**
+     * @param waypoint the index of the waypoint the path was made from
+     * @return the time at which the waypoint should be reached
+     */
+    public double getWaypointTime(int waypoint) {
+        // each spline segment ends at the next waypoint
+        return waypoint == 0 ? time[0] : time[segmentEnd[waypoint - 1]];
+    }
+
+    /**
+     * Finds when the robot gets a distance along the path. The acceleration is
+     * taken to be constant between points.
+     *
+     * @param d the distance along the path
+     * @return the time at which the distance should be reached, clamped to the
+     *         start and end of the path
+     */
+    public double getTimeAtDistance(double d) {
+        if (d <= distance[0]) {
+            return time[0];
+        } else if (d >= distance[length - 1]) {
+            return time[length - 1];
+        }
+        // binary search for the first point at or past the distance
+        int low = 1;
+        int high = length - 1;
+        while (low < high) {
+            int mid = (low + high) / 2;
+            if (distance[mid] >= d) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        double dt = time[low] - time[low - 1];
+        double spacing = distance[low] - distance[low - 1];
+        if (spacing <= 0) {
+            return time[low];
+        }
+        double v0 = velocity[low - 1];
+        double v1 = velocity[low];
+        double s = d - distance[low - 1];
+        if (v0 + v1 <= 0) {
+            return time[low - 1] + dt * s / spacing;
+        }
+        // solve s = v0 t + a t^2 / 2 with a = (v1 - v0) / dt
+        double a = (v1 - v0) / dt;
+        double t = Math.abs(a) < 1e-9 ? s / v0 : (Math.sqrt(Math.max(0, v0 * v0 + 2 * a * s)) - v0) / a;
+        return time[low - 1] + Math.max(0, Math.min(dt, t));
+    }
+
+    /**
+     * Makes a view of the path that is mirrored across the X axis if mirrored is
+     * true, then rotated about the origin and moved. Moving, turning and
+     * mirroring a path doesn't change its distances, velocities or times, so
+     * nothing is generated again and the view shares this path's points. Views of
+     * a path that is still being added to don't see the new points.
+     *
+     * @param dx       how far to move the path in X
+     * @param dy       how far to move the path in Y
+     * @param rotation how far to turn the path (radians, counterclockwise)
+     * @param mirrored whether to mirror the path across the X axis before turning
+     *                 and moving it
+     * @return the view
+     */
+    public Path transformed(double dx, double dy, double rotation, boolean mirrored) {
+        // mirroring flips the direction this path's own rotation and offset turn
+        double innerRotation = mirrored ? -viewRotation : viewRotation;
+        double innerY = mirrored ? -viewY : viewY;
+        double cos = Math.cos(rotation);
+        double sin = Math.sin(rotation);
+        return new Path(this, dx + cos * viewX - sin * innerY, dy + sin * viewX + cos * innerY,
+                rotation + innerRotation, viewMirrored != mirrored);
+    }
+
+    /**
+     * @return a view of the path mirrored across the X axis, for autons that
+     *         start on the other side of the field
+     */
+    public Path mirrored() {
+        return transformed(0, 0, 0, true);
+    }
+
+    /**
+     * Returns the points of the path as Waypoint objects. The list is built the
+     * first time this is called, so code that only needs the numbers should use
+     * the getters above instead.
+     *
+     * @return the list of waypoints
+     */
+    public ArrayList<Waypoint> getWaypoints() {
+        if (waypoints == null) {
+            ArrayList<Waypoint> list = new ArrayList<Waypoint>(length);
+            for (int i = 0; i < length; i++) {
+                Waypoint wp = new Waypoint(new Point(getX(i), getY(i)), getHeading(i));
+                wp.distance = distance[i];
+                wp.velocity = velocity[i];
+                wp.time = time[i];
+                list.add(wp);
+            }
+            waypoints = list;
+        }
+        return waypoints;
+    }
+
+    /**
+     * creates the arrays for the given number of points.
+     *
+     * @param capacity the number of points the path will have
+     */
+    private void allocate(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        heading = new double[capacity];
+        curvature = new double[capacity];
+        distance = new double[capacity];
+        velocity = new double[capacity];
+        time = new double[capacity];
+        acceleration = new double[capacity];
+        jerk = new double[capacity];
+        length = 0;
+    }
+
+    /**
+     * adds a point to the end of the path.
+     *
+     * @param px       the x coordinate
+     * @param py       the y coordinate
+     * @param rotation the heading of the point
+     * @param pointCurvature the curvature at the point
+     */
+    private void addPoint(double px, double py, double rotation, double pointCurvature) {
+        if (length == x.length) {
+            grow();
+        }
+        x[length] = px;
+        y[length] = py;
+        heading[length] = rotation;
+        curvature[length] = pointCurvature;
+        length++;
+    }
+
+    /**
+     * doubles the size of the arrays, for paths that don't know how many points
+     * they will have.
+     */
+    private void grow() {
+        int capacity = Math.max(16, x.length * 2);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        heading = Arrays.copyOf(heading, capacity);
+        curvature = Arrays.copyOf(curvature, capacity);
+        distance = Arrays.copyOf(distance, capacity);
+        velocity = Arrays.copyOf(velocity, capacity);
+        time = Arrays.copyOf(time, capacity);
+        acceleration = Arrays.copyOf(acceleration, capacity);
+        jerk = Arrays.copyOf(jerk, capacity);
     }
 
     /**
@@ -128,20 +523,156 @@ public class Path {
     private void getPositions() {
         // stores the total distance
         double distanceAccumulator = 0;
-        // get the position of the first point, and set its distance to 0
-        Point lastPoint = waypoints.get(0).position;
-        waypoints.get(0).time = 0;
+        distance[0] = 0;
+        time[0] = 0;
         // loop through all other points
-        for (int i = 1; i < waypoints.size(); i++) {
-            Point wpPosition = waypoints.get(i).position;
-            double dist = lastPoint.distance(wpPosition);
-            lastPoint = wpPosition;
-            distanceAccumulator += dist;
-            waypoints.get(i).distance = distanceAccumulator;
+        for (int i = 1; i < length; i++) {
+            double dx = x[i] - x[i - 1];
+            double dy = y[i] - y[i - 1];
+            distanceAccumulator += Math.sqrt(dx * dx + dy * dy);
+            distance[i] = distanceAccumulator;
         }
         endPos = distanceAccumulator;
     }
 
+    /**
+     * Sets the velocities, times, accelerations and jerks of the path's points.
+     *
+     * @param vel   the maximum velocity to use
+     * @param accel the maximum acceleration to use
+     * @param mode  the velocity profile mode
+     */
+    private void planVelocities(double vel, double accel, VelocityMode mode) {
+        if (mode == VelocityMode.S_CURVE) {
+            getSCurve(vel, accel);
+        } else {
+            getVelocities(vel, accel, mode);
+            time[0] = 0;
+            getTimes(0);
+        }
+    }
+
+    /**
+     * Follows jerk limited S-curves along the path, which sets the velocity,
+     * time, acceleration and jerk of every point exactly instead of estimating
+     * them from the neighboring points. Each spline segment gets its own curve,
+     * with the velocity and acceleration limited for the tightest turn in the
+     * segment the same way TIME_OPTIMAL limits them at each point, so the
+     * outside wheel never goes over them. The velocities where segments meet are
+     * the slower of the two segments' limits, then lowered by a forward and a
+     * backward pass until each segment is long enough to change between them.
+     * Every curve starts and ends with no acceleration, so the acceleration stays
+     * continuous across segments. Points are added along the curves so they are
+     * never more than maxTimeSpacing apart, with headings that follow the
+     * curvature so the wheel velocities change smoothly between them.
+     *
+     * @param vel   the max wheel velocity
+     * @param accel the max wheel acceleration
+     */
+    private void getSCurve(double vel, double accel) {
+        int segments = segmentEnd.length;
+        double[] maxVel = new double[segments];
+        double[] maxAcc = new double[segments];
+        int first = 0;
+        for (int seg = 0; seg < segments; seg++) {
+            double maxCurvature = 0;
+            for (int i = first; i <= segmentEnd[seg]; i++) {
+                maxCurvature = Math.max(maxCurvature, Math.abs(curvature[i]));
+            }
+            double wheelRatio = 1 + maxCurvature * DriveBase2018.wheelDistance / 2;
+            maxVel[seg] = vel / wheelRatio;
+            if (maxCurvature > 0) {
+                maxVel[seg] = Math.min(maxVel[seg], Math.sqrt(maxCentripetalAccel / maxCurvature));
+            }
+            maxAcc[seg] = accel / wheelRatio;
+            first = segmentEnd[seg];
+        }
+
+        // the velocity at the start of each segment, plus the end of the path
+        double[] joinVel = new double[segments + 1];
+        for (int seg = 1; seg < segments; seg++) {
+            joinVel[seg] = Math.min(maxVel[seg - 1], maxVel[seg]);
+        }
+        for (int seg = 0; seg < segments; seg++) {
+            double reachable = SCurve.getReachableVelocity(joinVel[seg], getSegmentLength(distance, segmentEnd, seg),
+                    maxAcc[seg], maxJerk);
+            joinVel[seg + 1] = Math.min(joinVel[seg + 1], reachable);
+        }
+        for (int seg = segments - 1; seg >= 0; seg--) {
+            double reachable = SCurve.getReachableVelocity(joinVel[seg + 1],
+                    getSegmentLength(distance, segmentEnd, seg), maxAcc[seg], maxJerk);
+            joinVel[seg] = Math.min(joinVel[seg], reachable);
+        }
+
+        // the points are copied, since more are added between them
+        double[] pathX = Arrays.copyOf(x, length);
+        double[] pathY = Arrays.copyOf(y, length);
+        double[] pathHeading = Arrays.copyOf(heading, length);
+        double[] pathCurvature = Arrays.copyOf(curvature, length);
+        double[] pathDistance = Arrays.copyOf(distance, length);
+        int[] pathSegmentEnd = Arrays.copyOf(segmentEnd, segments);
+        length = 1;
+        velocity[0] = 0;
+        acceleration[0] = 0;
+        first = 0;
+        double startTime = 0;
+        for (int seg = 0; seg < segments; seg++) {
+            double startPos = pathDistance[first];
+            SCurve curve = new SCurve(getSegmentLength(pathDistance, pathSegmentEnd, seg), joinVel[seg],
+                    joinVel[seg + 1], maxVel[seg], maxAcc[seg], maxJerk);
+            if (seg == 0) {
+                jerk[0] = curve.getJerk(0);
+            }
+            int phase = 0;
+            double lastTime = 0;
+            for (int i = first + 1; i <= pathSegmentEnd[seg]; i++) {
+                double segmentDistance = pathDistance[i] - startPos;
+                double pointTime = i == pathSegmentEnd[seg] ? curve.getEndTime()
+                        : curve.getTime(segmentDistance, curve.getPhase(segmentDistance, 0));
+                double spacing = pathDistance[i] - pathDistance[i - 1];
+                int steps = (int) Math.ceil((pointTime - lastTime) / maxTimeSpacing - 1e-9);
+                for (int step = 1; step <= steps; step++) {
+                    double t = step == steps ? pointTime : lastTime + (pointTime - lastTime) * step / steps;
+                    phase = curve.getPhaseAtTime(t, phase);
+                    double pos = startPos + curve.getPositionAtTime(phase, t);
+                    // the points between two path points are on the line between them
+                    double alpha = step == steps || spacing <= 0 ? 1 : (pos - pathDistance[i - 1]) / spacing;
+                    alpha = Math.max(0, Math.min(1, alpha));
+                    // the heading follows the curvature, corrected so it ends at the next point's
+                    double curvatureTurn = spacing * alpha
+                            * (pathCurvature[i - 1] + (pathCurvature[i] - pathCurvature[i - 1]) * alpha / 2);
+                    double correction = angleBetween(pathHeading[i - 1], pathHeading[i])
+                            - spacing * (pathCurvature[i - 1] + pathCurvature[i]) / 2;
+                    double pointHeading = pathHeading[i - 1] + curvatureTurn + correction * alpha;
+                    addPoint(Utilities.lerp(pathX[i - 1], pathX[i], alpha),
+                            Utilities.lerp(pathY[i - 1], pathY[i], alpha), pointHeading,
+                            Utilities.lerp(pathCurvature[i - 1], pathCurvature[i], alpha));
+                    distance[length - 1] = step == steps ? pathDistance[i] : pos;
+                    time[length - 1] = startTime + t;
+                    velocity[length - 1] = curve.getVelocity(phase, t);
+                    acceleration[length - 1] = curve.getAccel(phase, t);
+                    jerk[length - 1] = curve.getJerk(phase);
+                }
+                lastTime = pointTime;
+            }
+            // the curve ends exactly at the join velocity with no acceleration
+            velocity[length - 1] = joinVel[seg + 1];
+            acceleration[length - 1] = 0;
+            segmentEnd[seg] = length - 1;
+            startTime += curve.getEndTime();
+            first = pathSegmentEnd[seg];
+        }
+        endTime = time[length - 1];
+    }
+
+    /**
+     * @return the distance along the path from the start to the end of a spline
+     *         segment
+     */
+    private static double getSegmentLength(double[] distance, int[] segmentEnd, int seg) {
+        return distance[segmentEnd[seg]] - (seg == 0 ? 0 : distance[segmentEnd[seg - 1]]);
+    }
+
     /**
      * Sets the velocities of the path's points
      *
@@ -152,59 +683,107 @@ public class Path {
     private void getVelocities(double vel, double accel, VelocityMode mode) {
         switch (mode) {
             case TRIANGULAR:
-                for (Waypoint wp : waypoints) {
-                    double distance = wp.distance;
-                    double accelVelocity = Math.sqrt(2 * distance * accel);
-                    double decelVelocity = Math.sqrt(2 * (endPos - distance) * accel);
-                    wp.velocity = Math.min(accelVelocity, decelVelocity);
+                for (int i = 0; i < length; i++) {
+                    double accelVelocity = Math.sqrt(2 * distance[i] * accel);
+                    double decelVelocity = Math.sqrt(2 * (endPos - distance[i]) * accel);
+                    velocity[i] = Math.min(accelVelocity, decelVelocity);
                 }
                 break;
             case CONSTANT:
-                for (Waypoint wp : waypoints) {
-                    wp.velocity = vel;
+                for (int i = 0; i < length; i++) {
+                    velocity[i] = vel;
                 }
                 break;
             case TRAPAZOIDAL:
-                waypoints.get(0).velocity = 0;
-                for (int i = 1; i < waypoints.size(); i++) {
-                    Waypoint wp = waypoints.get(i);
-                    // Distance of this WP along the path
-                    double distance = wp.distance;
-
+                velocity[0] = 0;
+                for (int i = 1; i < length; i++) {
                     /* Calculate the maximum velocity given the sharpness of the turn */
-                    // Length of the arc the wheel travels, disregarding linear velocity (m)
-                    double arcDistance = DriveBase2018.wheelDistance
-                            * Math.abs(angleBetween(waypoints.get(i - 1).rotation, wp.rotation));
-                    // Length of the straight line the wheel moves, disregarding turning (m)
-                    double linearDistance = distance - waypoints.get(i - 1).distance;
-                    // Total distance the wheel travels including arc and linear distance (m)
-                    double totalWheelDist = arcDistance + linearDistance;
-                    // Time for center of bot moving at max velocity (m/(m/s) = s)
-                    double uncorrectedDeltaTime = linearDistance / vel;
-                    // Velocity of fastest wheel given robot is at max velocity (m/s)
-                    double uncorrectedWheelVel = totalWheelDist / uncorrectedDeltaTime;
+                    // Distance the outside wheel travels for each meter the center moves. Uses
+                    // the spline's curvature at the point instead of the heading change since
+                    // the last point (m/m)
+                    double wheelDistPerMeter = 1 + DriveBase2018.wheelDistance * Math.abs(curvature[i]);
                     // Calculate the max velocity of the center of the bot to not violate the max
-                    // velocity with any wheel. ((m2/s2)/(m/s) = m/s)
-                    double correctedMaxVel = vel * vel / uncorrectedWheelVel;
+                    // velocity with any wheel. (m/s)
+                    double correctedMaxVel = vel / wheelDistPerMeter;
 
                     /* Calculate the maximum acceleration/deceleration velocity*/
                     //Max velocity for accelerating entire profile with no max vel
-                    double accelVelocity = Math.sqrt(2 * distance * accel);
+                    double accelVelocity = Math.sqrt(2 * distance[i] * accel);
                     //Same for decelerating entire profile
-                    double decelVelocity = Math.sqrt(2 * (endPos - distance) * accel);
+                    double decelVelocity = Math.sqrt(2 * (endPos - distance[i]) * accel);
                     //Maximum for a triangular profile
                     double triangularVelocity = Math.min(accelVelocity, decelVelocity);
 
                     /*Calculate the final velocity at this point*/
-                    wp.velocity = Math.min(triangularVelocity, correctedMaxVel);
+                    velocity[i] = Math.min(triangularVelocity, correctedMaxVel);
                 }
                 break;
+            case TIME_OPTIMAL:
+                velocity[0] = 0;
+                getTimeOptimalVelocities(vel, accel, 0, 0);
+                break;
             default:
                 Logging.e("Couldn't find velocity profile mode.");
         }
     }
 
-    private double angleBetween(double angle1, double angle2) {
+    /**
+     * Sets the velocities to the fastest ones that keep the outside wheel within
+     * the max velocity and acceleration and the robot within
+     * maxCentripetalAccel. A forward pass limits how fast each point can be
+     * reached from the start, then a backward pass limits how fast the robot can
+     * go and still slow down for every point after it, including the stop at the
+     * end. Each point is visited twice, so this takes linear time.
+     *
+     * @param vel         the max wheel velocity
+     * @param accel       the max wheel acceleration
+     * @param from        the point to start from, which keeps its velocity
+     * @param endVelocity the fastest the path can end going, 0 to stop
+     */
+    private void getTimeOptimalVelocities(double vel, double accel, int from, double endVelocity) {
+        double halfWidth = DriveBase2018.wheelDistance / 2;
+        // the fastest the center can go at each point
+        for (int i = from + 1; i < length; i++) {
+            velocity[i] = getVelocityLimit(vel, halfWidth, i);
+        }
+        // accelerate from the starting point
+        for (int i = from + 1; i < length; i++) {
+            double reachable = Math.sqrt(velocity[i - 1] * velocity[i - 1]
+                    + 2 * getCenterAccel(accel, halfWidth, i) * (distance[i] - distance[i - 1]));
+            velocity[i] = Math.min(velocity[i], reachable);
+        }
+        // decelerate to a stop (or the end velocity) at the end
+        velocity[length - 1] = Math.min(velocity[length - 1], endVelocity);
+        for (int i = length - 2; i > from; i--) {
+            double stoppable = Math.sqrt(velocity[i + 1] * velocity[i + 1]
+                    + 2 * getCenterAccel(accel, halfWidth, i + 1) * (distance[i + 1] - distance[i]));
+            velocity[i] = Math.min(velocity[i], stoppable);
+        }
+    }
+
+    /**
+     * the fastest the center of the robot can go at point i without the outside
+     * wheel going over the max velocity or the robot going over
+     * maxCentripetalAccel.
+     */
+    private double getVelocityLimit(double vel, double halfWidth, int i) {
+        double k = Math.abs(curvature[i]);
+        // the outside wheel goes (1 + k * halfWidth) times as fast as the center
+        double wheelLimit = vel / (1 + k * halfWidth);
+        double centripetalLimit = k > 0 ? Math.sqrt(maxCentripetalAccel / k) : Double.POSITIVE_INFINITY;
+        return Math.min(wheelLimit, centripetalLimit);
+    }
+
+    /**
+     * the most the center of the robot can accelerate between point i - 1 and i
+     * without the outside wheel going over the max acceleration.
+     */
+    private double getCenterAccel(double accel, double halfWidth, int i) {
+        double k = Math.max(Math.abs(curvature[i - 1]), Math.abs(curvature[i]));
+        return accel / (1 + k * halfWidth);
+    }
+
+    private static double angleBetween(double angle1, double angle2) {
         double angleDif = angle2 - angle1;
         if (angleDif > Math.PI)
             angleDif -= 2 * Math.PI;
@@ -216,420 +795,365 @@ public class Path {
     /**
      * Calculates the time of each waypoint by determining the average velocity and
      * distance and determining the time between waypoints then adding the times up.
+     * The acceleration of each point is the constant acceleration of the segment
+     * before it.
+     *
+     * @param from the point to start from, which keeps its time
      */
-    private void getTimes() {
-        // starting point is at time 0
-        waypoints.get(0).time = 0;
-        // set previous
-        Waypoint lastWaypoint = waypoints.get(0);
-        // loop through all but first
-        for (int i = 1; i < waypoints.size(); i++) {
-            Waypoint currentWaypoint = waypoints.get(i);
+    private void getTimes(int from) {
+        // loop through all points after the first
+        for (int i = from + 1; i < length; i++) {
             // calculate the distance,velocity, and time between the last and current
             // waypoint
-            double distance = currentWaypoint.distance - lastWaypoint.distance;
-            double averageVel = (currentWaypoint.velocity + lastWaypoint.velocity) / 2.0;
-            double deltaTime = distance / averageVel;
+            double dist = distance[i] - distance[i - 1];
+            double averageVel = (velocity[i] + velocity[i - 1]) / 2.0;
+            double deltaTime = dist / averageVel;
             // calculate the time based on the delta time and last time
-            currentWaypoint.time = lastWaypoint.time + deltaTime;
-
-            lastWaypoint = currentWaypoint;
+            time[i] = time[i - 1] + deltaTime;
+            // the acceleration is constant between points
+            acceleration[i] = deltaTime > 0 ? (velocity[i] - velocity[i - 1]) / deltaTime : 0;
+            jerk[i] = deltaTime > 0 ? (acceleration[i] - acceleration[i - 1]) / deltaTime : 0;
+        }
+        endTime = time[length - 1];
+        if (from == 0 && length > 1) {
+            // the first point starts with the acceleration of the first segment
+            acceleration[0] = acceleration[1];
+            jerk[1] = 0;
         }
-        endTime = waypoints.get(waypoints.size() - 1).time;
     }
 
-    void genPath(Waypoint start, Waypoint end, SplineMode mode, double tightness){
-        switch(mode){
-            case BEZIER:
-                genCubicBezierPath(start,end,defaultPoints,tightness);
-                break;
-            case CATMULL_ROM:
-                //Catmull-Rom is a special case of cubic Bezier or Hermite,
-                // so use Hermite.
-                genCubicHermitePath(start, end, defaultPoints,0.5);
-                break;
-            case CUBIC_HERMITE:
-                genCubicHermitePath(start,end,defaultPoints,tightness);
-                break;
-            case QUINTIC_HERMITE:
-                genQuinticHermitePath(start,end,defaultPoints,tightness);
-                break;
-            default:
-                Logging.e("Failed to find spline mode.");
-                break;
+    /**
+     * Samples each segment at pointsPerCurve evenly spaced values of the spline
+     * parameter. The points, headings and curvatures all come from one shared
+     * basis table, so nothing is allocated per point.
+     *
+     * @param segments       the curves of the path
+     * @param pointsPerCurve the number of points in each curve
+     */
+    void genUniformPath(SplineSegment[] segments, int pointsPerCurve) {
+        allocate(pointsPerCurve * segments.length + 1);
+        if (segments.length == 0) {
+            return;
+        }
+        SplineBasis basis = SplineBasis.get(pointsPerCurve);
+        // the first segment includes its start, the others start where the last one ended
+        segmentEnd = new int[segments.length];
+        segments[0].sample(basis, 0, x, y, heading, curvature, 0);
+        length = pointsPerCurve + 1;
+        segmentEnd[0] = length - 1;
+        for (int i = 1; i < segments.length; i++) {
+            segments[i].sample(basis, 1, x, y, heading, curvature, length);
+            length += pointsPerCurve;
+            segmentEnd[i] = length - 1;
         }
     }
 
-    void genChainPath(SplineMode mode, double tightness, Waypoint... waypoints){
-        switch(mode){
+    /**
+     * makes the spline segment between two waypoints.
+     *
+     * @param start     the starting point
+     * @param end       the ending point
+     * @param mode      the type of spline
+     * @param tightness how close the guide points are put to the start/end
+     * @return the segments of the path
+     */
+    static SplineSegment[] getSegments(Waypoint start, Waypoint end, SplineMode mode, double tightness) {
+        switch (mode) {
             case BEZIER:
-                genCubicBezierChainPath(defaultPoints,tightness,waypoints);
-                break;
+                return new SplineSegment[] {getBezierSegment(start, end, tightness, tightness)};
             case CATMULL_ROM:
                 //Catmull-Rom is a special case of cubic Bezier or Hermite,
                 // so use Hermite.
-                genCatmullRomPath(defaultPoints, waypoints);
-                break;
+                return new SplineSegment[] {getHermiteSegment(start, end, 0.5, false)};
             case CUBIC_HERMITE:
-                //Unsuported path type
-                Logging.e("Cubic Hermite paths not supported for more than 2 waypoints");
-                break;
+                return new SplineSegment[] {getHermiteSegment(start, end, tightness, false)};
             case QUINTIC_HERMITE:
-                genQuinticHermiteChainPath(defaultPoints,tightness,waypoints);
-                break;
+                return new SplineSegment[] {getHermiteSegment(start, end, tightness, true)};
             default:
                 Logging.e("Failed to find spline mode.");
-                break;
+                return new SplineSegment[0];
         }
     }
 
     /**
-     * generates a path with a bezier curve
+     * makes the spline segments between each pair of waypoints. Guide points
+     * are put gpLength = distance / 2 * tightness from each waypoint, except for
+     * Catmull-Rom, which limits them by the length of the neighboring curves.
      *
-     * @param start          the starting point
-     * @param end            the ending point
-     * @param numberOfPoints the number of points between the start and the end
-     * @param tightness      how close the guide points are put to the start/end
+     * @param mode      the type of spline
+     * @param tightness how close the guide points are put to the start/end
+     * @param points    the waypoints to build the curve from
+     * @return the segments of the path
      */
-    void genCubicBezierPath(Waypoint start, Waypoint end, int numberOfPoints, double tightness) {
-        // get the location of the start and end points
+    static SplineSegment[] getSegments(SplineMode mode, double tightness, Waypoint... points) {
+        if (points.length < 2) {
+            Logging.e("Not enough waypoints to make a path!");
+            return new SplineSegment[0];
+        }
+        if (mode == SplineMode.CUBIC_HERMITE) {
+            //Unsuported path type
+            Logging.e("Cubic Hermite paths not supported for more than 2 waypoints");
+            return new SplineSegment[0];
+        }
+        SplineSegment[] segments = new SplineSegment[points.length - 1];
+        for (int wp = 0; wp < points.length - 1; wp++) {
+            Waypoint start = points[wp];
+            Waypoint end = points[wp + 1];
+            switch (mode) {
+                case BEZIER:
+                    segments[wp] = getBezierSegment(start, end, tightness, tightness);
+                    break;
+                case CATMULL_ROM:
+                    // guide points are limited by the neighboring curves
+                    double distance = start.getPoint().distance(end.getPoint());
+                    double startTightness = 0.5;
+                    double endTightness = 0.5;
+                    if (wp > 0) {
+                        double lastDist = start.getPoint().distance(points[wp - 1].getPoint());
+                        startTightness = 0.5 * Math.min(lastDist, distance) / distance;
+                    }
+                    if (wp < points.length - 2) {
+                        double nextDist = start.getPoint().distance(points[wp + 2].getPoint());
+                        endTightness = 0.5 * Math.min(distance, nextDist) / distance;
+                    }
+                    segments[wp] = getBezierSegment(start, end, startTightness, endTightness);
+                    break;
+                case QUINTIC_HERMITE:
+                    segments[wp] = getHermiteSegment(start, end, tightness, true);
+                    break;
+                default:
+                    Logging.e("Failed to find spline mode.");
+                    return new SplineSegment[0];
+            }
+        }
+        return segments;
+    }
+
+    private static SplineSegment getBezierSegment(Waypoint start, Waypoint end, double startTightness,
+            double endTightness) {
         Point startPoint = start.getPoint();
         Point endPoint = end.getPoint();
         double distance = startPoint.distance(endPoint);
-        double gpLength = distance / 2 * tightness;
-
-        Point startOffset = Point.PolarPoint(gpLength, start.rotation);
-        Point endOffset = Point.PolarPoint(-gpLength, end.rotation);
-
-        Point gp1 = startPoint.sum(startOffset);
-        Point gp2 = endPoint.sum(endOffset);
-
-        waypoints.add(start);
-        for (int i = 1; i < numberOfPoints; i++) {
-            double alpha = (double) i / (double) numberOfPoints;
-            Point p1 = Point.lerp(startPoint, gp1, alpha);
-            Point p2 = Point.lerp(gp1, gp2, alpha);
-            Point p3 = Point.lerp(gp2, endPoint, alpha);
-
-            Point p5 = Point.lerp(p1, p2, alpha);
-            Point p6 = Point.lerp(p2, p3, alpha);
+        double startGPLength = distance / 2 * startTightness;
+        double endGPLength = distance / 2 * endTightness;
+        return SplineSegment.cubicBezier(startPoint.x, startPoint.y,
+                startPoint.x + startGPLength * Math.cos(start.rotation),
+                startPoint.y + startGPLength * Math.sin(start.rotation),
+                endPoint.x - endGPLength * Math.cos(end.rotation),
+                endPoint.y - endGPLength * Math.sin(end.rotation), endPoint.x, endPoint.y);
+    }
 
-            Point p = Point.lerp(p5, p6, alpha);
-            Waypoint wp = new Waypoint(p, 0);
-            waypoints.add(wp);
+    private static SplineSegment getHermiteSegment(Waypoint start, Waypoint end, double tightness,
+            boolean quintic) {
+        Point startPoint = start.getPoint();
+        Point endPoint = end.getPoint();
+        double distance = startPoint.distance(endPoint);
+        double gpLength = distance / 2 * tightness;
+        double startVelX = gpLength * Math.cos(start.rotation);
+        double startVelY = gpLength * Math.sin(start.rotation);
+        double endVelX = gpLength * Math.cos(end.rotation);
+        double endVelY = gpLength * Math.sin(end.rotation);
+        if (quintic) {
+            return SplineSegment.quinticHermite(startPoint.x, startPoint.y, startVelX, startVelY, endPoint.x,
+                    endPoint.y, endVelX, endVelY);
         }
-        waypoints.add(end);
+        return SplineSegment.cubicHermite(startPoint.x, startPoint.y, startVelX, startVelY, endPoint.x, endPoint.y,
+                endVelX, endVelY);
     }
 
     /**
-     * Generates a longer path by chaining together more waypoints.
+     * Samples the segments so the path is never more than positionTolerance from
+     * the spline and the heading never changes more than headingTolerance
+     * between points. Each curve is measured with Gauss-Legendre quadrature and
+     * split in half by distance along it until the pieces are within tolerance,
+     * so the distances of the points are arc lengths instead of chord lengths.
+     * Also sets the headings (from the spline's tangent) and distances.
      *
-     * @param pointsPerCurve the number of points in each curve
-     * @param tightness      how close the guide points are to the start/end of each individual
-     *                       curve.
-     * @param points         the waypoints to build the curve from
+     * @param segments          the curves of the path
+     * @param positionTolerance how far (m) the path can be from the spline
+     * @param headingTolerance  how much (radians) the heading can change between
+     *                          points
      */
-    void genCubicBezierChainPath(int pointsPerCurve, double tightness, Waypoint... points) {
-        if (points.length < 2) {
-            Logging.e("Not enough waypoints to make a path!");
+    void genAdaptivePath(SplineSegment[] segments, double positionTolerance, double headingTolerance) {
+        allocate(segments.length * 16 + 1);
+        if (segments.length == 0) {
             return;
         }
-
-        // add first point
-        waypoints.add(points[0]);
-        // iterates throught the waypoints in pairs.
-        for (int wp = 0; wp < points.length - 1; wp++) {
-            Waypoint start = points[wp];
-            Waypoint end = points[wp + 1];
-            Point startPoint = start.getPoint();
-            Point endPoint = end.getPoint();
-            double distance = startPoint.distance(endPoint);
-            double gpLength = distance / 2 * tightness;
-
-//            Note: The following code may produce slightly smoother paths, but is not necessary
-//             as bezier splines will NOT have matched second derivatives unless other special cases
-//             are met that will interfere with setting the direction of start/end segments.
-//             This code only matches the LENGTH of the guide segments.
-//            double startGPLength;
-//            double endGPLength;
-//
-//            if (wp > 0) {
-//                Waypoint lastWP = points[wp - 1];
-//                double lastDist = startPoint.distance(lastWP.getPoint());
-//                double lastGPLength = lastDist / 2 * tightness;
-//                startGPLength = Math.min(lastGPLength, gpLength);
-//            } else {
-//                startGPLength = gpLength;
-//            }
-//            // correct end guide point
-//            if (wp < points.length - 2) {
-//                Waypoint nextWP = points[wp + 2];
-//                double nextDist = startPoint.distance(nextWP.getPoint());
-//                double nextGPLength = nextDist / 2 * tightness;
-//                endGPLength = Math.min(gpLength, nextGPLength);
-//            } else {
-//                endGPLength = gpLength;
-//            }
-
-
-            Point startOffset = Point.PolarPoint(gpLength, start.rotation);
-            Point endOffset = Point.PolarPoint(-gpLength, end.rotation);
-
-            Point gp1 = startPoint.sum(startOffset);
-            Point gp2 = endPoint.sum(endOffset);
-
-            for (int i = 1; i <= pointsPerCurve; i++) {
-                double alpha = (double) i / (double) pointsPerCurve;
-                Point p1 = Point.lerp(startPoint, gp1, alpha);
-                Point p2 = Point.lerp(gp1, gp2, alpha);
-                Point p3 = Point.lerp(gp2, endPoint, alpha);
-
-                Point p5 = Point.lerp(p1, p2, alpha);
-                Point p6 = Point.lerp(p2, p3, alpha);
-
-                Point p = Point.lerp(p5, p6, alpha);
-                waypoints.add(new Waypoint(p, 0));
-            }
+        segmentEnd = new int[0];
+        for (SplineSegment seg : segments) {
+            appendSegment(seg, positionTolerance, headingTolerance);
         }
-        // set last point
-        waypoints.set(waypoints.size() - 1, points[points.length - 1]);
     }
 
     /**
-     * Generates a longer path by chaining together more waypoints. This method uses Catmull-Rom splines.
+     * Samples one more segment onto the end of the path, the same way
+     * genAdaptivePath does. The new points don't have velocities or times until
+     * they are planned.
      *
-     * @param pointsPerCurve the number of points in each curve
-     * @param points         the waypoints to build the curve from
+     * @param seg               the curve to add
+     * @param positionTolerance how far (m) the path can be from the spline
+     * @param headingTolerance  how much (radians) the heading can change between
+     *                          points
      */
-    void genCatmullRomPath(int pointsPerCurve, Waypoint... points) {
-        if (points.length < 2) {
-            Logging.e("Not enough waypoints to make a path!");
-            return;
+    void appendSegment(SplineSegment seg, double positionTolerance, double headingTolerance) {
+        if (length == 0) {
+            addPoint(seg.getX(0), seg.getY(0), seg.getHeading(0), seg.getCurvature(0));
+            distance[0] = 0;
         }
+        subdivide(seg, 0, 1, seg.getArcLength(0, 1), positionTolerance, headingTolerance, 0);
+        segmentEnd = Arrays.copyOf(segmentEnd, segmentEnd.length + 1);
+        segmentEnd[segmentEnd.length - 1] = length - 1;
+        endPos = distance[length - 1];
+    }
 
-        //'Tightness' for a Catmull-Rom spline
-        double tightness = 0.5;
-
-        // add first point
-        waypoints.add(points[0]);
-        // iterates throught the waypoints in pairs.
-        for (int wp = 0; wp < points.length - 1; wp++) {
-            Waypoint start = points[wp];
-            Waypoint end = points[wp + 1];
-            Point startPoint = start.getPoint();
-            Point endPoint = end.getPoint();
-            double distance = startPoint.distance(endPoint);
-            double gpLength = distance / 2 * tightness;
-
-            double startGPLength;
-            double endGPLength;
-
-            if (wp > 0) {
-                Waypoint lastWP = points[wp - 1];
-                double lastDist = startPoint.distance(lastWP.getPoint());
-                double lastGPLength = lastDist / 2 * tightness;
-                startGPLength = Math.min(lastGPLength, gpLength);
-            } else {
-                startGPLength = gpLength;
-            }
-            // correct end guide point
-            if (wp < points.length - 2) {
-                Waypoint nextWP = points[wp + 2];
-                double nextDist = startPoint.distance(nextWP.getPoint());
-                double nextGPLength = nextDist / 2 * tightness;
-                endGPLength = Math.min(gpLength, nextGPLength);
-            } else {
-                endGPLength = gpLength;
-            }
-
-
-            Point startOffset = Point.PolarPoint(startGPLength, start.rotation);
-            Point endOffset = Point.PolarPoint(-endGPLength, end.rotation);
-
-            Point gp1 = startPoint.sum(startOffset);
-            Point gp2 = endPoint.sum(endOffset);
-
-            for (int i = 1; i <= pointsPerCurve; i++) {
-                double alpha = (double) i / (double) pointsPerCurve;
-                Point p1 = Point.lerp(startPoint, gp1, alpha);
-                Point p2 = Point.lerp(gp1, gp2, alpha);
-                Point p3 = Point.lerp(gp2, endPoint, alpha);
-
-                Point p5 = Point.lerp(p1, p2, alpha);
-                Point p6 = Point.lerp(p2, p3, alpha);
-
-                Point p = Point.lerp(p5, p6, alpha);
-                waypoints.add(new Waypoint(p, 0));
-            }
+    /**
+     * Plans TIME_OPTIMAL velocities and times for the points after a point,
+     * stopping at the current end of the path, so the points before it can be
+     * followed while more segments are added. The point keeps its velocity, so
+     * the robot can switch to the new plan while driving. The robot can always
+     * stop by the end of the old plan, and the new one ends farther along, so the
+     * point's velocity is never too fast for it.
+     *
+     * @param vel       the max wheel velocity
+     * @param accel     the max wheel acceleration
+     * @param from      the last point that can't change
+     * @param startTime the time of the point, later than planned if the robot has
+     *                  been stopped there waiting for the path
+     */
+    void planTimeOptimal(double vel, double accel, int from, double startTime) {
+        if (from == 0) {
+            velocity[0] = 0;
         }
-        // set last point
-        waypoints.set(waypoints.size() - 1, points[points.length - 1]);
+        time[from] = Math.max(time[from], startTime);
+        getTimeOptimalVelocities(vel, accel, from, 0);
+        getTimes(from);
     }
 
     /**
-     * generates a path with a hermite spline.
+     * Plans TIME_OPTIMAL velocities and times that start and end moving instead
+     * of stopped, for paths that are driven one after another without stopping
+     * between them. The start velocity has to be one the path can slow down from
+     * in time, so it should be at most getMaxStartVelocity. The path ends going
+     * slower than the end velocity if it can't speed up to it.
      *
-     * @param start          the starting point
-     * @param end            the ending point
-     * @param numberOfPoints the number of points between the start and the end
-     * @param tightness      how close the guide points are put to the start/end
+     * @param vel           the max wheel velocity
+     * @param accel         the max wheel acceleration
+     * @param startVelocity the velocity of the center of the robot at the start
+     * @param endVelocity   the fastest the center of the robot should go at the
+     *                      end
      */
-    void genCubicHermitePath(Waypoint start, Waypoint end, int numberOfPoints, double tightness) {
-        // get the location of the start and end points
-        Point startPoint = start.getPoint();
-        Point endPoint = end.getPoint();
-        double distance = startPoint.distance(endPoint);
-        double gpLength = distance / 2 * tightness;
-
-        Point startVel = Point.PolarPoint(gpLength, start.rotation);
-        Point endVel = Point.PolarPoint(gpLength, end.rotation);
-
-        waypoints.add(start);
-        for (int i = 1; i < numberOfPoints; i++) {
-            // Calculate the value (0 to 1) representing the distance along the spline
-            double s = (double) i / (double) numberOfPoints;
-
-            //Calculate the four cubic hermite basis functions
-            // h1(s) =  2s^3 - 3s^2 + 1
-            // h2(s) = -2s^3 + 3s^2
-            // h3(s) =   s^3 - 2s^2 + s
-            // h4(s) =   s^3 -  s^2
-            double b1 = 2 * Math.pow(s, 3) - 3 * s * s + 1;
-            double b2 = -2 * Math.pow(s, 3) + 3 * s * s;
-            double b3 = Math.pow(s,3) - 2 * s * s + s;
-            double b4 = Math.pow(s,3) - s * s;
-
-            // Calculate the spline value
-            double x = b1 * startPoint.x + b2 * endPoint.x + b3 * startVel.x + b4 * endVel.x;
-            double y = b1 * startPoint.y + b2 * endPoint.y + b3 * startVel.y + b4 * endVel.y;
-            //Create a new point (x,y) and add it
-            Point p = new Point(x,y);
-            Waypoint wp = new Waypoint(p, 0);
-            waypoints.add(wp);
-        }
-        waypoints.add(end);
+    public void planTimeOptimal(double vel, double accel, double startVelocity, double endVelocity) {
+        velocity[0] = startVelocity;
+        time[0] = 0;
+        getTimeOptimalVelocities(vel, accel, 0, endVelocity);
+        getTimes(0);
     }
 
     /**
-     * generates a path with a quintic hermite spline and 0 acceleration at start and end
-     * to remove infinite sideways jerk where paths meet (and thus eliminate infinite acceleration)
-     * Note that this is VERY similar to genCubicHermitePath, but uses 5th order basis functions.
+     * Finds the fastest the path can end going if it starts at a velocity.
+     * Changes the velocities of the points, so the path has to be planned again
+     * afterwards.
      *
-     * @param start          the starting point
-     * @param end            the ending point
-     * @param numberOfPoints the number of points between the start and the end
-     * @param tightness      how close the guide points are put to the start/end
+     * @param vel           the max wheel velocity
+     * @param accel         the max wheel acceleration
+     * @param startVelocity the velocity of the center of the robot at the start
+     * @return the fastest velocity of the center of the robot at the end
      */
-    void genQuinticHermitePath(Waypoint start, Waypoint end, int numberOfPoints, double tightness) {
-        // get the location of the start and end points
-        Point startPoint = start.getPoint();
-        Point endPoint = end.getPoint();
-        double distance = startPoint.distance(endPoint);
-        double gpLength = distance / 2 * tightness;
+    public double getMaxEndVelocity(double vel, double accel, double startVelocity) {
+        velocity[0] = startVelocity;
+        getTimeOptimalVelocities(vel, accel, 0, Double.POSITIVE_INFINITY);
+        return velocity[length - 1];
+    }
 
-        Point startVel = Point.PolarPoint(gpLength, start.rotation);
-        Point endVel = Point.PolarPoint(gpLength, end.rotation);
-
-        waypoints.add(start);
-        for (int i = 1; i < numberOfPoints; i++) {
-            // Calculate the value (0 to 1) representing the distance along the spline
-            double s = (double) i / (double) numberOfPoints;
-
-            //Calculate the six quintic hermite basis functions (H2 and H3 aren't used
-            //h0(s) = 1 - 10s^3 + 15s^4 - 6s^5
-            //h1(s) = s - 6s^3 + 8s^4 - 3s^5
-            //h2(s) Unused = 1/2 s^2 - 3/2 s^3 + 3/2 s^4 - 1/2 s^5
-            //h3(s) Unused = 1/2 s^3 - s^4 + 1/2 s^5
-            //h4(s) = -4s^3 + 7s^4 - 3s^5
-            //h5(s) = 10s^3 - 15s^4 + 6s^5
-            double b0 = 1 - 10 * Math.pow(s, 3) + 15 * Math.pow(s, 4) - 6 * Math.pow(s, 5);
-            double b1 = s - 6  * Math.pow(s,3) + 8 * Math.pow(s,4) - 3 * Math.pow(s,5);
-            double b4 = -4 * Math.pow(s,3) + 7 * Math.pow(s,4) - 3 * Math.pow(s,5);
-            double b5 = 10 * Math.pow(s,3) - 15 * Math.pow(s,4) + 6 * Math.pow(s,5);
-
-            // Calculate the spline value
-            double x = b0 * startPoint.x + b1 * startVel.x + b4 * endVel.x + b5 * endPoint.x;
-            double y = b0 * startPoint.y + b1 * startVel.y + b4 * endVel.y + b5 * endPoint.y;
-            //Create a new point (x,y) and add it
-            Point p = new Point(x,y);
-            Waypoint wp = new Waypoint(p, 0);
-            waypoints.add(wp);
-        }
-        waypoints.add(end);
-    }
-
-    /**
-     * generates a path with a quintic hermite spline and 0 acceleration at start and end
-     * to remove infinite sideways jerk where paths meet (and thus eliminate infinite acceleration)
-     * Note that this is VERY similar to genCubicHermitePath, but uses 5th order basis functions. This
-     * could be optimized in the future by adding starting/ending accelerations that are calculated smartly.
+    /**
+     * Finds the fastest the path can start going and still slow down to a
+     * velocity by the end. Changes the velocities of the points, so the path has
+     * to be planned again afterwards.
      *
-     * @param pointsPerCurve the number of points in each segment
-     * @param tightness      how close the guide points are put to the start/end
+     * @param vel         the max wheel velocity
+     * @param accel       the max wheel acceleration
+     * @param endVelocity the velocity of the center of the robot at the end
+     * @return the fastest velocity of the center of the robot at the start
      */
-    void genQuinticHermiteChainPath(int pointsPerCurve, double tightness, Waypoint... points) {
-        if (points.length < 2) {
-            Logging.e("Not enough waypoints to make a path!");
-            return;
+    public double getMaxStartVelocity(double vel, double accel, double endVelocity) {
+        double halfWidth = DriveBase2018.wheelDistance / 2;
+        // starting infinitely fast leaves only the limits and the slow down
+        velocity[0] = Double.POSITIVE_INFINITY;
+        getTimeOptimalVelocities(vel, accel, 0, endVelocity);
+        double startLimit = getVelocityLimit(vel, halfWidth, 0);
+        if (length < 2) {
+            return Math.min(startLimit, endVelocity);
         }
+        double stoppable = Math.sqrt(velocity[1] * velocity[1]
+                + 2 * getCenterAccel(accel, halfWidth, 1) * (distance[1] - distance[0]));
+        return Math.min(startLimit, stoppable);
+    }
 
-        // add first point
-        waypoints.add(points[0]);
-        // iterates throught the waypoints in pairs.
-        for (int wp = 0; wp < points.length - 1; wp++) {
-            Waypoint start = points[wp];
-            Waypoint end = points[wp + 1];
-            Point startPoint = start.getPoint();
-            Point endPoint = end.getPoint();
-            double distance = startPoint.distance(endPoint);
-            double gpLength = distance / 2 * tightness;
-
-            Point startVel = Point.PolarPoint(gpLength, start.rotation);
-            Point endVel = Point.PolarPoint(gpLength, end.rotation);
-
-            for (int i = 1; i <= pointsPerCurve; i++) {
-                // Calculate the value (0 to 1) representing the distance along the spline
-                double s = (double) i / (double) pointsPerCurve;
-
-                //Calculate the six quintic hermite basis functions (H2 and H3 aren't used
-                //h0(s) = 1 - 10s^3 + 15s^4 - 6s^5
-                //h1(s) = s - 6s^3 + 8s^4 - 3s^5
-                //h2(s) Unused = 1/2 s^2 - 3/2 s^3 + 3/2 s^4 - 1/2 s^5
-                //h3(s) Unused = 1/2 s^3 - s^4 + 1/2 s^5
-                //h4(s) = -4s^3 + 7s^4 - 3s^5
-                //h5(s) = 10s^3 - 15s^4 + 6s^5
-                double b0 = 1 - 10 * Math.pow(s, 3) + 15 * Math.pow(s, 4) - 6 * Math.pow(s, 5);
-                double b1 = s - 6  * Math.pow(s,3) + 8 * Math.pow(s,4) - 3 * Math.pow(s,5);
-                double b4 = -4 * Math.pow(s,3) + 7 * Math.pow(s,4) - 3 * Math.pow(s,5);
-                double b5 = 10 * Math.pow(s,3) - 15 * Math.pow(s,4) + 6 * Math.pow(s,5);
-
-                // Calculate the spline value
-                double x = b0 * startPoint.x + b1 * startVel.x + b4 * endVel.x + b5 * endPoint.x;
-                double y = b0 * startPoint.y + b1 * startVel.y + b4 * endVel.y + b5 * endPoint.y;
-                //Create a new point (x,y) and add it
-                Point p = new Point(x,y);
-                waypoints.add(new Waypoint(p, 0));
+    /**
+     * adds the end of a piece of a curve, after adding the points needed before
+     * it to stay within tolerance. The start of the piece must be the last point
+     * added.
+     */
+    private void subdivide(SplineSegment seg, double s0, double s1, double arcLength, double positionTolerance,
+            double headingTolerance, int depth) {
+        int start = length - 1;
+        double endX = seg.getX(s1);
+        double endY = seg.getY(s1);
+        double endHeading = seg.getHeading(s1);
+        if (depth < maxSubdivisions) {
+            double middle = seg.getParameterAtLength(s0, s1, arcLength / 2);
+            // how far the middle of the curve is from the middle of the line between the ends
+            double errorX = seg.getX(middle) - (x[start] + endX) / 2;
+            double errorY = seg.getY(middle) - (y[start] + endY) / 2;
+            // every curve is split at least once, so even a short straight one has a
+            // point in the middle where the robot is moving
+            boolean withinTolerance = depth > 0
+                    && errorX * errorX + errorY * errorY <= positionTolerance * positionTolerance
+                    && Math.abs(angleBetween(heading[start], endHeading)) <= headingTolerance
+                    && arcLength <= maxPointSpacing;
+            if (!withinTolerance) {
+                subdivide(seg, s0, middle, arcLength / 2, positionTolerance, headingTolerance, depth + 1);
+                subdivide(seg, middle, s1, arcLength / 2, positionTolerance, headingTolerance, depth + 1);
+                return;
             }
         }
-        // set last point
-        waypoints.set(waypoints.size() - 1, points[points.length - 1]);
+        addPoint(endX, endY, endHeading, seg.getCurvature(s1));
+        distance[length - 1] = distance[start] + arcLength;
     }
 
     /**
-     * aligns the waypoints all pointing to the next waypoint.
+     * The angle of an offset, using the same convention as
+     * Waypoint.pointTowards. Used for every heading on the path.
+     *
+     * @param xOffset the x offset to the target
+     * @param yOffset the y offset to the target
+     * @return the angle in radians
      */
-    void alignWaypoints() {
-        for (int i = 1; i < waypoints.size() - 1; i++) {
-            waypoints.get(i).pointTowards(waypoints.get(i + 1).getPoint());
+    static double angleTowards(double xOffset, double yOffset) {
+        double rotation;
+        if (xOffset == 0) {
+            if (yOffset > 0) {
+                rotation = Math.PI / 2.0;
+            } else {
+                rotation = 3.0 * Math.PI / 2.0;
+            }
+        } else {
+            rotation = Math.atan(yOffset / xOffset);
+            if (xOffset < 0) {
+                rotation += Math.PI;
+            }
         }
+        return rotation;
     }
 
     @Override
     public String toString() {
-        String out = "";
-        for (Waypoint wp : waypoints) {
-            out = out + wp.toString() + "\n";
+        StringBuilder out = new StringBuilder(length * 128);
+        for (int i = 0; i < length; i++) {
+            out.append("X: ").append(getX(i)).append(", Y: ").append(getY(i)).append(", Angle: ").append(getHeading(i))
+                    .append(", distance: ").append(distance[i]).append(", time: ").append(time[i])
+                    .append(", velocity:").append(velocity[i]).append('\n');
         }
-        return out;
+        return out.toString();
     }
 }
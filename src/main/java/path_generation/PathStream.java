@@ -0,0 +1,106 @@
+package path_generation;
+
+/**
+ * Generates a path one spline segment at a time, so the start of the path can
+ * be driven while the rest is still being generated. After each segment the
+ * velocities are planned with TIME_OPTIMAL to stop at the end of what has been
+ * generated so far, so the robot stops safely if generation falls behind.
+ * Points the robot is about to reach are locked so their velocities and times
+ * don't change under it.
+ *
+ * @author jack
+ *
+ */
+public class PathStream {
+	private final SplineSegment[] segments;
+	private final double vel;
+	private final double accel;
+	private final Path path = new Path();
+	private int nextSegment = 0;
+
+	/**
+	 *
+	 * @param velocity
+	 *            the max velocity
+	 * @param acceleration
+	 *            the max acceleration
+	 * @param splineMode
+	 *            the type of spline
+	 * @param points
+	 *            the waypoints to make a path between
+	 */
+	public PathStream(double velocity, double acceleration, Path.SplineMode splineMode, Waypoint... points) {
+		segments = Path.getSegments(splineMode, 0.8, points);
+		vel = velocity;
+		accel = acceleration;
+	}
+
+	/**
+	 * @return whether there are segments left to generate
+	 */
+	public boolean hasNext() {
+		return nextSegment < segments.length;
+	}
+
+	/**
+	 * @return the number of segments in the whole path
+	 */
+	public int getSegmentCount() {
+		return segments.length;
+	}
+
+	/**
+	 * @return the path generated so far. Changes when next is called.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * generates the next segment and plans the velocities of every point after
+	 * the locked one.
+	 *
+	 * @param lockIndex
+	 *            the last point that can't change, from getLockIndex
+	 * @param lockTime
+	 *            the earliest time the locked point can be reached, later than
+	 *            its planned time if the robot is stopped there waiting
+	 * @return the path generated so far
+	 */
+	public Path next(int lockIndex, double lockTime) {
+		path.appendSegment(segments[nextSegment], Path.defaultPositionTolerance, Path.defaultHeadingTolerance);
+		nextSegment++;
+		path.planTimeOptimal(vel, accel, lockIndex, lockTime);
+		return path;
+	}
+
+	/**
+	 * finds the first point that won't have been passed by a time. Everything up
+	 * to it has to stay the same when the path is planned again.
+	 *
+	 * @param time
+	 *            the time
+	 * @return the index of the point, the last point if the time is after the end
+	 */
+	public int getLockIndex(double time) {
+		int last = path.size() - 1;
+		if (last <= 0) {
+			return 0;
+		}
+		if (path.getTime(last) <= time) {
+			return last;
+		}
+		// binary search for the first point after the time
+		int low = 1;
+		int high = last;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (path.getTime(mid) > time) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,275 @@
+package path_generation;
+
+/**
+ * A jerk limited (S-curve) change in velocity over a distance. The acceleration
+ * ramps up and down at the max jerk instead of jumping, so the robot can use
+ * higher accelerations without the wheels slipping. The motion is split into 7
+ * phases with constant jerk: ramp up the acceleration, hold it, ramp it down to
+ * the peak velocity, cruise, then ramp, hold and ramp again to slow to the end
+ * velocity. Phases that aren't needed have a length of 0. The acceleration is 0
+ * at the start and end, so curves can be put end to end.
+ *
+ * @author jack
+ *
+ */
+class SCurve {
+	private static final int PHASES = 7;
+	private static final int SEARCH_STEPS = 60;
+
+	private final double[] phaseJerk = new double[PHASES];
+	private final double[] phaseLength = new double[PHASES];
+	/**
+	 * The time, position, velocity and acceleration at the start of each phase,
+	 * plus one more for the end.
+	 */
+	private final double[] startTime = new double[PHASES + 1];
+	private final double[] startPosition = new double[PHASES + 1];
+	private final double[] startVelocity = new double[PHASES + 1];
+	private final double[] startAccel = new double[PHASES + 1];
+
+	/**
+	 * plans the motion. The distance must be at least getDistance(startVel,
+	 * endVel, accel, jerk).
+	 *
+	 * @param distance
+	 *            the distance to travel
+	 * @param startVel
+	 *            the velocity at the start
+	 * @param endVel
+	 *            the velocity at the end
+	 * @param vel
+	 *            the max velocity, at least the start and end velocities
+	 * @param accel
+	 *            the max acceleration
+	 * @param jerk
+	 *            the max jerk
+	 */
+	SCurve(double distance, double startVel, double endVel, double vel, double accel, double jerk) {
+		// the fastest peak velocity that can still get to the end velocity in time
+		double low = Math.max(startVel, endVel);
+		double high = Math.max(low, vel);
+		if (getDistance(startVel, high, accel, jerk) + getDistance(high, endVel, accel, jerk) <= distance) {
+			low = high;
+		}
+		for (int i = 0; i < SEARCH_STEPS && low < high; i++) {
+			double mid = (low + high) / 2;
+			if (getDistance(startVel, mid, accel, jerk) + getDistance(mid, endVel, accel, jerk) > distance) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		double peakVel = low;
+		double cruiseDistance = distance - getDistance(startVel, peakVel, accel, jerk)
+				- getDistance(peakVel, endVel, accel, jerk);
+		double cruiseTime = peakVel > 0 ? Math.max(0, cruiseDistance) / peakVel : 0;
+
+		startVelocity[0] = startVel;
+		setPhases(0, peakVel - startVel, accel, jerk);
+		phaseLength[3] = cruiseTime;
+		setPhases(4, endVel - peakVel, accel, jerk);
+		for (int i = 0; i < PHASES; i++) {
+			double t = phaseLength[i];
+			double j = phaseJerk[i];
+			startTime[i + 1] = startTime[i] + t;
+			startPosition[i + 1] = getPosition(i, t);
+			startVelocity[i + 1] = startVelocity[i] + startAccel[i] * t + j * t * t / 2;
+			startAccel[i + 1] = startAccel[i] + j * t;
+		}
+	}
+
+	/**
+	 * sets the 3 phases that change the velocity: ramp the acceleration up, hold
+	 * it, and ramp it back down.
+	 */
+	private void setPhases(int first, double velocityChange, double accel, double jerk) {
+		double sign = Math.signum(velocityChange);
+		double rampTime = getRampTime(Math.abs(velocityChange), accel, jerk);
+		double peakAccel = Math.min(accel, jerk * rampTime);
+		phaseLength[first] = rampTime;
+		phaseLength[first + 1] = peakAccel > 0 ? Math.abs(velocityChange) / peakAccel - rampTime : 0;
+		phaseLength[first + 2] = rampTime;
+		phaseJerk[first] = sign * jerk;
+		phaseJerk[first + 2] = -sign * jerk;
+	}
+
+	/**
+	 * the time it takes to ramp the acceleration up (or down) when changing the
+	 * velocity by the given amount
+	 */
+	private static double getRampTime(double velocityChange, double accel, double jerk) {
+		if (velocityChange * jerk >= accel * accel) {
+			// reaches the max acceleration, then holds it
+			return accel / jerk;
+		}
+		// ramps the acceleration up and straight back down
+		return Math.sqrt(velocityChange / jerk);
+	}
+
+	/**
+	 * the distance it takes to change from one velocity to another, starting and
+	 * ending with no acceleration
+	 *
+	 * @param startVel
+	 *            the velocity to start at
+	 * @param endVel
+	 *            the velocity to end at
+	 * @param accel
+	 *            the max acceleration
+	 * @param jerk
+	 *            the max jerk
+	 * @return the distance
+	 */
+	static double getDistance(double startVel, double endVel, double accel, double jerk) {
+		double change = Math.abs(endVel - startVel);
+		double rampTime = getRampTime(change, accel, jerk);
+		double peakAccel = Math.min(accel, jerk * rampTime);
+		double time = peakAccel > 0 ? change / peakAccel + rampTime : 0;
+		// the velocity is symmetric, so the average is halfway between the ends
+		return (startVel + endVel) / 2 * time;
+	}
+
+	/**
+	 * the fastest velocity that can be reached (or slowed down from) over a
+	 * distance
+	 *
+	 * @param startVel
+	 *            the velocity to start at
+	 * @param distance
+	 *            the distance available
+	 * @param accel
+	 *            the max acceleration
+	 * @param jerk
+	 *            the max jerk
+	 * @return the velocity
+	 */
+	static double getReachableVelocity(double startVel, double distance, double accel, double jerk) {
+		double low = startVel;
+		// faster than a constant acceleration could get
+		double high = Math.sqrt(startVel * startVel + 2 * accel * distance);
+		for (int i = 0; i < SEARCH_STEPS; i++) {
+			double mid = (low + high) / 2;
+			if (getDistance(startVel, mid, accel, jerk) > distance) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the time the motion takes
+	 */
+	double getEndTime() {
+		return startTime[PHASES];
+	}
+
+	/**
+	 * finds the phase that a distance is in, starting from a phase it is known to
+	 * be at or after
+	 *
+	 * @param position
+	 *            the distance from the start of the motion
+	 * @param fromPhase
+	 *            the first phase to check
+	 * @return the phase
+	 */
+	int getPhase(double position, int fromPhase) {
+		int phase = fromPhase;
+		while (phase < PHASES - 1 && position > startPosition[phase + 1]) {
+			phase++;
+		}
+		return phase;
+	}
+
+	/**
+	 * finds when the motion reaches a distance. The position only increases, so
+	 * this is a bisection on the time within the phase.
+	 *
+	 * @param position
+	 *            the distance from the start of the motion
+	 * @param phase
+	 *            the phase the distance is in, from getPhase
+	 * @return the time the distance is reached
+	 */
+	double getTime(double position, int phase) {
+		double low = 0;
+		double high = phaseLength[phase];
+		for (int i = 0; i < SEARCH_STEPS; i++) {
+			double mid = (low + high) / 2;
+			if (getPosition(phase, mid) < position) {
+				low = mid;
+			} else {
+				high = mid;
+			}
+		}
+		return startTime[phase] + (low + high) / 2;
+	}
+
+	/**
+	 * finds the phase that a time is in, starting from a phase it is known to be
+	 * at or after
+	 *
+	 * @param time
+	 *            the time since the start of the motion
+	 * @param fromPhase
+	 *            the first phase to check
+	 * @return the phase
+	 */
+	int getPhaseAtTime(double time, int fromPhase) {
+		int phase = fromPhase;
+		while (phase < PHASES - 1 && time > startTime[phase + 1]) {
+			phase++;
+		}
+		return phase;
+	}
+
+	/**
+	 * @param phase
+	 *            the phase the time is in
+	 * @param time
+	 *            the time since the start of the motion
+	 * @return the distance from the start of the motion at the time
+	 */
+	double getPositionAtTime(int phase, double time) {
+		return getPosition(phase, time - startTime[phase]);
+	}
+
+	private double getPosition(int phase, double t) {
+		return startPosition[phase] + startVelocity[phase] * t + startAccel[phase] * t * t / 2
+				+ phaseJerk[phase] * t * t * t / 6;
+	}
+
+	/**
+	 * @param phase
+	 *            the phase the time is in
+	 * @param time
+	 *            the time since the start of the motion
+	 * @return the velocity at the time
+	 */
+	double getVelocity(int phase, double time) {
+		double t = time - startTime[phase];
+		return Math.max(0, startVelocity[phase] + startAccel[phase] * t + phaseJerk[phase] * t * t / 2);
+	}
+
+	/**
+	 * @param phase
+	 *            the phase the time is in
+	 * @param time
+	 *            the time since the start of the motion
+	 * @return the acceleration at the time
+	 */
+	double getAccel(int phase, double time) {
+		return startAccel[phase] + phaseJerk[phase] * (time - startTime[phase]);
+	}
+
+	/**
+	 * @param phase
+	 *            the phase the time is in
+	 * @return the jerk during the phase
+	 */
+	double getJerk(int phase) {
+		return phaseJerk[phase];
+	}
+}
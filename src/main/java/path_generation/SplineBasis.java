@@ -0,0 +1,79 @@
+package path_generation;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The powers of s (and their first and second derivatives) at evenly spaced
+ * values of s from 0 to 1. Every spline mode is stored as a polynomial by
+ * SplineSegment, so one table for a sample count works for every segment of
+ * every path, and sampling a segment is just a few multiplications per point.
+ * Tables are made once per sample count and shared between threads.
+ *
+ * @author jack
+ *
+ */
+class SplineBasis {
+	/**
+	 * The number of coefficients of the polynomials, enough for quintic splines.
+	 */
+	static final int TERMS = 6;
+
+	private static final ConcurrentHashMap<Integer, SplineBasis> tables = new ConcurrentHashMap<Integer, SplineBasis>();
+
+	private final int samples;
+	/**
+	 * s^k, (s^k)' and (s^k)'' for row i (s = i / samples), stored at
+	 * [i * TERMS + k].
+	 */
+	final double[] value;
+	final double[] derivative;
+	final double[] secondDerivative;
+
+	private SplineBasis(int sampleCount) {
+		samples = sampleCount;
+		value = new double[(samples + 1) * TERMS];
+		derivative = new double[(samples + 1) * TERMS];
+		secondDerivative = new double[(samples + 1) * TERMS];
+		for (int i = 0; i <= samples; i++) {
+			double s = (double) i / (double) samples;
+			int row = i * TERMS;
+			double power = 1;
+			for (int k = 0; k < TERMS; k++) {
+				value[row + k] = power;
+				power *= s;
+			}
+			for (int k = 1; k < TERMS; k++) {
+				derivative[row + k] = k * value[row + k - 1];
+			}
+			for (int k = 2; k < TERMS; k++) {
+				secondDerivative[row + k] = k * (k - 1) * value[row + k - 2];
+			}
+		}
+	}
+
+	/**
+	 * gets the table for a number of samples, making it the first time
+	 *
+	 * @param samples
+	 *            the number of steps from s = 0 to s = 1
+	 * @return the shared table
+	 */
+	static SplineBasis get(int samples) {
+		SplineBasis basis = tables.get(samples);
+		if (basis == null) {
+			basis = new SplineBasis(samples);
+			SplineBasis existing = tables.putIfAbsent(samples, basis);
+			if (existing != null) {
+				basis = existing;
+			}
+		}
+		return basis;
+	}
+
+	/**
+	 * @return the number of steps from s = 0 to s = 1
+	 */
+	int getSamples() {
+		return samples;
+	}
+}
@@ -0,0 +1,354 @@
+package path_generation;
+
+/**
+ * One curve of a path, stored as a polynomial in the spline parameter s (0 to
+ * 1) for x and y. Every spline mode the path supports is a polynomial of at most
+ * 5th order, so they can all be evaluated, differentiated and measured the same
+ * way.
+ *
+ * @author jack
+ *
+ */
+class SplineSegment {
+	/**
+	 * Gauss-Legendre nodes on [-1, 1] and their weights, 5 points. Exact for
+	 * polynomials up to 9th order.
+	 */
+	private static final double[] GAUSS_NODES = { -0.9061798459386640, -0.5384693101056831, 0,
+			0.5384693101056831, 0.9061798459386640 };
+	private static final double[] GAUSS_WEIGHTS = { 0.2369268850561891, 0.4786286704993665, 0.5688888888888889,
+			0.4786286704993665, 0.2369268850561891 };
+	/**
+	 * The number of pieces the parameter range is split into when measuring arc
+	 * length. The speed along a spline isn't a polynomial, so one set of nodes
+	 * isn't exact, but a few pieces are within micrometers for field sized paths.
+	 */
+	private static final int ARC_LENGTH_PIECES = 4;
+	private static final int MAX_NEWTON_STEPS = 12;
+
+	/**
+	 * The coefficients of x(s) and y(s), lowest order first.
+	 */
+	private final double[] xCoefficients = new double[SplineBasis.TERMS];
+	private final double[] yCoefficients = new double[SplineBasis.TERMS];
+
+	private SplineSegment() {
+	}
+
+	/**
+	 * makes a segment from a cubic bezier curve
+	 *
+	 * @param x0
+	 *            the x coordinate of the start point
+	 * @param y0
+	 *            the y coordinate of the start point
+	 * @param x1
+	 *            the x coordinate of the first guide point
+	 * @param y1
+	 *            the y coordinate of the first guide point
+	 * @param x2
+	 *            the x coordinate of the second guide point
+	 * @param y2
+	 *            the y coordinate of the second guide point
+	 * @param x3
+	 *            the x coordinate of the end point
+	 * @param y3
+	 *            the y coordinate of the end point
+	 * @return the segment
+	 */
+	static SplineSegment cubicBezier(double x0, double y0, double x1, double y1, double x2, double y2, double x3,
+			double y3) {
+		SplineSegment seg = new SplineSegment();
+		setCubicBezier(seg.xCoefficients, x0, x1, x2, x3);
+		setCubicBezier(seg.yCoefficients, y0, y1, y2, y3);
+		return seg;
+	}
+
+	/**
+	 * makes a segment from a cubic hermite spline
+	 *
+	 * @param x0
+	 *            the x coordinate of the start point
+	 * @param y0
+	 *            the y coordinate of the start point
+	 * @param vx0
+	 *            the x component of the start tangent
+	 * @param vy0
+	 *            the y component of the start tangent
+	 * @param x1
+	 *            the x coordinate of the end point
+	 * @param y1
+	 *            the y coordinate of the end point
+	 * @param vx1
+	 *            the x component of the end tangent
+	 * @param vy1
+	 *            the y component of the end tangent
+	 * @return the segment
+	 */
+	static SplineSegment cubicHermite(double x0, double y0, double vx0, double vy0, double x1, double y1,
+			double vx1, double vy1) {
+		SplineSegment seg = new SplineSegment();
+		setCubicHermite(seg.xCoefficients, x0, vx0, x1, vx1);
+		setCubicHermite(seg.yCoefficients, y0, vy0, y1, vy1);
+		return seg;
+	}
+
+	/**
+	 * makes a segment from a quintic hermite spline with 0 acceleration at the
+	 * start and end
+	 *
+	 * @param x0
+	 *            the x coordinate of the start point
+	 * @param y0
+	 *            the y coordinate of the start point
+	 * @param vx0
+	 *            the x component of the start tangent
+	 * @param vy0
+	 *            the y component of the start tangent
+	 * @param x1
+	 *            the x coordinate of the end point
+	 * @param y1
+	 *            the y coordinate of the end point
+	 * @param vx1
+	 *            the x component of the end tangent
+	 * @param vy1
+	 *            the y component of the end tangent
+	 * @return the segment
+	 */
+	static SplineSegment quinticHermite(double x0, double y0, double vx0, double vy0, double x1, double y1,
+			double vx1, double vy1) {
+		SplineSegment seg = new SplineSegment();
+		setQuinticHermite(seg.xCoefficients, x0, vx0, x1, vx1);
+		setQuinticHermite(seg.yCoefficients, y0, vy0, y1, vy1);
+		return seg;
+	}
+
+	private static void setCubicBezier(double[] c, double p0, double p1, double p2, double p3) {
+		// (1-s)^3 p0 + 3s(1-s)^2 p1 + 3s^2(1-s) p2 + s^3 p3, expanded
+		c[0] = p0;
+		c[1] = 3 * (p1 - p0);
+		c[2] = 3 * (p0 - 2 * p1 + p2);
+		c[3] = -p0 + 3 * p1 - 3 * p2 + p3;
+	}
+
+	private static void setCubicHermite(double[] c, double p0, double v0, double p1, double v1) {
+		// h1 p0 + h3 v0 + h2 p1 + h4 v1, grouped by powers of s
+		c[0] = p0;
+		c[1] = v0;
+		c[2] = -3 * p0 - 2 * v0 + 3 * p1 - v1;
+		c[3] = 2 * p0 + v0 - 2 * p1 + v1;
+	}
+
+	private static void setQuinticHermite(double[] c, double p0, double v0, double p1, double v1) {
+		// h0 p0 + h1 v0 + h4 v1 + h5 p1, grouped by powers of s
+		c[0] = p0;
+		c[1] = v0;
+		c[2] = 0;
+		c[3] = -10 * p0 - 6 * v0 - 4 * v1 + 10 * p1;
+		c[4] = 15 * p0 + 8 * v0 + 7 * v1 - 15 * p1;
+		c[5] = -6 * p0 - 3 * v0 - 3 * v1 + 6 * p1;
+	}
+
+	/**
+	 * evaluates a polynomial with Horner's scheme
+	 */
+	private static double evaluate(double[] c, double s) {
+		return ((((c[5] * s + c[4]) * s + c[3]) * s + c[2]) * s + c[1]) * s + c[0];
+	}
+
+	/**
+	 * evaluates the derivative of a polynomial with Horner's scheme
+	 */
+	private static double evaluateDerivative(double[] c, double s) {
+		return (((5 * c[5] * s + 4 * c[4]) * s + 3 * c[3]) * s + 2 * c[2]) * s + c[1];
+	}
+
+	/**
+	 * evaluates the second derivative of a polynomial with Horner's scheme
+	 */
+	private static double evaluateSecondDerivative(double[] c, double s) {
+		return ((20 * c[5] * s + 12 * c[4]) * s + 6 * c[3]) * s + 2 * c[2];
+	}
+
+	/**
+	 * the signed curvature (1 / turning radius, positive to the left) from the
+	 * first and second derivatives
+	 */
+	private static double curvature(double dx, double dy, double ddx, double ddy) {
+		double speedSquared = dx * dx + dy * dy;
+		if (speedSquared == 0) {
+			return 0;
+		}
+		return (dx * ddy - dy * ddx) / (speedSquared * Math.sqrt(speedSquared));
+	}
+
+	/**
+	 * @param s
+	 *            the spline parameter (0 to 1)
+	 * @return the x coordinate at s
+	 */
+	double getX(double s) {
+		return evaluate(xCoefficients, s);
+	}
+
+	/**
+	 * @param s
+	 *            the spline parameter (0 to 1)
+	 * @return the y coordinate at s
+	 */
+	double getY(double s) {
+		return evaluate(yCoefficients, s);
+	}
+
+	/**
+	 * @param s
+	 *            the spline parameter (0 to 1)
+	 * @return dx/ds at s
+	 */
+	double getDX(double s) {
+		return evaluateDerivative(xCoefficients, s);
+	}
+
+	/**
+	 * @param s
+	 *            the spline parameter (0 to 1)
+	 * @return dy/ds at s
+	 */
+	double getDY(double s) {
+		return evaluateDerivative(yCoefficients, s);
+	}
+
+	/**
+	 * @param s
+	 *            the spline parameter (0 to 1)
+	 * @return the heading of the curve at s, from its first derivative
+	 */
+	double getHeading(double s) {
+		return Path.angleTowards(getDX(s), getDY(s));
+	}
+
+	/**
+	 * @param s
+	 *            the spline parameter (0 to 1)
+	 * @return the curvature at s, from the first and second derivatives
+	 */
+	double getCurvature(double s) {
+		return curvature(getDX(s), getDY(s), evaluateSecondDerivative(xCoefficients, s),
+				evaluateSecondDerivative(yCoefficients, s));
+	}
+
+	/**
+	 * evaluates the segment at evenly spaced values of s using a basis table, and
+	 * writes the points straight into the arrays.
+	 *
+	 * @param basis
+	 *            the table of powers of s to use
+	 * @param first
+	 *            the first row of the table to write, 0 to include the start
+	 *            of the segment
+	 * @param xOut
+	 *            the x coordinates
+	 * @param yOut
+	 *            the y coordinates
+	 * @param headingOut
+	 *            the headings
+	 * @param curvatureOut
+	 *            the curvatures
+	 * @param offset
+	 *            the index in the arrays to write the first row to
+	 */
+	void sample(SplineBasis basis, int first, double[] xOut, double[] yOut, double[] headingOut,
+			double[] curvatureOut, int offset) {
+		double[] value = basis.value;
+		double[] derivative = basis.derivative;
+		double[] secondDerivative = basis.secondDerivative;
+		for (int i = first; i <= basis.getSamples(); i++) {
+			int row = i * SplineBasis.TERMS;
+			double px = 0, py = 0, dx = 0, dy = 0, ddx = 0, ddy = 0;
+			for (int k = 0; k < SplineBasis.TERMS; k++) {
+				double cx = xCoefficients[k];
+				double cy = yCoefficients[k];
+				px += cx * value[row + k];
+				py += cy * value[row + k];
+				dx += cx * derivative[row + k];
+				dy += cy * derivative[row + k];
+				ddx += cx * secondDerivative[row + k];
+				ddy += cy * secondDerivative[row + k];
+			}
+			int out = offset + i - first;
+			xOut[out] = px;
+			yOut[out] = py;
+			headingOut[out] = Path.angleTowards(dx, dy);
+			curvatureOut[out] = curvature(dx, dy, ddx, ddy);
+		}
+	}
+
+	/**
+	 * @param s
+	 *            the spline parameter (0 to 1)
+	 * @return how fast the distance along the curve changes with s
+	 */
+	double getSpeed(double s) {
+		double dx = getDX(s);
+		double dy = getDY(s);
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * measures the distance along the curve with Gauss-Legendre quadrature
+	 *
+	 * @param s0
+	 *            the parameter to measure from
+	 * @param s1
+	 *            the parameter to measure to
+	 * @return the arc length between s0 and s1
+	 */
+	double getArcLength(double s0, double s1) {
+		double pieceLength = (s1 - s0) / ARC_LENGTH_PIECES;
+		double halfLength = pieceLength / 2;
+		double total = 0;
+		for (int p = 0; p < ARC_LENGTH_PIECES; p++) {
+			double center = s0 + (p + 0.5) * pieceLength;
+			for (int i = 0; i < GAUSS_NODES.length; i++) {
+				total += GAUSS_WEIGHTS[i] * getSpeed(center + halfLength * GAUSS_NODES[i]);
+			}
+		}
+		return total * halfLength;
+	}
+
+	/**
+	 * finds the parameter a given distance along the curve from s0, using
+	 * Newton's method on the arc length. Falls back to bisection if a step would
+	 * leave the range.
+	 *
+	 * @param s0
+	 *            the parameter to measure from
+	 * @param s1
+	 *            the largest parameter to return
+	 * @param length
+	 *            the arc length from s0, at most the arc length to s1
+	 * @return the parameter that length along the curve from s0
+	 */
+	double getParameterAtLength(double s0, double s1, double length) {
+		double low = s0;
+		double high = s1;
+		double total = getArcLength(s0, s1);
+		// start from the guess that speed is constant
+		double s = total > 0 ? s0 + (s1 - s0) * length / total : s0;
+		for (int i = 0; i < MAX_NEWTON_STEPS; i++) {
+			double error = getArcLength(s0, s) - length;
+			if (Math.abs(error) < 1e-9) {
+				break;
+			}
+			if (error > 0) {
+				high = s;
+			} else {
+				low = s;
+			}
+			double speed = getSpeed(s);
+			double next = speed > 0 ? s - error / speed : low - 1;
+			s = (next > low && next < high) ? next : (low + high) / 2;
+		}
+		return s;
+	}
+}
@@ -13,6 +13,10 @@ public class Waypoint {
 	public double velocity;
 	public double rotation;
 	public double time;
+	/**
+	 * The name of the event to fire when the robot gets to the waypoint, or null
+	 */
+	public String marker;
 
 	/**
 	 * Create a point from a position and rotation
@@ -51,6 +55,19 @@ public class Waypoint {
 		rotation = wpRotation;
 	}
 
+	/**
+	 * Names the event to fire when the robot gets to the waypoint, like raising
+	 * the lift. Returns the waypoint so it can be used in waypoint arrays.
+	 *
+	 * @param name
+	 *            the name of the marker
+	 * @return this waypoint
+	 */
+	public Waypoint mark(String name) {
+		marker = name;
+		return this;
+	}
+
 	/**
 	 * Translates the waypoint by an X and Y amount
 	 * 
@@ -0,0 +1,43 @@
+package robot;
+
+import java.io.File;
+import java.io.IOException;
+
+import controllers.motion_profiles.ProfileStore;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import utilities.Logging;
+
+/**
+ * Run by the precompileProfiles gradle task. Builds every auton for every game
+ * data variant, which generates all of their motion profiles, and writes the
+ * profiles to a file that goes into the jar. This runs on the computer doing
+ * the build, with the headless stand-ins for the WPILib classes instead of the
+ * real ones.
+ *
+ * @author jack
+ *
+ */
+public class ProfilePrecompiler {
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: ProfilePrecompiler <output file>");
+			System.exit(1);
+		}
+		ProfileStore.setRecording(true);
+		// some autons pick a different path depending on this setting, so build
+		// them both ways.
+		for (boolean allowOppositeSide : new boolean[] { true, false }) {
+			SmartDashboard.putBoolean("Allow Auton Opposite Side", allowOppositeSide);
+			for (Robot.Auton auton : Robot.Auton.values()) {
+				for (String gameData : Robot.GAME_DATA) {
+					Robot.createAuton(null, auton, gameData);
+				}
+			}
+		}
+		File out = new File(args[0]);
+		int count = ProfileStore.write(out);
+		Logging.flush();
+		System.out.println("Wrote " + count + " motion profiles to " + out);
+		System.exit(0);
+	}
+}
@@ -1,11 +1,18 @@
 package robot;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import commands.autonomous.*;
 import commands.interfaces.*;
 import commands.teleop.*;
+import controllers.motion_profiles.PathCache;
+import controllers.motion_profiles.ProfileStore;
 import edu.wpi.cscore.UsbCamera;
 import edu.wpi.first.wpilibj.CameraServer;
 import edu.wpi.first.wpilibj.DriverStation;
@@ -19,7 +26,12 @@ import hardware.Intake;
 import hardware.LED;
 import hardware.Lift;
 import hardware.PDP;
+import utilities.DashboardPublisher;
+import utilities.DashboardPublisher.NumberKey;
+import utilities.FixedRateLoop;
+import utilities.LatencyHistogram;
 import utilities.Logging;
+import utilities.LoopTiming;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -96,7 +108,7 @@ public class Robot extends IterativeRobot implements CommandCallback {
      */
     public Climber climber;
 
-    public PDP pdp;
+    public volatile PDP pdp;
 
     public DriverStation ds;
 
@@ -134,7 +146,57 @@ public class Robot extends IterativeRobot implements CommandCallback {
      */
     private OpMode autonomous;
 
-    private Map<String, OpMode> autoChoices;
+    /**
+     * The first two characters of every possible game data message.
+     */
+    static final String[] GAME_DATA = {"RR", "RL", "LR", "LL"};
+
+    /**
+     * The selected auton for each game data variant, built in the background by
+     * the autonExecutor.
+     */
+    private Map<String, Future<OpMode>> autoChoices;
+
+    /**
+     * Builds the auton variants off of the main loop so generating their paths
+     * doesn't cause loop overruns while disabled. The queue has room for two
+     * rounds of variants, and anything past that is built on the calling thread.
+     */
+    private ThreadPoolExecutor autonExecutor;
+
+    /**
+     * Runs the drivebase and lift feedback loops at a fixed 200Hz on a high
+     * priority thread, separate from the IterativeRobot loop.
+     */
+    private FixedRateLoop controlLoop;
+
+    /**
+     * Puts sensor values on the dashboard and logs the PDP at a lower rate, so
+     * slow NetworkTables and file writes don't delay the control loop.
+     */
+    private FixedRateLoop telemetryLoop;
+
+    /**
+     * Whether the control loop should run the drivebase and lift. Only true while
+     * auton or teleop is running.
+     */
+    private volatile boolean controlEnabled = false;
+
+    /**
+     * How long each stage of the loops takes. The budgets for the whole loops are
+     * their periods, and each stage gets a share of that.
+     */
+    private final LatencyHistogram robotLoopTiming = LoopTiming.get("Robot loop", 0.02),
+            opModeTiming = LoopTiming.get("OpMode periodic", 0.01),
+            intakeTiming = LoopTiming.get("Intake periodic", 0.002),
+            ledTiming = LoopTiming.get("LED update", 0.002),
+            controlLoopTiming = LoopTiming.get("Control loop", 0.005),
+            driveBaseTiming = LoopTiming.get("Drivebase update", 0.003),
+            liftTiming = LoopTiming.get("Lift periodic", 0.002),
+            pdpTiming = LoopTiming.get("PDP log", 0.02);
+
+    private final NumberKey overrunsKey = DashboardPublisher.addNumber("Control loop overruns", 0.5, 0),
+            maxTimeKey = DashboardPublisher.addNumber("Control loop max time (ms)", 0.5, 0.01);
 
     /**
      * The OopMode that is run during teleop. This and autonomous should probably be
@@ -151,7 +213,14 @@ public class Robot extends IterativeRobot implements CommandCallback {
      */
     @Override
     public void robotInit() {
-        autoChoices = new HashMap<String, OpMode>();
+        autoChoices = new ConcurrentHashMap<String, Future<OpMode>>();
+        autonExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(GAME_DATA.length * 2), r -> {
+            Thread t = new Thread(r, "Auton generator");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
         for (Auton a : Auton.values()) {
             chooser.addObject(a.name, a);
         }
@@ -183,6 +252,15 @@ public class Robot extends IterativeRobot implements CommandCallback {
 
         Logging.init();
         Logging.h("Robot Started.");
+
+        // load the motion profiles that were generated when the code was built
+        ProfileStore.load();
+
+        controlLoop = new FixedRateLoop("Control loop", 0.005, Thread.MAX_PRIORITY, this::controlPeriodic);
+        telemetryLoop = new FixedRateLoop("Telemetry", 0.05, Thread.MIN_PRIORITY, this::telemetryPeriodic);
+        controlLoop.start();
+        telemetryLoop.start();
+        Haptics.start();
     }
 
     /**
@@ -202,6 +280,7 @@ public class Robot extends IterativeRobot implements CommandCallback {
      * are initialized.
      */
     public void disabledInit() {
+        Logging.updateMode();
         Logging.h("Robot Disabled.");
         if (autonomous != null)
             autonomous.stop();
@@ -209,75 +288,139 @@ public class Robot extends IterativeRobot implements CommandCallback {
             teleop.stop();
         autonomous = null;
         teleop = null;
+        controlEnabled = false;
         driveBase.setFeedbackActive(false);
         driveBase.driveArcade(0, 0);
         if (pdp != null) pdp.forceLogCurrent();
+        LoopTiming.dump();
+        Logging.l(DashboardPublisher::getStats);
+        // write out everything logged during the match
+        Logging.flush();
     }
 
     public void disabledPeriodic() {
         Auton newAuto = chooser.getSelected();
         if (newAuto != autoSelected) {
             autoSelected = newAuto;
-            autoChoices.put("RR", genAuto("RR"));
-            autoChoices.put("RL", genAuto("RL"));
-            autoChoices.put("LR", genAuto("LR"));
-            autoChoices.put("LL", genAuto("LL"));
+            Logging.h(autoSelected.name + "selected");
+            intake.setState(Intake.State.RESTING_WITH_CUBE);
+            // throw out variants of the old auton that haven't started yet
+            for (Future<OpMode> old : autoChoices.values()) {
+                old.cancel(false);
+            }
+            autonExecutor.purge();
+            for (String gameData : GAME_DATA) {
+                autoChoices.put(gameData, genAuto(autoSelected, gameData));
+            }
         }
     }
 
-    public OpMode genAuto(String gameData) {
+    /**
+     * Starts building an auton on the autonExecutor. The time it takes is put on
+     * the dashboard.
+     *
+     * @param auton    which auton to create
+     * @param gameData the game data to create the auton for
+     * @return the auton once it is built
+     */
+    private Future<OpMode> genAuto(Auton auton, String gameData) {
+        return autonExecutor.submit(() -> {
+            long start = System.nanoTime();
+            OpMode opMode = createAuton(this, auton, gameData);
+            SmartDashboard.putNumber("Auton gen time " + gameData + " (ms)", (System.nanoTime() - start) / 1e6);
+            SmartDashboard.putNumber("Path cache hits", PathCache.getHits());
+            SmartDashboard.putNumber("Path cache misses", PathCache.getMisses());
+            Logging.l(PathCache.getStats());
+            return opMode;
+        });
+    }
+
+    /**
+     * Gets the auton for the given game data, waiting for it if it hasn't been
+     * built yet. If it was never started or failed to build, it's built now.
+     *
+     * @param gameData the first two characters of the game data
+     * @return the auton
+     */
+    private OpMode getAuton(String gameData) {
+        Future<OpMode> choice = autoChoices.get(gameData);
+        if (choice != null && !choice.isCancelled()) {
+            long start = System.nanoTime();
+            boolean wasDone = choice.isDone();
+            try {
+                OpMode opMode = choice.get();
+                if (!wasDone) {
+                    Logging.w("Waited " + (System.nanoTime() - start) / 1e6 + " ms for auton to finish generating");
+                }
+                return opMode;
+            } catch (InterruptedException | ExecutionException e) {
+                Logging.e("Auton failed to generate in the background: " + e);
+            }
+        }
+        Logging.w("Auton was not generated ahead of time, generating it now");
+        return createAuton(this, chooser.getSelected(), gameData);
+    }
+
+    /**
+     * Calls the constructor of the given auton. Static so the autons can also be
+     * built when precomputing their motion profiles.
+     *
+     * @param bot      the robot the auton will run on
+     * @param auton    which auton to create
+     * @param gameData the game data to create the auton for
+     * @return the auton
+     */
+    static OpMode createAuton(Robot bot, Auton auton, String gameData) {
         OpMode autonomous;
-        Logging.h(autoSelected.name + "selected");
-        intake.setState(Intake.State.RESTING_WITH_CUBE);
         //call the constructor of the auton.
-        switch (autoSelected) {
+        switch (auton) {
             case AUTO_LINE:
-                autonomous = new AutoLineAuton(this);
+                autonomous = new AutoLineAuton(bot);
                 break;
             case AUTO_SWITCH:
-                autonomous = new SwitchAuton(this, gameData);
+                autonomous = new SwitchAuton(bot, gameData);
                 break;
 //		case AUTO_SWITCH_2C:
-//			autonomous = new SwitchAuton2Cube(this, gameData);
+//			autonomous = new SwitchAuton2Cube(bot, gameData);
 //			break;
 //		case AUTO_SCALE_L:
-//			autonomous = new LeftScaleAuton(this);
+//			autonomous = new LeftScaleAuton(bot);
 //			break;
 //		case AUTO_SCALE_R:
-//			autonomous = new RightScaleAuton(this);
+//			autonomous = new RightScaleAuton(bot);
 //			break;
 //		case AUTO_2C_SCALE_L:
-//			autonomous = new LeftScaleAuton2Cube(this);
+//			autonomous = new LeftScaleAuton2Cube(bot);
 //			break;
 //		case AUTO_2C_SCALE_R:
-//			autonomous = new RightScaleAuton2Cube(this);
+//			autonomous = new RightScaleAuton2Cube(bot);
 ////			break;
 //		case AUTO_FAST_2C_SCALE_L:
-//			autonomous = new Fast2CubeAuton(this, true, gameData);
+//			autonomous = new Fast2CubeAuton(bot, true, gameData);
 //			break;
 //		case AUTO_FAST_2C_SCALE_R:
-//			autonomous = new Fast2CubeAuton(this, false, gameData);
+//			autonomous = new Fast2CubeAuton(bot, false, gameData);
 //			break;
 //		case AUTO_3C_L:
-//			autonomous = new Scale3CubeAuto(this, true, gameData);
+//			autonomous = new Scale3CubeAuto(bot, true, gameData);
 //			break;
 //		case AUTO_3C_R:
-//			autonomous = new Scale3CubeAuto(this, false, gameData);
+//			autonomous = new Scale3CubeAuto(bot, false, gameData);
 //			break;
             case AUTO_FAST_3C_L:
-                autonomous = new Scale3CubeAutoFast(this, true, gameData);
+                autonomous = new Scale3CubeAutoFast(bot, true, gameData);
                 break;
             case AUTO_FAST_3C_R:
-                autonomous = new Scale3CubeAutoFast(this, false, gameData);
+                autonomous = new Scale3CubeAutoFast(bot, false, gameData);
                 break;
             case OP_AUTO_L:
-                autonomous = new OPScaleAuton(this, true, gameData);
+                autonomous = new OPScaleAuton(bot, true, gameData);
                 break;
             case OP_AUTO_R:
-                autonomous = new OPScaleAuton(this, false, gameData);
+                autonomous = new OPScaleAuton(bot, false, gameData);
                 break;
             default:
-                autonomous = new TestAuton(this, "AUTON NOT FOUND");
+                autonomous = new TestAuton(bot, "AUTON NOT FOUND");
                 Logging.e("Could not get auton from chooser");
                 break;
         }
@@ -291,11 +434,12 @@ public class Robot extends IterativeRobot implements CommandCallback {
      */
     @Override
     public void autonomousInit() {
+        Logging.updateMode();
         Logging.h("Auton enabled.");
         String gameData = DriverStation.getInstance().getGameSpecificMessage();
 
         //TODO: MAKE THIS LESS TERRIBLE OH MY GOD
-        autonomous = autoChoices.get("" + gameData.charAt(0) + gameData.charAt(1));
+        autonomous = getAuton("" + gameData.charAt(0) + gameData.charAt(1));
 
         autoChoices.clear();
 
@@ -316,8 +460,12 @@ public class Robot extends IterativeRobot implements CommandCallback {
         if (isFirstPeriodic) {
             autonomousFirstPeriodic();
         } else {
+            long start = System.nanoTime();
             standardPeriodic();
+            long opModeStart = System.nanoTime();
             autonomous.periodic(deltaTime);
+            opModeTiming.recordSince(opModeStart);
+            robotLoopTiming.recordSince(start);
         }
     }
 
@@ -335,6 +483,7 @@ public class Robot extends IterativeRobot implements CommandCallback {
      */
     @Override
     public void teleopInit() {
+        Logging.updateMode();
         teleop = new Teleop(this);
         standardInit();
     }
@@ -349,8 +498,12 @@ public class Robot extends IterativeRobot implements CommandCallback {
         if (isFirstPeriodic) {
             teleopFirstPeriodic();
         } else {
+            long start = System.nanoTime();
             standardPeriodic();
+            long opModeStart = System.nanoTime();
             teleop.periodic(deltaTime);
+            opModeTiming.recordSince(opModeStart);
+            robotLoopTiming.recordSince(start);
         }
     }
 
@@ -364,6 +517,14 @@ public class Robot extends IterativeRobot implements CommandCallback {
         standardFirstPeriodic();
     }
 
+    /**
+     * Called once when test mode starts.
+     */
+    @Override
+    public void testInit() {
+        Logging.updateMode();
+    }
+
     /**
      * This method is called periodically during test mode.
      */
@@ -376,11 +537,56 @@ public class Robot extends IterativeRobot implements CommandCallback {
      * This method is always called periodically in auton or teleop.
      */
     private void standardPeriodic() {
-        driveBase.update(deltaTime);
+        long start = System.nanoTime();
         intake.periodic(deltaTime);
-        lift.periodic();
+        intakeTiming.recordSince(start);
+        start = System.nanoTime();
         leds.updateLightsToRobotState(this);
-        if (pdp != null) pdp.logCurrent();
+        ledTiming.recordSince(start);
+    }
+
+    /**
+     * Called by the control loop every 5ms. Starts any path given to the
+     * drivebase, then runs the drivebase and lift feedback while enabled.
+     *
+     * @param dT the time since the last run in seconds
+     */
+    private void controlPeriodic(double dT) {
+        long start = System.nanoTime();
+        driveBase.startPendingPath();
+        if (controlEnabled) {
+            long stageStart = System.nanoTime();
+            driveBase.update(dT);
+            driveBaseTiming.recordSince(stageStart);
+            stageStart = System.nanoTime();
+            lift.periodic();
+            liftTiming.recordSince(stageStart);
+        }
+        driveBase.recordSensors();
+        if (controlEnabled) controlLoopTiming.recordSince(start);
+    }
+
+    /**
+     * Called by the telemetry loop every 50ms. Puts values and loop timing on the
+     * dashboard, sends any dashboard keys that changed, and logs the PDP
+     * currents.
+     *
+     * @param dT the time since the last run in seconds
+     */
+    private void telemetryPeriodic(double dT) {
+        driveBase.logToDashboard();
+        lift.logToDashboard();
+        PDP currentPdp = pdp;
+        if (currentPdp != null) {
+            currentPdp.periodic(dT);
+            long start = System.nanoTime();
+            currentPdp.logCurrent();
+            pdpTiming.recordSince(start);
+        }
+        overrunsKey.set(controlLoop.getOverruns());
+        maxTimeKey.set(controlLoop.getMaxRunTime() * 1000);
+        LoopTiming.publish(dT);
+        DashboardPublisher.publish(dT);
     }
 
     public void robotPeriodic() {
@@ -391,8 +597,6 @@ public class Robot extends IterativeRobot implements CommandCallback {
             SmartDashboard.putString("Event Info", ds.getEventName() + " " + ds.getMatchType().toString() + " " + ds.getMatchNumber());
             pdp = new PDP();
         }
-        if (pdp != null) pdp.periodic(deltaTime);
-        lift.logToDashboard();
     }
 
     /**
@@ -411,6 +615,7 @@ public class Robot extends IterativeRobot implements CommandCallback {
     private void standardFirstPeriodic() {
         lastTime = timer.get();
         isFirstPeriodic = false;
+        controlEnabled = true;
     }
 
     /**
@@ -0,0 +1,301 @@
+package utilities;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Puts values on the SmartDashboard from a background thread instead of the
+ * thread that makes them. Subsystems register a typed key once, then set its
+ * value as often as they like, which only stores it. publish is called from a
+ * low priority loop, and only sends values that have changed (by more than a
+ * deadband, for numbers) and haven't been sent within the key's period. Each
+ * key counts how many times it has been sent, so the keys using the most
+ * bandwidth can be found.
+ *
+ * @author jack
+ *
+ */
+public class DashboardPublisher {
+	/**
+	 * The period used for keys that don't set one, in seconds.
+	 */
+	public static final double DEFAULT_PERIOD = 0.1;
+
+	/**
+	 * Every key. Replaced with a bigger copy when a key is added, so publish can
+	 * go through it without locking.
+	 */
+	private static volatile Key[] keys = new Key[0];
+
+	/**
+	 * A value on the dashboard.
+	 */
+	public static abstract class Key {
+		private final String name;
+		private final double period;
+		private double timeSincePublish;
+		private boolean published = false;
+		private volatile long publishCount = 0;
+
+		private Key(String keyName, double publishPeriod) {
+			name = keyName;
+			period = publishPeriod;
+			timeSincePublish = publishPeriod;
+		}
+
+		/**
+		 *
+		 * @return the name of the key on the dashboard
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 *
+		 * @return the number of times the value has been sent to the dashboard
+		 */
+		public long getPublishCount() {
+			return publishCount;
+		}
+
+		/**
+		 * sends the value if it's time to and it has changed
+		 */
+		private void publish(double deltaTime) {
+			timeSincePublish += deltaTime;
+			if (timeSincePublish >= period && (!published || hasChanged())) {
+				put();
+				published = true;
+				publishCount++;
+				timeSincePublish = 0;
+			}
+		}
+
+		/**
+		 * @return whether the value is different enough from the last one sent
+		 */
+		abstract boolean hasChanged();
+
+		/**
+		 * sends the value to the dashboard and remembers it
+		 */
+		abstract void put();
+	}
+
+	/**
+	 * A number on the dashboard.
+	 */
+	public static class NumberKey extends Key {
+		private final double deadband;
+		private volatile double value = 0;
+		private double lastPublished;
+
+		private NumberKey(String name, double period, double changeDeadband) {
+			super(name, period);
+			deadband = changeDeadband;
+		}
+
+		/**
+		 * sets the value to send. Can be called from any thread.
+		 *
+		 * @param newValue
+		 *            the value
+		 */
+		public void set(double newValue) {
+			value = newValue;
+		}
+
+		@Override
+		boolean hasChanged() {
+			double v = value;
+			return Math.abs(v - lastPublished) > deadband || (Double.isNaN(v) != Double.isNaN(lastPublished));
+		}
+
+		@Override
+		void put() {
+			lastPublished = value;
+			SmartDashboard.putNumber(getName(), lastPublished);
+		}
+	}
+
+	/**
+	 * A boolean on the dashboard.
+	 */
+	public static class BooleanKey extends Key {
+		private volatile boolean value = false;
+		private boolean lastPublished;
+
+		private BooleanKey(String name, double period) {
+			super(name, period);
+		}
+
+		/**
+		 * sets the value to send. Can be called from any thread.
+		 *
+		 * @param newValue
+		 *            the value
+		 */
+		public void set(boolean newValue) {
+			value = newValue;
+		}
+
+		@Override
+		boolean hasChanged() {
+			return value != lastPublished;
+		}
+
+		@Override
+		void put() {
+			lastPublished = value;
+			SmartDashboard.putBoolean(getName(), lastPublished);
+		}
+	}
+
+	/**
+	 * A string on the dashboard. Setting it to a constant or a value that was
+	 * already made (like an enum's name) doesn't create any garbage.
+	 */
+	public static class StringKey extends Key {
+		private volatile String value = "";
+		private String lastPublished;
+
+		private StringKey(String name, double period) {
+			super(name, period);
+		}
+
+		/**
+		 * sets the value to send. Can be called from any thread.
+		 *
+		 * @param newValue
+		 *            the value, null is sent as "null"
+		 */
+		public void set(String newValue) {
+			value = String.valueOf(newValue);
+		}
+
+		@Override
+		boolean hasChanged() {
+			String v = value;
+			return v != lastPublished && !v.equals(lastPublished);
+		}
+
+		@Override
+		void put() {
+			lastPublished = value;
+			SmartDashboard.putString(getName(), lastPublished);
+		}
+	}
+
+	private static synchronized <K extends Key> K register(K key) {
+		Key[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+		newKeys[keys.length] = key;
+		keys = newKeys;
+		return key;
+	}
+
+	/**
+	 * registers a number that is sent when it changes by more than the deadband,
+	 * at most once per period
+	 *
+	 * @param name
+	 *            the key on the dashboard
+	 * @param period
+	 *            the shortest time between sends, in seconds
+	 * @param deadband
+	 *            how much the value has to change to be sent again
+	 * @return the key to set the value of
+	 */
+	public static NumberKey addNumber(String name, double period, double deadband) {
+		return register(new NumberKey(name, period, deadband));
+	}
+
+	/**
+	 * registers a number that is sent whenever it changes, at most every
+	 * DEFAULT_PERIOD
+	 *
+	 * @param name
+	 *            the key on the dashboard
+	 * @return the key to set the value of
+	 */
+	public static NumberKey addNumber(String name) {
+		return addNumber(name, DEFAULT_PERIOD, 0);
+	}
+
+	/**
+	 * registers a boolean that is sent when it changes, at most once per period
+	 *
+	 * @param name
+	 *            the key on the dashboard
+	 * @param period
+	 *            the shortest time between sends, in seconds
+	 * @return the key to set the value of
+	 */
+	public static BooleanKey addBoolean(String name, double period) {
+		return register(new BooleanKey(name, period));
+	}
+
+	/**
+	 * registers a boolean that is sent when it changes, at most every
+	 * DEFAULT_PERIOD
+	 *
+	 * @param name
+	 *            the key on the dashboard
+	 * @return the key to set the value of
+	 */
+	public static BooleanKey addBoolean(String name) {
+		return addBoolean(name, DEFAULT_PERIOD);
+	}
+
+	/**
+	 * registers a string that is sent when it changes, at most once per period
+	 *
+	 * @param name
+	 *            the key on the dashboard
+	 * @param period
+	 *            the shortest time between sends, in seconds
+	 * @return the key to set the value of
+	 */
+	public static StringKey addString(String name, double period) {
+		return register(new StringKey(name, period));
+	}
+
+	/**
+	 * registers a string that is sent when it changes, at most every
+	 * DEFAULT_PERIOD
+	 *
+	 * @param name
+	 *            the key on the dashboard
+	 * @return the key to set the value of
+	 */
+	public static StringKey addString(String name) {
+		return addString(name, DEFAULT_PERIOD);
+	}
+
+	/**
+	 * sends the keys that are due and have changed. Should only be called from
+	 * one thread, which should be low priority.
+	 *
+	 * @param deltaTime
+	 *            the time since the last call in seconds
+	 */
+	public static void publish(double deltaTime) {
+		for (Key key : keys) {
+			key.publish(deltaTime);
+		}
+	}
+
+	/**
+	 * @return every key and how many times it has been sent, most sent first
+	 */
+	public static String getStats() {
+		Key[] sorted = keys.clone();
+		Arrays.sort(sorted, (a, b) -> Long.compare(b.getPublishCount(), a.getPublishCount()));
+		StringBuilder out = new StringBuilder("Dashboard publish counts:");
+		for (Key key : sorted) {
+			out.append("\n  ").append(key.getName()).append(": ").append(key.getPublishCount());
+		}
+		return out.toString();
+	}
+}
@@ -0,0 +1,131 @@
+package utilities;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a task on its own thread at a fixed rate, timed with System.nanoTime so
+ * it isn't affected by changes to the clock. If a run takes longer than the
+ * period, the missed runs are skipped instead of run back to back.
+ *
+ * @author jack
+ *
+ */
+public class FixedRateLoop implements Runnable {
+	/**
+	 * Something to run every loop.
+	 */
+	public interface Task {
+		/**
+		 *
+		 * @param deltaTime
+		 *            the time since the last run in seconds
+		 */
+		void run(double deltaTime);
+	}
+
+	private final String name;
+	private final long periodNanos;
+	private final int priority;
+	private final Task task;
+
+	private Thread thread;
+	private volatile boolean running = false;
+
+	private volatile long overruns = 0;
+	private volatile long maxRunNanos = 0;
+
+	/**
+	 *
+	 * @param loopName
+	 *            the name of the thread
+	 * @param period
+	 *            the time between runs in seconds
+	 * @param threadPriority
+	 *            the priority of the thread
+	 * @param loopTask
+	 *            the task to run
+	 */
+	public FixedRateLoop(String loopName, double period, int threadPriority, Task loopTask) {
+		name = loopName;
+		periodNanos = (long) (period * 1e9);
+		priority = threadPriority;
+		task = loopTask;
+	}
+
+	/**
+	 * starts the thread if it isn't running already
+	 */
+	public synchronized void start() {
+		if (thread == null) {
+			running = true;
+			thread = new Thread(this, name);
+			thread.setDaemon(true);
+			thread.setPriority(priority);
+			thread.start();
+		}
+	}
+
+	/**
+	 * stops the thread and waits for it to finish
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of times a run took longer than the period
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 *
+	 * @return the longest a run has taken, in seconds
+	 */
+	public double getMaxRunTime() {
+		return maxRunNanos / 1e9;
+	}
+
+	@Override
+	public void run() {
+		long next = System.nanoTime();
+		long last = next;
+		while (running) {
+			next += periodNanos;
+			long now;
+			while ((now = System.nanoTime()) < next && running) {
+				LockSupport.parkNanos(next - now);
+			}
+			if (!running) {
+				break;
+			}
+			double deltaTime = (now - last) / 1e9;
+			last = now;
+			try {
+				task.run(deltaTime);
+			} catch (RuntimeException e) {
+				Logging.e(name + " threw " + e);
+			}
+			long end = System.nanoTime();
+			if (end - now > maxRunNanos) {
+				maxRunNanos = end - now;
+			}
+			if (end - next > periodNanos) {
+				// skip the runs that were missed
+				overruns++;
+				next = end;
+			}
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package utilities;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of how long something takes, in nanoseconds. Buckets are spaced
+ * like an HDR histogram: evenly below 64ns, and above that 32 buckets for every
+ * power of two, so every value is stored to within about 3%. Recording doesn't
+ * allocate or lock. Only one thread should record, but any thread can read.
+ *
+ * @author jack
+ *
+ */
+public class LatencyHistogram {
+	/**
+	 * The number of buckets for each power of two.
+	 */
+	private static final int SUB_BUCKETS = 32;
+	private static final int SUB_BUCKET_BITS = 5;
+	/**
+	 * Values are capped at 2^36ns (about a minute).
+	 */
+	private static final int MAX_EXPONENT = 36 - SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = (MAX_EXPONENT + 2) * SUB_BUCKETS;
+
+	private final String name;
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private volatile long count = 0;
+	private volatile long max = 0;
+	private volatile long overruns = 0;
+	private volatile long budgetNanos;
+
+	/**
+	 *
+	 * @param histogramName
+	 *            the name to show on the dashboard and in the log
+	 * @param budget
+	 *            how long a run can take before it counts as an overrun, in
+	 *            seconds
+	 */
+	public LatencyHistogram(String histogramName, double budget) {
+		name = histogramName;
+		setBudget(budget);
+	}
+
+	/**
+	 *
+	 * @return the name of the histogram
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * sets how long a run can take before it counts as an overrun
+	 *
+	 * @param budget
+	 *            the budget in seconds
+	 */
+	public void setBudget(double budget) {
+		budgetNanos = (long) (budget * 1e9);
+	}
+
+	/**
+	 *
+	 * @return the budget in seconds
+	 */
+	public double getBudget() {
+		return budgetNanos / 1e9;
+	}
+
+	/**
+	 * records how long a run took since the given start time
+	 *
+	 * @param startNanos
+	 *            the System.nanoTime when the run started
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * records how long a run took
+	 *
+	 * @param nanos
+	 *            the time in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		int index = getIndex(nanos);
+		counts.lazySet(index, counts.get(index) + 1);
+		count++;
+		if (nanos > max) {
+			max = nanos;
+		}
+		if (nanos > budgetNanos) {
+			overruns++;
+		}
+	}
+
+	private static int getIndex(long nanos) {
+		if (nanos < 2 * SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		return exponent * SUB_BUCKETS + (int) (nanos >>> exponent);
+	}
+
+	/**
+	 *
+	 * @return the largest value a bucket holds
+	 */
+	private static long getBucketTop(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS - 1;
+		long sub = index - exponent * SUB_BUCKETS;
+		return ((sub + 1) << exponent) - 1;
+	}
+
+	/**
+	 *
+	 * @return the number of runs recorded
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 *
+	 * @return the number of runs that took longer than the budget
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 *
+	 * @return the longest run in seconds
+	 */
+	public double getMax() {
+		return max / 1e9;
+	}
+
+	/**
+	 * finds the time that the given fraction of runs took less than
+	 *
+	 * @param percentile
+	 *            the percentile, from 0 to 100
+	 * @return the time in seconds, or 0 if nothing was recorded
+	 */
+	public double getPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= target) {
+				// the bucket top can be past the real max
+				return Math.min(getBucketTop(i), max) / 1e9;
+			}
+		}
+		return max / 1e9;
+	}
+
+	/**
+	 * clears everything recorded. Runs recorded while resetting may be lost.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		count = 0;
+		max = 0;
+		overruns = 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: n=%d p50=%.3fms p99=%.3fms max=%.3fms overruns=%d (budget %.1fms)", name,
+				getCount(), getPercentile(50) * 1000, getPercentile(99) * 1000, getMax() * 1000, getOverruns(),
+				getBudget() * 1000);
+	}
+}
@@ -0,0 +1,149 @@
+package utilities;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import utilities.Logging.Priority;
+
+/**
+ * A bounded queue of log messages that any number of threads can add to
+ * without locking, and one thread takes out of. Each slot has a sequence number
+ * saying whether it is ready to be written to or read from (Dmitry Vyukov's
+ * bounded queue). When the queue is full new messages are dropped and counted.
+ *
+ * @author jack
+ *
+ */
+public class LogQueue {
+	/**
+	 * Something that writes out the messages taken from the queue.
+	 */
+	public interface Sink {
+		/**
+		 *
+		 * @param p
+		 *            the priority of the message
+		 * @param message
+		 *            the message
+		 */
+		void write(Priority p, String message);
+	}
+
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final Priority[] priorities;
+	private final String[] messages;
+	/**
+	 * The number of messages added to the queue. Claimed by producers with
+	 * compareAndSet.
+	 */
+	private final AtomicLong enqueuePosition = new AtomicLong();
+	/**
+	 * The number of messages taken out. Only changed by the consumer.
+	 */
+	private volatile long dequeuePosition = 0;
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 *
+	 * @param capacity
+	 *            the most messages the queue holds, rounded up to a power of two
+	 */
+	public LogQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		mask = size - 1;
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		priorities = new Priority[size];
+		messages = new String[size];
+	}
+
+	/**
+	 * adds a message to the queue. Can be called from any thread.
+	 *
+	 * @param p
+	 *            the priority of the message
+	 * @param message
+	 *            the message
+	 * @return false if the queue was full and the message was dropped
+	 */
+	public boolean offer(Priority p, String message) {
+		long position = enqueuePosition.get();
+		while (true) {
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (enqueuePosition.compareAndSet(position, position + 1)) {
+					priorities[index] = p;
+					messages[index] = message;
+					// publishes the slot to the consumer
+					sequences.lazySet(index, position + 1);
+					return true;
+				}
+				position = enqueuePosition.get();
+			} else if (difference < 0) {
+				// the consumer hasn't freed this slot yet, so the queue is full
+				dropped.incrementAndGet();
+				return false;
+			} else {
+				// another producer took this slot
+				position = enqueuePosition.get();
+			}
+		}
+	}
+
+	/**
+	 * takes every ready message out of the queue and writes it. Should only be
+	 * called from one thread.
+	 *
+	 * @param sink
+	 *            where to write the messages
+	 * @return the number of messages written
+	 */
+	public int drain(Sink sink) {
+		int count = 0;
+		long position = dequeuePosition;
+		while (true) {
+			int index = (int) (position & mask);
+			if (sequences.get(index) != position + 1) {
+				break;
+			}
+			Priority p = priorities[index];
+			String message = messages[index];
+			messages[index] = null;
+			// frees the slot for the lap after this one
+			sequences.lazySet(index, position + mask + 1);
+			position++;
+			dequeuePosition = position;
+			sink.write(p, message);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 *
+	 * @return the number of messages ever added
+	 */
+	public long getEnqueued() {
+		return enqueuePosition.get();
+	}
+
+	/**
+	 *
+	 * @return the number of messages ever taken out
+	 */
+	public long getDequeued() {
+		return dequeuePosition;
+	}
+
+	/**
+	 *
+	 * @return the number of messages dropped because the queue was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+}
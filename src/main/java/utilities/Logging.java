@@ -1,5 +1,8 @@
 package utilities;
 
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Timer;
 
@@ -18,13 +21,82 @@ public class Logging {
 	private static DriverStation DS = DriverStation.getInstance();
 	private static Timer uptime = new Timer();
 
-	private static Priority minPriority = Priority.HIGH;
-	private static boolean enableWarn = true;
-	private static boolean enableError = true;
+	private static volatile Priority minPriority = Priority.HIGH;
+	private static volatile boolean enableWarn = true;
+	private static volatile boolean enableError = true;
+	/**
+	 * The mode part of the prefix, updated by updateMode when the robot changes
+	 * mode so it isn't looked up for every message.
+	 */
+	private static volatile String modePrefix = "[Disabled]";
+	
+	/**
+	 * Messages waiting to be written. Printing to the console and the driver
+	 * station is slow, so it's done by the writer thread instead of the thread
+	 * that logs.
+	 */
+	private static final int QUEUE_SIZE = 1024;
+	private static final LogQueue queue = new LogQueue(QUEUE_SIZE);
+	/**
+	 * How long the writer waits when there is nothing to write, in nanoseconds.
+	 */
+	private static final long WRITE_PERIOD = 10000000L;
+	/**
+	 * The longest flush waits, in nanoseconds.
+	 */
+	private static final long FLUSH_TIMEOUT = 1000000000L;
+	/**
+	 * Plain messages are collected here and printed together. Only used by the
+	 * writer thread.
+	 */
+	private static final StringBuilder batch = new StringBuilder(4096);
+	/**
+	 * The number of messages from the queue that have been written
+	 */
+	private static volatile long written = 0;
+	private static long droppedReported = 0;
+	private static final Thread writer = new Thread(Logging::writeMessages, "Log writer");
+	static {
+		writer.setDaemon(true);
+		writer.setPriority(Thread.MIN_PRIORITY);
+		writer.start();
+	}
 	
 	public static void init() {
 		uptime.start();
 		uptime.reset();
+		updateMode();
+	}
+	
+	/**
+	 * Reads the robot's mode from the driver station for the message prefix.
+	 * Should be called whenever the mode changes.
+	 */
+	public static void updateMode() {
+		String mode =                   "  [Teleop]";
+		if(DS.isAutonomous()) mode =    "   [Auton]";
+		else if(DS.isTest()) mode =     "    [Test]";
+		else if(DS.isDisabled()) mode = "[Disabled]";
+		modePrefix = mode;
+	}
+	
+	/**
+	 * Checks whether messages of a priority would be logged. Use this before
+	 * building anything expensive to log.
+	 * 
+	 * @param p
+	 *            the priority
+	 * @return whether messages with the priority are logged
+	 */
+	public static boolean isEnabled(Priority p) {
+		switch (p) {
+		case WARN:
+			return enableWarn;
+		case ERROR:
+			return enableError;
+		default:
+			return p.intValue >= minPriority.intValue;
+		}
 	}
 	
 	/**
@@ -66,29 +138,101 @@ public class Logging {
 	}
 
 	/**
-	 * Logs a message.
+	 * Logs a message. It's printed by the writer thread, or dropped if too many
+	 * messages are waiting.
 	 * 
 	 * @param message
 	 *            the message to log
 	 */
 	public static void logMessage(Object message) {
-		System.out.println(message.toString());
+		queue.offer(Priority.LOW, message.toString());
 	}
 	
 	/**
 	 * logs a warning
 	 */
 	public static void logWarning(Object message) {
-		DriverStation.reportWarning(message.toString(), false);
+		queue.offer(Priority.WARN, message.toString());
 	}
 	
 	public static void logError(Object message) {
-		DriverStation.reportError(message.toString(), false);
+		queue.offer(Priority.ERROR, message.toString());
 	}
 	
+	/**
+	 * @return the number of messages dropped because too many were waiting
+	 */
+	public static long getDropped() {
+		return queue.getDropped();
+	}
 	
 	/**
-	 * Logs a message if the priority is high enough.
+	 * Waits for every message logged before this was called to be written, or
+	 * for up to a second if the writer can't keep up.
+	 */
+	public static void flush() {
+		long target = queue.getEnqueued();
+		long deadline = System.nanoTime() + FLUSH_TIMEOUT;
+		LockSupport.unpark(writer);
+		while (written < target && System.nanoTime() < deadline) {
+			LockSupport.parkNanos(1000000L);
+		}
+	}
+	
+	/**
+	 * Writes a message taken from the queue. Plain messages are added to the
+	 * batch, and warnings and errors print the batch first so everything stays
+	 * in order.
+	 */
+	private static void writeMessage(Priority p, String message) {
+		switch (p) {
+		case WARN:
+			printBatch();
+			DriverStation.reportWarning(message, false);
+			break;
+		case ERROR:
+			printBatch();
+			DriverStation.reportError(message, false);
+			break;
+		default:
+			batch.append(message).append('\n');
+			break;
+		}
+	}
+	
+	private static void printBatch() {
+		if (batch.length() > 0) {
+			System.out.print(batch);
+			System.out.flush();
+			batch.setLength(0);
+		}
+	}
+	
+	/**
+	 * Run by the writer thread. Writes messages as they come in, and reports how
+	 * many were dropped.
+	 */
+	private static void writeMessages() {
+		while (true) {
+			int count = queue.drain(Logging::writeMessage);
+			long dropped = queue.getDropped();
+			if (dropped != droppedReported) {
+				batch.append("[Logging] dropped ").append(dropped - droppedReported)
+						.append(" messages because the queue was full\n");
+				droppedReported = dropped;
+			}
+			printBatch();
+			written += count;
+			if (count == 0) {
+				LockSupport.parkNanos(WRITE_PERIOD);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Logs a message if the priority is high enough. The message's toString is
+	 * only called if it will be logged.
 	 * 
 	 * @param message
 	 *            the message to log
@@ -96,24 +240,55 @@ public class Logging {
 	 *            the priority of the message
 	 */
 	public static void logMessage(Object message, Priority p) {
-		
-		message = message.toString();
+		if (!isEnabled(p)) {
+			return;
+		}
+		StringBuilder out = appendPrefix(new StringBuilder(64));
 		switch (p) {
 		case WARN:
-			if (enableWarn)
-				logWarning(getPrefix() + "[WARNING] " + message);
+			logWarning(out.append("[WARNING] ").append(message));
 			break;
 		case ERROR:
-			if (enableError)
-				logError(getPrefix() + "[ERROR] " + message);
+			logError(out.append("[ERROR] ").append(message));
 			break;
 		default:
-			if (p.intValue >= minPriority.intValue) {
-				logMessage(getPrefix() + message);
-			}
+			logMessage(out.append(message));
 			break;
 		}
 	}
+	
+	/**
+	 * Logs a message if the priority is high enough. The supplier is only called
+	 * if the message will be logged, so it can build the message without slowing
+	 * down anything when the priority is disabled.
+	 * 
+	 * @param message
+	 *            builds the message to log
+	 * @param p
+	 *            the priority of the message
+	 */
+	public static void logMessage(Supplier<?> message, Priority p) {
+		if (isEnabled(p)) {
+			logMessage(message.get(), p);
+		}
+	}
+	
+	/**
+	 * Logs a message made with String.format if the priority is high enough. The
+	 * message is only formatted if it will be logged.
+	 * 
+	 * @param p
+	 *            the priority of the message
+	 * @param format
+	 *            the format string
+	 * @param args
+	 *            the arguments for the format string
+	 */
+	public static void logFormat(Priority p, String format, Object... args) {
+		if (isEnabled(p)) {
+			logMessage(String.format(format, args), p);
+		}
+	}
 	/**
 	 * Logs a message if the priority is high enough.
 	 * 
@@ -169,13 +344,60 @@ public class Logging {
 		logMessage(message, Priority.ERROR);
 	}
 	
+	// Lazy versions, for messages that take work to build
+	public static void l(Supplier<?> message){
+		logMessage(message, Priority.LOW);
+	}
+	public static void m(Supplier<?> message){
+		logMessage(message, Priority.MID);
+	}
+	public static void h(Supplier<?> message){
+		logMessage(message, Priority.HIGH);
+	}
+	public static void w(Supplier<?> message){
+		logMessage(message, Priority.WARN);
+	}
+	public static void e(Supplier<?> message){
+		logMessage(message, Priority.ERROR);
+	}
+	
+	// String.format versions, only formatted if the message is logged
+	public static void l(String format, Object... args){
+		logFormat(Priority.LOW, format, args);
+	}
+	public static void m(String format, Object... args){
+		logFormat(Priority.MID, format, args);
+	}
+	public static void h(String format, Object... args){
+		logFormat(Priority.HIGH, format, args);
+	}
+	public static void w(String format, Object... args){
+		logFormat(Priority.WARN, format, args);
+	}
+	public static void e(String format, Object... args){
+		logFormat(Priority.ERROR, format, args);
+	}
+	
 	public static String getPrefix() {
-		String mode =                   "  [Teleop]";
-		if(DS.isAutonomous()) mode =    "   [Auton]";
-		else if(DS.isTest()) mode =     "    [Test]";
-		else if(DS.isDisabled()) mode = "[Disabled]";
-		
-		return mode + " [" + String.format("%.2f", uptime.get()) + "] ";
+		return appendPrefix(new StringBuilder(24)).toString();
+	}
+	
+	/**
+	 * Adds the mode and uptime to the start of a message.
+	 * 
+	 * @param out
+	 *            the message being built
+	 * @return out
+	 */
+	private static StringBuilder appendPrefix(StringBuilder out) {
+		// uptime in hundredths of a second, without String.format
+		long hundredths = Math.round(uptime.get() * 100);
+		long fraction = hundredths % 100;
+		out.append(modePrefix).append(" [").append(hundredths / 100).append('.');
+		if (fraction < 10) {
+			out.append('0');
+		}
+		return out.append(fraction).append("] ");
 	}
 	
 	public static void resetUptime() {
@@ -0,0 +1,139 @@
+package utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Keeps a LatencyHistogram for every stage of the robot loops and every
+ * command, puts them on the dashboard once a second, and writes them to a file
+ * when the robot is disabled.
+ *
+ * @author jack
+ *
+ */
+public class LoopTiming {
+	/**
+	 * The budget used for histograms that don't set one, in seconds.
+	 */
+	public static final double DEFAULT_BUDGET = 0.002;
+	/**
+	 * The time between putting the histograms on the dashboard, in seconds.
+	 */
+	public static final double PUBLISH_PERIOD = 1.0;
+	private static final String DIR = "/home/lvuser/loop_timing/";
+
+	private static final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+	/**
+	 * The histograms in the order they were made, so the dashboard and the log
+	 * keep the same order.
+	 */
+	private static final ArrayList<LatencyHistogram> ordered = new ArrayList<LatencyHistogram>();
+	private static double timeSincePublish = 0;
+
+	/**
+	 * gets the histogram with the given name, making it with the default budget
+	 * if it doesn't exist yet. Look these up once and keep them instead of calling
+	 * this every loop.
+	 *
+	 * @param name
+	 *            the name of the stage or command
+	 * @return the histogram
+	 */
+	public static LatencyHistogram get(String name) {
+		return get(name, DEFAULT_BUDGET);
+	}
+
+	/**
+	 * gets the histogram with the given name, making it if it doesn't exist yet.
+	 *
+	 * @param name
+	 *            the name of the stage or command
+	 * @param budget
+	 *            how long the stage can take before it counts as an overrun, in
+	 *            seconds. Only used if the histogram is new.
+	 * @return the histogram
+	 */
+	public static LatencyHistogram get(String name, double budget) {
+		LatencyHistogram histogram = histograms.get(name);
+		if (histogram == null) {
+			synchronized (ordered) {
+				histogram = histograms.get(name);
+				if (histogram == null) {
+					histogram = new LatencyHistogram(name, budget);
+					histograms.put(name, histogram);
+					ordered.add(histogram);
+				}
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * @return a copy of every histogram, in the order they were made
+	 */
+	private static LatencyHistogram[] getAll() {
+		synchronized (ordered) {
+			return ordered.toArray(new LatencyHistogram[ordered.size()]);
+		}
+	}
+
+	/**
+	 * puts the histograms on the dashboard if it has been PUBLISH_PERIOD since
+	 * the last time. Should be called from a low priority loop.
+	 *
+	 * @param deltaTime
+	 *            the time since the last call in seconds
+	 */
+	public static void publish(double deltaTime) {
+		timeSincePublish += deltaTime;
+		if (timeSincePublish < PUBLISH_PERIOD) {
+			return;
+		}
+		timeSincePublish = 0;
+		for (LatencyHistogram h : getAll()) {
+			String name = h.getName();
+			SmartDashboard.putNumber(name + " p50 (ms)", h.getPercentile(50) * 1000);
+			SmartDashboard.putNumber(name + " p99 (ms)", h.getPercentile(99) * 1000);
+			SmartDashboard.putNumber(name + " max (ms)", h.getMax() * 1000);
+			SmartDashboard.putNumber(name + " overruns", h.getOverruns());
+		}
+	}
+
+	/**
+	 * writes every histogram that recorded something to a new csv file, then
+	 * resets them so the next enable starts fresh.
+	 */
+	public static void dump() {
+		LatencyHistogram[] all = getAll();
+		File dir = new File(DIR);
+		dir.mkdirs();
+		String[] files = dir.list();
+		if (files == null) {
+			Logging.w("\"" + DIR + "\" is not a directory, not saving loop timing");
+			return;
+		}
+		String logName = DIR + "timing" + files.length + ".csv";
+		try (PrintStream out = new PrintStream(logName)) {
+			out.println("Stage,\tCount,\tp50 (ms),\tp99 (ms),\tMax (ms),\tOverruns,\tBudget (ms)");
+			for (LatencyHistogram h : all) {
+				if (h.getCount() == 0) {
+					continue;
+				}
+				out.println(String.format("%s,\t%d,\t%.3f,\t%.3f,\t%.3f,\t%d,\t%.1f", h.getName(), h.getCount(),
+						h.getPercentile(50) * 1000, h.getPercentile(99) * 1000, h.getMax() * 1000, h.getOverruns(),
+						h.getBudget() * 1000));
+				Logging.l(h);
+			}
+		} catch (IOException e) {
+			Logging.w("Could not write loop timing to \"" + logName + "\"");
+		}
+		for (LatencyHistogram h : all) {
+			h.reset();
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package utilities;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of numbers written by one thread and read by others without locking
+ * (a seqlock). The writer bumps a sequence number before and after writing, and
+ * readers try again if the sequence number was odd or changed while they were
+ * reading, so they always get a set of values from the same write.
+ *
+ * @author jack
+ *
+ */
+public class Snapshot {
+	private final AtomicLong sequence = new AtomicLong();
+	private final AtomicLongArray values;
+
+	/**
+	 *
+	 * @param size
+	 *            the number of values in the snapshot
+	 */
+	public Snapshot(int size) {
+		values = new AtomicLongArray(size);
+	}
+
+	/**
+	 *
+	 * @return the number of values in the snapshot
+	 */
+	public int size() {
+		return values.length();
+	}
+
+	/**
+	 * starts writing new values. Only one thread should ever write.
+	 */
+	public void beginWrite() {
+		sequence.incrementAndGet();
+	}
+
+	/**
+	 * sets a value. Must be between beginWrite and endWrite.
+	 *
+	 * @param index
+	 *            the index of the value
+	 * @param value
+	 *            the new value
+	 */
+	public void set(int index, double value) {
+		values.set(index, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * finishes writing, so readers can see the new values.
+	 */
+	public void endWrite() {
+		sequence.incrementAndGet();
+	}
+
+	/**
+	 * reads all the values from the latest write.
+	 *
+	 * @param out
+	 *            the array to copy the values into, at least size() long
+	 */
+	public void read(double[] out) {
+		while (true) {
+			long before = sequence.get();
+			if ((before & 1) != 0) {
+				// in the middle of a write
+				Thread.yield();
+				continue;
+			}
+			for (int i = 0; i < out.length && i < values.length(); i++) {
+				out[i] = Double.longBitsToDouble(values.get(i));
+			}
+			if (sequence.get() == before) {
+				return;
+			}
+		}
+	}
+}
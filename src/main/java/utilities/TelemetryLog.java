@@ -0,0 +1,228 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A binary log of PDP readings. Records are fixed size and are added to a
+ * lock-free ring buffer by one thread, then a background thread writes them to
+ * the file in large batches, so the thread logging never waits on the flash.
+ * The file is preallocated and its header keeps the number of records written,
+ * so a log is readable even if the robot loses power. TelemetryLogConverter
+ * turns a log into a csv.
+ *
+ * File layout (little endian):
+ *
+ * <pre>
+ * header: int magic, int version, int channels, int record size, long record count
+ * record: double time, float voltage, float temperature, float[channels] currents, int mode
+ * </pre>
+ *
+ * @author jack
+ *
+ */
+public class TelemetryLog implements Runnable {
+	public static final int MAGIC = 0x544C4F47;
+	public static final int VERSION = 1;
+	/**
+	 * The number of current channels in each record.
+	 */
+	public static final int CHANNELS = 16;
+	public static final int HEADER_SIZE = 24;
+	public static final int RECORD_SIZE = 8 + 4 + 4 + CHANNELS * 4 + 4;
+	/**
+	 * Where the record count is in the header.
+	 */
+	public static final int COUNT_OFFSET = 16;
+
+	/**
+	 * The modes stored in each record.
+	 */
+	public static final int MODE_DISABLED = 0, MODE_AUTON = 1, MODE_TELEOP = 2;
+
+	/**
+	 * The number of records the ring holds. Must be a power of two.
+	 */
+	private static final int RING_SIZE = 256;
+	/**
+	 * The most records written at once.
+	 */
+	private static final int BATCH_SIZE = 64;
+	/**
+	 * How long the writer waits between batches, in nanoseconds.
+	 */
+	private static final long WRITE_PERIOD = 500000000L;
+	/**
+	 * The number of records to make room for when the file is made. A match at
+	 * 10 records per second is under 2000.
+	 */
+	private static final int PREALLOCATED_RECORDS = 8192;
+
+	private final ByteBuffer ring = ByteBuffer.allocateDirect(RING_SIZE * RECORD_SIZE)
+			.order(ByteOrder.LITTLE_ENDIAN);
+	/**
+	 * The number of records added. Only changed by the logging thread.
+	 */
+	private final AtomicLong head = new AtomicLong();
+	/**
+	 * The number of records written to the file. Only changed by the writer.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long dropped = 0;
+
+	/**
+	 * The writer's view of the ring, so it can copy records without changing the
+	 * ring's position.
+	 */
+	private final ByteBuffer ringReader = ring.duplicate();
+	private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_SIZE * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private final ByteBuffer count = ByteBuffer.allocateDirect(8).order(ByteOrder.LITTLE_ENDIAN);
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private long recordsWritten = 0;
+
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	/**
+	 * makes a new log file and starts the writer thread
+	 *
+	 * @param fileName
+	 *            the file to log to. Anything already in it is overwritten.
+	 * @throws IOException
+	 *             if the file can't be made
+	 */
+	public TelemetryLog(String fileName) throws IOException {
+		file = new RandomAccessFile(fileName, "rw");
+		file.setLength(HEADER_SIZE + (long) PREALLOCATED_RECORDS * RECORD_SIZE);
+		channel = file.getChannel();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(CHANNELS).putInt(RECORD_SIZE).putLong(0);
+		header.flip();
+		channel.write(header, 0);
+
+		thread = new Thread(this, "Telemetry writer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * adds a record to be written. Doesn't allocate or block. Should only be
+	 * called from one thread.
+	 *
+	 * @param time
+	 *            the time of the reading in seconds
+	 * @param voltage
+	 *            the battery voltage
+	 * @param temperature
+	 *            the PDP temperature
+	 * @param currents
+	 *            the current of each channel, at least CHANNELS long
+	 * @param mode
+	 *            one of the MODE constants
+	 * @return false if the ring was full and the record was dropped
+	 */
+	public boolean append(double time, double voltage, double temperature, double[] currents, int mode) {
+		long h = head.get();
+		if (h - tail.get() >= RING_SIZE) {
+			dropped++;
+			return false;
+		}
+		int offset = (int) (h & (RING_SIZE - 1)) * RECORD_SIZE;
+		ring.putDouble(offset, time);
+		ring.putFloat(offset + 8, (float) voltage);
+		ring.putFloat(offset + 12, (float) temperature);
+		for (int i = 0; i < CHANNELS; i++) {
+			ring.putFloat(offset + 16 + i * 4, (float) currents[i]);
+		}
+		ring.putInt(offset + 16 + CHANNELS * 4, mode);
+		// publishes the record to the writer
+		head.lazySet(h + 1);
+		return true;
+	}
+
+	/**
+	 *
+	 * @return the number of records dropped because the ring was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 *
+	 * @return the number of records written to the file
+	 */
+	public long getRecordsWritten() {
+		return tail.get();
+	}
+
+	/**
+	 * writes everything left, trims the file, and stops the writer thread
+	 */
+	public void close() {
+		running = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * copies the waiting records into the batch buffer and writes them
+	 *
+	 * @return the number of records written
+	 */
+	private int writeBatch() throws IOException {
+		long t = tail.get();
+		int available = (int) Math.min(head.get() - t, BATCH_SIZE);
+		if (available == 0) {
+			return 0;
+		}
+		batch.clear();
+		for (int i = 0; i < available; i++) {
+			int offset = (int) ((t + i) & (RING_SIZE - 1)) * RECORD_SIZE;
+			ringReader.limit(offset + RECORD_SIZE).position(offset);
+			batch.put(ringReader);
+		}
+		// the slots can be reused once they're copied
+		tail.lazySet(t + available);
+		batch.flip();
+		long position = HEADER_SIZE + recordsWritten * RECORD_SIZE;
+		while (batch.hasRemaining()) {
+			position += channel.write(batch, position);
+		}
+		recordsWritten += available;
+		count.clear();
+		count.putLong(0, recordsWritten);
+		channel.write(count, COUNT_OFFSET);
+		return available;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				// keep writing while there's a full batch waiting
+				while (writeBatch() == BATCH_SIZE) {
+				}
+				LockSupport.parkNanos(WRITE_PERIOD);
+			}
+			while (writeBatch() > 0) {
+			}
+			file.setLength(HEADER_SIZE + recordsWritten * RECORD_SIZE);
+			channel.force(true);
+			channel.close();
+		} catch (IOException e) {
+			Logging.e("Telemetry log stopped writing: " + e);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package utilities;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Turns a TelemetryLog file into the same csv format the PDP used to write
+ * directly. Run by the convertTelemetry gradle task, or by hand on a log copied
+ * off the robot.
+ *
+ * @author jack
+ *
+ */
+public class TelemetryLogConverter {
+	private static final String[] MODES = { "Disabled", "Auton", "Teleop" };
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: TelemetryLogConverter <log file> [csv file]");
+			System.exit(1);
+		}
+		String out = args.length == 2 ? args[1] : args[0].replaceAll("\\.bin$", "") + ".csv";
+		long count = convert(args[0], out);
+		System.out.println("Wrote " + count + " records to " + out);
+	}
+
+	/**
+	 * converts a log to a csv
+	 *
+	 * @param logName
+	 *            the log file
+	 * @param csvName
+	 *            the csv file to write
+	 * @return the number of records converted
+	 * @throws IOException
+	 *             if the log can't be read, isn't a telemetry log, or the csv
+	 *             can't be written
+	 */
+	public static long convert(String logName, String csvName) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(logName, "r");
+				FileChannel channel = file.getChannel();
+				PrintWriter csv = new PrintWriter(new BufferedWriter(new FileWriter(csvName)))) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.remaining() < TelemetryLog.HEADER_SIZE || buffer.getInt() != TelemetryLog.MAGIC) {
+				throw new IOException(logName + " is not a telemetry log");
+			}
+			int version = buffer.getInt();
+			if (version != TelemetryLog.VERSION) {
+				throw new IOException("Unknown telemetry log version " + version);
+			}
+			int channels = buffer.getInt();
+			int recordSize = buffer.getInt();
+			long count = buffer.getLong();
+			// the count can be behind if the robot lost power in the middle of a write
+			count = Math.min(count, (channel.size() - TelemetryLog.HEADER_SIZE) / recordSize);
+
+			StringBuilder line = new StringBuilder("Time,\tVoltage,\tTemperature,\t");
+			for (int i = 0; i < channels; i++) {
+				line.append("Port ").append(i).append(" Current,\t");
+			}
+			line.append("Mode");
+			csv.println(line);
+			for (long r = 0; r < count; r++) {
+				ByteBuffer record = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+				record.position((int) (TelemetryLog.HEADER_SIZE + r * recordSize));
+				line.setLength(0);
+				line.append(String.format("%.2f", record.getDouble())).append(",\t");
+				line.append(String.format("%.2f", record.getFloat())).append(",\t");
+				line.append(String.format("%.2f", record.getFloat())).append(",\t");
+				for (int i = 0; i < channels; i++) {
+					line.append(String.format("%.2f", record.getFloat())).append(",\t");
+				}
+				int mode = record.getInt();
+				line.append(mode >= 0 && mode < MODES.length ? MODES[mode] : "Unknown");
+				csv.println(line);
+			}
+			return count;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package controllers.motion_profiles;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import controllers.PIDcontroller;
+import path_generation.Path;
+import path_generation.Point;
+import path_generation.Waypoint;
+
+/**
+ * Tests firing markers from a motion profile's clock.
+ *
+ * @author jack
+ *
+ */
+public class ProfileMarkersTest {
+	private static final double DT = 0.005;
+
+	private static Waypoint[] makeWaypoints() {
+		return new Waypoint[] { new Waypoint(new Point(0, 0), 0), new Waypoint(new Point(5.5, 0), 0).mark("raise"),
+				new Waypoint(new Point(7.2, -0.6), -Math.PI / 4.0) };
+	}
+
+	@Test
+	public void firesOnceInOrderAtTheCrossingLoop() {
+		ProfileMarkers markers = new ProfileMarkers();
+		StringBuilder fired = new StringBuilder();
+		double[] firedAt = new double[1];
+		markers.add("b", 0.5);
+		markers.add("a", 0.2);
+		markers.add("c", 0.5);
+		markers.on("b", () -> fired.append('b'));
+		markers.on("c", () -> fired.append('c'));
+
+		MotionProfile mp = new MotionProfile(new PIDcontroller(0, 0, 0), 0, 0, new SkidsteerProfileGenerator(0));
+		mp.setMarkers(markers);
+		markers.on("a", () -> firedAt[0] = mp.advance(0));
+		for (int i = 0; i < 200; i++) {
+			mp.advance(DT);
+		}
+		Assert.assertEquals("bc", fired.toString());
+		// the first loop at or after the marker, not a loop late
+		Assert.assertTrue(firedAt[0] >= 0.2 && firedAt[0] < 0.2 + DT);
+		Assert.assertTrue(markers.hasFired("c"));
+
+		// starts over when the profile is driven again
+		mp.setMarkers(markers);
+		Assert.assertFalse(markers.hasFired("a"));
+	}
+
+	@Test
+	public void waypointAndDistanceTimesFollowThePath() {
+		Path path = new Path(2, 3, makeWaypoints());
+		double waypointTime = path.getWaypointTime(1);
+		Assert.assertEquals(0, path.getWaypointTime(0), 0);
+		Assert.assertEquals(path.endTime, path.getWaypointTime(2), 1e-9);
+		// the waypoint is 5.5m down the straight start of the path
+		Assert.assertEquals(waypointTime, path.getTimeAtDistance(5.5), 0.01);
+
+		double last = -1;
+		for (double d = 0; d <= path.endPos; d += 0.05) {
+			double t = path.getTimeAtDistance(d);
+			Assert.assertTrue(t >= last);
+			last = t;
+		}
+		for (int i = 0; i < path.size(); i++) {
+			Assert.assertEquals(path.getTime(i), path.getTimeAtDistance(path.getDistance(i)), 1e-6);
+		}
+	}
+
+	@Test
+	public void profilesGiveTheSameDistanceTimesAsThePath() {
+		Path path = new Path(2, 3, makeWaypoints());
+		SkidsteerDriveGenerator generator = new SkidsteerDriveGenerator(0.665);
+		for (boolean backwards : new boolean[] { false, true }) {
+			DriveProfile drive = generator.genProfile(path, backwards);
+			// mirroring swaps the wheels, which doesn't change how far the center goes
+			DriveProfile mirrored = drive.transformed(0, true);
+			for (double d = 0; d <= path.endPos + 0.1; d += 0.05) {
+				// the profile starts at the velocity of the first segment of the path, so
+				// it gets ahead of the path until the second point
+				if (d >= path.getDistance(1)) {
+					Assert.assertEquals(path.getTimeAtDistance(d), drive.getTimeAtDistance(d),
+							WheelProfileGenerator.RESAMPLE_DT);
+				}
+				Assert.assertEquals(drive.getTimeAtDistance(d), mirrored.getTimeAtDistance(d), 1e-12);
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package controllers.motion_profiles;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hardware.interfaces.MotionProfileBuffer;
+
+/**
+ * Tests streaming profiles to a simulated Talon that uses up one point every
+ * point duration, like the real one does.
+ *
+ * @author jack
+ *
+ */
+public class ProfileStreamerTest {
+	/**
+	 * A motion profile buffer that works like a Talon's. Points are pushed to a
+	 * top buffer, moved to a smaller bottom buffer by process(), and used up from
+	 * the bottom buffer at a fixed rate once the first point arrives.
+	 */
+	static class SimulatedTalonBuffer implements MotionProfileBuffer {
+		final int topSize;
+		final int bottomSize;
+		final ArrayDeque<double[]> top = new ArrayDeque<double[]>();
+		final ArrayDeque<double[]> bottom = new ArrayDeque<double[]>();
+		/**
+		 * every point that has been run, as {position, velocity, isLast}
+		 */
+		final ArrayList<double[]> run = new ArrayList<double[]>();
+		final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		boolean started = false;
+		boolean finished = false;
+		boolean underrun = false;
+		boolean overflowed = false;
+
+		SimulatedTalonBuffer(int topSize, int bottomSize) {
+			this.topSize = topSize;
+			this.bottomSize = bottomSize;
+		}
+
+		@Override
+		public boolean supportsDuration(int durationMs) {
+			return durationMs == 5 || durationMs == 10 || durationMs == 20;
+		}
+
+		@Override
+		public synchronized int getFreeSpace() {
+			return topSize - top.size();
+		}
+
+		@Override
+		public synchronized void push(double position, double velocity, int durationMs, boolean isLast) {
+			if (top.size() >= topSize) {
+				overflowed = true;
+				return;
+			}
+			top.add(new double[] { position, velocity, isLast ? 1 : 0 });
+			if (!started) {
+				started = true;
+				executor.scheduleAtFixedRate(this::runPoint, durationMs, durationMs, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		@Override
+		public synchronized void process() {
+			while (!top.isEmpty() && bottom.size() < bottomSize) {
+				bottom.add(top.poll());
+			}
+		}
+
+		private synchronized void runPoint() {
+			if (finished) {
+				return;
+			}
+			double[] point = bottom.poll();
+			if (point == null) {
+				underrun = true;
+				return;
+			}
+			run.add(point);
+			finished = point[2] == 1;
+		}
+
+		@Override
+		public synchronized boolean isFinished() {
+			return finished;
+		}
+
+		@Override
+		public synchronized boolean hasUnderrun() {
+			return underrun;
+		}
+
+		@Override
+		public synchronized void clear() {
+			top.clear();
+			bottom.clear();
+		}
+
+		void shutdown() {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Profile makeProfile(int length, double dt) {
+		Profile p = new Profile(length);
+		for (int i = 0; i < length; i++) {
+			p.setPoint(i, new MPPoint(i * 0.01, i * 0.5, i * dt));
+		}
+		return p;
+	}
+
+	@Test
+	public void streamsWholeProfileWithoutUnderrun() throws InterruptedException {
+		Profile profile = makeProfile(150, 0.01);
+		// much smaller than the profile so it has to be streamed in batches
+		SimulatedTalonBuffer buffer = new SimulatedTalonBuffer(16, 32);
+		ProfileStreamer streamer = new ProfileStreamer(buffer);
+		try {
+			streamer.start(profile);
+			long deadline = System.currentTimeMillis() + 10000;
+			while (!buffer.isFinished() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			streamer.stop();
+
+			Assert.assertTrue(buffer.isFinished());
+			Assert.assertFalse("simulated talon ran out of points", buffer.hasUnderrun());
+			Assert.assertFalse("pushed more points than fit", buffer.overflowed);
+			synchronized (buffer) {
+				Assert.assertEquals(profile.size(), buffer.run.size());
+				for (int i = 0; i < profile.size(); i++) {
+					double[] point = buffer.run.get(i);
+					Assert.assertEquals(profile.getPoint(i).position, point[0], 0);
+					Assert.assertEquals(profile.getPoint(i).velocity, point[1], 0);
+					Assert.assertEquals(i == profile.size() - 1, point[2] == 1);
+				}
+			}
+		} finally {
+			streamer.stop();
+			buffer.shutdown();
+		}
+	}
+
+	@Test
+	public void stopHaltsStreaming() throws InterruptedException {
+		Profile profile = makeProfile(400, 0.01);
+		SimulatedTalonBuffer buffer = new SimulatedTalonBuffer(16, 32);
+		ProfileStreamer streamer = new ProfileStreamer(buffer);
+		try {
+			streamer.start(profile);
+			Thread.sleep(100);
+			streamer.stop();
+			int pushed = streamer.getPointsPushed();
+			Thread.sleep(100);
+			Assert.assertFalse(streamer.isRunning());
+			Assert.assertEquals(pushed, streamer.getPointsPushed());
+			Assert.assertTrue(pushed < profile.size());
+		} finally {
+			buffer.shutdown();
+		}
+	}
+
+	@Test
+	public void rejectsUnevenProfiles() {
+		Profile uneven = new Profile(3);
+		uneven.setPoint(0, new MPPoint(0, 0, 0));
+		uneven.setPoint(1, new MPPoint(0, 1, 0.01));
+		uneven.setPoint(2, new MPPoint(0, 2, 0.03));
+		ProfileStreamer streamer = new ProfileStreamer(new SimulatedTalonBuffer(16, 32));
+		Assert.assertFalse(streamer.canStream(uneven));
+		Assert.assertTrue(streamer.canStream(makeProfile(10, 0.01)));
+		// 7ms isn't a duration the talon supports
+		Assert.assertFalse(streamer.canStream(makeProfile(10, 0.007)));
+	}
+}
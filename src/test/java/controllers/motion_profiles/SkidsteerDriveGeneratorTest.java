@@ -0,0 +1,75 @@
+package controllers.motion_profiles;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import commands.autonomous.Scale3CubeAutoFast;
+import path_generation.Path;
+
+/**
+ * Tests generating both sides of the drivetrain in one pass.
+ *
+ * @author jack
+ *
+ */
+public class SkidsteerDriveGeneratorTest {
+	private static final double WHEEL_DISTANCE = 0.665;
+
+	private static final WheelProfileGenerator LEFT = new SkidsteerProfileGenerator(-WHEEL_DISTANCE / 2);
+	private static final WheelProfileGenerator RIGHT = new SkidsteerProfileGenerator(WHEEL_DISTANCE / 2);
+	private static final SkidsteerDriveGenerator DRIVE = new SkidsteerDriveGenerator(WHEEL_DISTANCE);
+
+	/**
+	 * The right path of the 3 cube scale auton.
+	 */
+	private static Path makePath() {
+		return new Path(3, 4, Path.VelocityMode.TIME_OPTIMAL, Path.SplineMode.QUINTIC_HERMITE,
+				Scale3CubeAutoFast.getRightPath());
+	}
+
+	private static void assertSame(Profile expected, Profile actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(expected.getTimeStep(), actual.getTimeStep(), 1e-12);
+		MPPoint sampled = new MPPoint(0, 0, 0);
+		for (int i = 0; i < expected.size(); i++) {
+			MPPoint e = expected.getPoint(i);
+			MPPoint a = actual.getPoint(i);
+			Assert.assertEquals(e.time, a.time, 1e-12);
+			Assert.assertEquals(e.position, a.position, 1e-12);
+			Assert.assertEquals(e.velocity, a.velocity, 1e-12);
+			Assert.assertEquals(e.acceleration, a.acceleration, 1e-12);
+			Assert.assertEquals(e.jerk, a.jerk, 1e-12);
+		}
+		for (double t = -0.1; t < expected.getEndTime() + 0.1; t += 0.0037) {
+			Assert.assertEquals(expected.sample(t, sampled), actual.sample(t, sampled), 1e-12);
+		}
+	}
+
+	@Test
+	public void matchesGeneratingEachSide() {
+		Path path = makePath();
+		for (boolean backwards : new boolean[] { false, true }) {
+			DriveProfile drive = DRIVE.genProfile(path, backwards);
+			assertSame(LEFT.genProfile(path, backwards), drive.getLeft());
+			assertSame(RIGHT.genProfile(path, backwards), drive.getRight());
+		}
+	}
+
+	@Test
+	public void headingFollowsThePath() {
+		Path path = makePath();
+		DriveProfile forwards = DRIVE.genProfile(path, false);
+		DriveProfile backwards = DRIVE.genProfile(path, true);
+		Assert.assertEquals(path.getHeading(path.size() - 1), forwards.getHeading(forwards.size() - 1), 1e-9);
+		for (int i = 0; i < forwards.size(); i++) {
+			// backwards the robot faces the other way
+			Assert.assertEquals(Math.PI, Math.abs(forwards.getHeading(i) - backwards.getHeading(i)), 1e-9);
+		}
+
+		DriveProfile mirrored = forwards.transformed(0, true);
+		for (int i = 0; i < forwards.size(); i++) {
+			Assert.assertEquals(-forwards.getHeading(i), mirrored.getHeading(i), 0);
+			Assert.assertEquals(forwards.getLeft().getPoint(i).position, mirrored.getRight().getPoint(i).position, 0);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package controllers.motion_profiles;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import commands.autonomous.Scale3CubeAutoFast;
+import path_generation.Path;
+import path_generation.PathStream;
+import path_generation.Waypoint;
+
+/**
+ * Tests generating a path a segment at a time while it is being followed.
+ *
+ * @author jack
+ *
+ */
+public class StreamedPathGeneratorTest {
+	private static final double VEL = 3;
+	private static final double ACCEL = 4;
+
+	private static final WheelProfileGenerator LEFT = new SkidsteerProfileGenerator(-0.665 / 2);
+	private static final WheelProfileGenerator RIGHT = new SkidsteerProfileGenerator(0.665 / 2);
+
+	/**
+	 * The right path of the 3 cube scale auton.
+	 */
+	private static Waypoint[] makeWaypoints() {
+		return Scale3CubeAutoFast.getRightPath();
+	}
+
+	private static PathStream makeStream() {
+		return new PathStream(VEL, ACCEL, Path.SplineMode.QUINTIC_HERMITE, makeWaypoints());
+	}
+
+	@Test
+	public void firstSegmentIsReadyBeforeWholePath() throws InterruptedException {
+		// warm up so the times aren't mostly class loading and the JIT
+		for (int i = 0; i < 5; i++) {
+			new Path(VEL, ACCEL, Path.VelocityMode.TIME_OPTIMAL, Path.SplineMode.QUINTIC_HERMITE, makeWaypoints());
+			StreamedPathGenerator warmup = new StreamedPathGenerator(makeStream(), LEFT, RIGHT, false);
+			warmup.run();
+		}
+
+		StreamedPathGenerator generator = new StreamedPathGenerator(makeStream(), LEFT, RIGHT, false);
+		generator.start();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!generator.isDone() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		Assert.assertTrue(generator.isDone());
+
+		double firstMotion = generator.getTimeToFirstProfile();
+		double whole = generator.getGenerationTime();
+		Assert.assertTrue(firstMotion < whole);
+		Assert.assertTrue(generator.getLeft().isComplete());
+
+		// nothing was followed, so it ends up the same as generating it all at once
+		Path path = new Path(VEL, ACCEL, Path.VelocityMode.TIME_OPTIMAL, Path.SplineMode.QUINTIC_HERMITE,
+				makeWaypoints());
+		Profile left = LEFT.genProfile(path, false);
+		Profile right = RIGHT.genProfile(path, false);
+		Assert.assertEquals(left.getEndTime(), generator.getLeft().getEndTime(), 1e-9);
+		Assert.assertEquals(left.end().position, generator.getLeft().end().position, 1e-9);
+		Assert.assertEquals(right.end().position, generator.getRight().end().position, 1e-9);
+	}
+
+	@Test
+	public void eachPlanStopsAndKeepsWhereTheRobotHasBeen() {
+		PathStream stream = makeStream();
+		double followerTime = 0;
+		int lockIndex = 0;
+		double[] lockedTimes = new double[0];
+		double[] lockedVelocities = new double[0];
+		while (stream.hasNext()) {
+			Path path = stream.next(lockIndex, followerTime);
+			for (int i = 0; i < lockedTimes.length; i++) {
+				Assert.assertEquals(lockedTimes[i], path.getTime(i), 0);
+				Assert.assertEquals(lockedVelocities[i], path.getVelocity(i), 0);
+			}
+			// safe to stop if the next segment doesn't come in time
+			Assert.assertEquals(0, path.getVelocity(path.size() - 1), 0);
+			for (int i = 1; i < path.size(); i++) {
+				Assert.assertTrue(path.getTime(i) >= path.getTime(i - 1));
+			}
+
+			// the robot drives half a second of the plan before the next segment
+			followerTime += 0.5;
+			lockIndex = stream.getLockIndex(followerTime);
+			lockedTimes = new double[lockIndex];
+			lockedVelocities = new double[lockIndex];
+			for (int i = 0; i < lockIndex; i++) {
+				lockedTimes[i] = path.getTime(i);
+				lockedVelocities[i] = path.getVelocity(i);
+			}
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package controllers.motion_profiles;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import commands.autonomous.Scale3CubeAutoFast;
+import hardware.DriveBase2018;
+import path_generation.Path;
+import path_generation.Waypoint;
+
+/**
+ * Tests planning several paths as one trajectory.
+ *
+ * @author jack
+ *
+ */
+public class TrajectorySequenceTest {
+	private static final double VEL = 2;
+	private static final double ACCEL = 3;
+	private static final SkidsteerDriveGenerator GENERATOR = new SkidsteerDriveGenerator(DriveBase2018.wheelDistance);
+
+	/**
+	 * The first two paths of the 3 cube scale auton, where the robot turns
+	 * around.
+	 */
+	private static final Waypoint[] TO_SCALE = Scale3CubeAutoFast.getLeftPath();
+	private static final Waypoint[] GET_CUBE = Scale3CubeAutoFast.getLeftGetCube2();
+
+	/**
+	 * The right path of the 3 cube scale auton, split in two where it goes
+	 * straight.
+	 */
+	private static final Waypoint[] FIRST_HALF = Arrays.copyOfRange(Scale3CubeAutoFast.getRightPath(), 0, 4);
+	private static final Waypoint[] SECOND_HALF = Arrays.copyOfRange(Scale3CubeAutoFast.getRightPath(), 3, 7);
+
+	/**
+	 * checks that the wheels don't jump anywhere in the profile, or change speed
+	 * suddenly where one path switches to the next. Sharp turns inside a path
+	 * can change the speed of the wheels faster than that, the same as when the
+	 * path is driven on its own.
+	 *
+	 * @param startVelocity
+	 *            how fast the wheel goes at the start or end of the paths on
+	 *            their own where they join, which turns at the ends of a path
+	 *            make more than 0 even when the robot stops there
+	 */
+	private static void assertContinuous(Profile p, double joinTime, double startVelocity) {
+		for (int i = 1; i < p.size(); i++) {
+			MPPoint before = p.getPoint(i - 1);
+			MPPoint point = p.getPoint(i);
+			double dt = point.time - before.time;
+			Assert.assertTrue(Math.abs(point.position - before.position) <= 2 * VEL * dt);
+			if (Math.abs(point.time - joinTime) <= 2 * dt) {
+				Assert.assertTrue(Math.abs(point.velocity - before.velocity) <= 2 * ACCEL * dt + startVelocity);
+			}
+		}
+	}
+
+	@Test
+	public void stopsToTurnAround() {
+		TrajectorySequence sequence = new TrajectorySequence();
+		sequence.add(VEL, ACCEL, true, false, TO_SCALE);
+		sequence.add(VEL, ACCEL, false, false, GET_CUBE);
+		sequence.plan();
+
+		Assert.assertEquals(0, sequence.getEndVelocity(0), 0);
+		// each path is planned the same as on its own. The second starts at the
+		// last point of the first, which can be up to a time step after it ends.
+		Path toScale = new Path(VEL, ACCEL, TO_SCALE);
+		Path getCube = new Path(VEL, ACCEL, GET_CUBE);
+		Assert.assertEquals(toScale.endTime, sequence.getEndTime(0), WheelProfileGenerator.RESAMPLE_DT);
+		Assert.assertTrue(sequence.getEndTime(0) >= toScale.endTime);
+		Assert.assertEquals(sequence.getEndTime(0) + getCube.endTime, sequence.getEndTime(1), 1e-9);
+
+		DriveProfile drive = sequence.getProfile();
+		Assert.assertEquals(sequence.getEndTime(1), drive.getEndTime(), WheelProfileGenerator.RESAMPLE_DT);
+		Assert.assertEquals(WheelProfileGenerator.RESAMPLE_DT, drive.getTimeStep(), 1e-9);
+		DriveProfile toScaleDrive = GENERATOR.genProfile(toScale, true);
+		DriveProfile getCubeDrive = GENERATOR.genProfile(getCube, false);
+		assertContinuous(drive.getLeft(), sequence.getEndTime(0), Math.abs(toScaleDrive.getLeft().end().velocity)
+				+ Math.abs(getCubeDrive.getLeft().start().velocity));
+		assertContinuous(drive.getRight(), sequence.getEndTime(0), Math.abs(toScaleDrive.getRight().end().velocity)
+				+ Math.abs(getCubeDrive.getRight().start().velocity));
+		// backs up to the scale, then drives forwards from there
+		MPPoint atScale = drive.getLeft().getInterpolatedPoint(sequence.getEndTime(0));
+		Assert.assertTrue(atScale.position < -5);
+		Assert.assertTrue(drive.getLeft().end().position > atScale.position);
+	}
+
+	@Test
+	public void reusesProfilesWhereItStops() {
+		Path toScale = new Path(VEL, ACCEL, TO_SCALE);
+		Path getCube = new Path(VEL, ACCEL, GET_CUBE);
+		DriveProfile first = GENERATOR.genProfile(toScale, true);
+		DriveProfile second = GENERATOR.genProfile(getCube, false);
+
+		TrajectorySequence sequence = new TrajectorySequence();
+		sequence.useProfile(sequence.add(VEL, ACCEL, true, false, TO_SCALE), toScale, first, toScale.endTime);
+		sequence.useProfile(sequence.add(VEL, ACCEL, false, false, GET_CUBE), getCube, second, getCube.endTime);
+		sequence.plan();
+		Assert.assertSame(toScale, sequence.getPath(0));
+		Assert.assertSame(getCube, sequence.getPath(1));
+
+		// the second profile replaces the last point of the first, moved to start
+		// there
+		DriveProfile drive = sequence.getProfile();
+		Assert.assertEquals(first.size() + second.size() - 1, drive.size());
+		Assert.assertEquals(WheelProfileGenerator.RESAMPLE_DT, drive.getTimeStep(), 1e-9);
+		Assert.assertEquals(first.getEndTime(), sequence.getEndTime(0), 1e-12);
+		MPPoint end = first.getLeft().end();
+		for (int i = 0; i < second.size(); i++) {
+			int index = first.size() - 1 + i;
+			MPPoint expected = second.getLeft().getPoint(i);
+			MPPoint actual = drive.getLeft().getPoint(index);
+			Assert.assertEquals(end.time + expected.time, actual.time, 1e-9);
+			Assert.assertEquals(end.position + expected.position, actual.position, 1e-9);
+			Assert.assertEquals(expected.velocity, actual.velocity, 0);
+			Assert.assertEquals(second.getHeading(i), drive.getHeading(index), 0);
+		}
+		for (int i = 0; i < first.size() - 1; i++) {
+			Assert.assertEquals(first.getLeft().getPoint(i).position, drive.getLeft().getPoint(i).position, 0);
+		}
+	}
+
+	@Test
+	public void keepsMovingWherePathsLineUp() {
+		TrajectorySequence sequence = new TrajectorySequence();
+		sequence.add(VEL, ACCEL, false, true, FIRST_HALF);
+		sequence.add(VEL, ACCEL, false, true, SECOND_HALF);
+		sequence.plan();
+
+		Assert.assertTrue(sequence.getEndVelocity(0) > 1);
+		Assert.assertEquals(sequence.getEndVelocity(0), sequence.getPath(1).getVelocity(0), 0);
+		Assert.assertEquals(0, sequence.getEndVelocity(1), 0);
+		// faster than stopping in the middle
+		double stopping = new Path(VEL, ACCEL, FIRST_HALF).endTime + new Path(VEL, ACCEL, SECOND_HALF).endTime;
+		Assert.assertTrue(sequence.getEndTime(1) < stopping - 0.2);
+
+		DriveProfile drive = sequence.getProfile();
+		assertContinuous(drive.getLeft(), sequence.getEndTime(0), 0);
+		assertContinuous(drive.getRight(), sequence.getEndTime(0), 0);
+		// mirrored, so the first turn is to the left
+		Assert.assertTrue(drive.getHeading(drive.size() - 1) < 0);
+		Assert.assertTrue(sequence.getPath(0).getY(sequence.getPath(0).size() - 1) > 2.8);
+	}
+}
@@ -0,0 +1,124 @@
+package path_generation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import commands.autonomous.Scale3CubeAutoFast;
+import hardware.DriveBase2018;
+
+/**
+ * Tests sampling paths and planning their velocities.
+ *
+ * @author jack
+ *
+ */
+public class PathTest {
+	private static final double VEL = 3;
+	private static final double ACCEL = 4;
+	/**
+	 * how far over a limit rounding can put a point
+	 */
+	private static final double EPSILON = 1e-9;
+	private static final double HALF_WIDTH = DriveBase2018.wheelDistance / 2;
+
+	private static Path makeShortPath(Path.VelocityMode mode) {
+		return new Path(VEL, ACCEL, mode, Path.SplineMode.QUINTIC_HERMITE, new Waypoint(new Point(0, 0), 0),
+				new Waypoint(new Point(0.05, 0), 0));
+	}
+
+	private static Path makeLongPath(Path.VelocityMode mode) {
+		return new Path(VEL, ACCEL, mode, Path.SplineMode.QUINTIC_HERMITE, Scale3CubeAutoFast.getRightPath());
+	}
+
+	private static void assertFinishes(Path path, String name) {
+		Assert.assertTrue(name + " ends at " + path.endTime,
+				path.endTime > 0 && !Double.isInfinite(path.endTime) && !Double.isNaN(path.endTime));
+		for (int i = 1; i < path.size(); i++) {
+			Assert.assertTrue(name + " goes back in time at " + i, path.getTime(i) >= path.getTime(i - 1));
+		}
+	}
+
+	@Test
+	public void shortStraightPathsFinish() {
+		for (Path.VelocityMode mode : Path.VelocityMode.values()) {
+			assertFinishes(makeShortPath(mode), mode.toString());
+		}
+		// the time to speed up and slow down over the distance
+		Assert.assertEquals(2 * Math.sqrt(0.05 / ACCEL), makeShortPath(Path.VelocityMode.TRIANGULAR).endTime, 1e-6);
+	}
+
+	@Test
+	public void longPathsFinish() {
+		for (Path.VelocityMode mode : Path.VelocityMode.values()) {
+			assertFinishes(makeLongPath(mode), mode.toString());
+		}
+	}
+
+	@Test
+	public void adaptiveSamplingStaysWithinTolerance() {
+		Path path = makeLongPath(Path.VelocityMode.TRAPAZOIDAL);
+		Waypoint[] waypoints = Scale3CubeAutoFast.getRightPath();
+		Point start = waypoints[0].getPoint();
+		Point end = waypoints[waypoints.length - 1].getPoint();
+		Assert.assertEquals(start.x, path.getX(0), EPSILON);
+		Assert.assertEquals(start.y, path.getY(0), EPSILON);
+		Assert.assertEquals(end.x, path.getX(path.size() - 1), 1e-6);
+		Assert.assertEquals(end.y, path.getY(path.size() - 1), 1e-6);
+		for (int i = 1; i < path.size(); i++) {
+			double spacing = path.getDistance(i) - path.getDistance(i - 1);
+			double chord = Math.hypot(path.getX(i) - path.getX(i - 1), path.getY(i) - path.getY(i - 1));
+			Assert.assertTrue("points " + i + " are " + spacing + "m apart",
+					spacing > 0 && spacing <= Path.maxPointSpacing + EPSILON);
+			// the distance is measured along the curve, so it's never shorter than the line
+			Assert.assertTrue(spacing >= chord - 1e-6);
+			double turn = Math.abs(Math.IEEEremainder(path.getHeading(i) - path.getHeading(i - 1), 2 * Math.PI));
+			Assert.assertTrue("turns " + turn + " at " + i, turn <= Path.defaultHeadingTolerance + EPSILON);
+		}
+		// the same length as evenly sampling the curves, with far fewer points
+		Path uniform = new Path(VEL, ACCEL, Path.VelocityMode.TRAPAZOIDAL, Path.SplineMode.QUINTIC_HERMITE, 0, 0,
+				Scale3CubeAutoFast.getRightPath());
+		Assert.assertEquals(uniform.endPos, path.endPos, 0.01);
+		Assert.assertTrue(path.size() < uniform.size());
+	}
+
+	@Test
+	public void timeOptimalStaysWithinWheelLimits() {
+		Path path = makeLongPath(Path.VelocityMode.TIME_OPTIMAL);
+		for (int i = 0; i < path.size(); i++) {
+			double k = Math.abs(path.getCurvature(i));
+			double v = path.getVelocity(i);
+			Assert.assertTrue("outside wheel goes " + v * (1 + k * HALF_WIDTH) + " at " + i,
+					v * (1 + k * HALF_WIDTH) <= VEL + EPSILON);
+			Assert.assertTrue("slides at " + i, v * v * k <= Path.maxCentripetalAccel + EPSILON);
+			if (i > 0) {
+				// the acceleration is constant between points, so the turn is the tighter end
+				double turn = Math.max(k, Math.abs(path.getCurvature(i - 1)));
+				double wheelAccel = Math.abs(path.getAcceleration(i)) * (1 + turn * HALF_WIDTH);
+				Assert.assertTrue("outside wheel accelerates " + wheelAccel + " at " + i,
+						wheelAccel <= ACCEL + 1e-6);
+			}
+		}
+		Assert.assertEquals(0, path.getVelocity(0), 0);
+		Assert.assertEquals(0, path.getVelocity(path.size() - 1), 0);
+	}
+
+	@Test
+	public void sCurveStaysWithinJerkLimit() {
+		Path path = makeLongPath(Path.VelocityMode.S_CURVE);
+		for (int i = 0; i < path.size(); i++) {
+			double k = Math.abs(path.getCurvature(i));
+			Assert.assertTrue("jerk " + path.getJerk(i) + " at " + i, Math.abs(path.getJerk(i)) <= Path.maxJerk);
+			// each curve is limited for the tightest turn in it
+			Assert.assertTrue(path.getVelocity(i) * (1 + k * HALF_WIDTH) <= VEL + 1e-6);
+			Assert.assertTrue(Math.abs(path.getAcceleration(i)) * (1 + k * HALF_WIDTH) <= ACCEL + 1e-6);
+			Assert.assertTrue(path.getVelocity(i) * path.getVelocity(i) * k <= Path.maxCentripetalAccel + 1e-6);
+			if (i > 0) {
+				// the acceleration can't change faster than the jerk allows
+				double dt = path.getTime(i) - path.getTime(i - 1);
+				Assert.assertTrue("points " + i + " are " + dt + "s apart", dt <= Path.maxTimeSpacing + EPSILON);
+				Assert.assertTrue("acceleration jumps at " + i,
+						Math.abs(path.getAcceleration(i) - path.getAcceleration(i - 1)) <= Path.maxJerk * dt + 1e-6);
+			}
+		}
+	}
+}
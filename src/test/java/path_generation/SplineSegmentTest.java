@@ -0,0 +1,103 @@
+package path_generation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests evaluating and measuring spline segments.
+ *
+ * @author jack
+ *
+ */
+public class SplineSegmentTest {
+	private static final double STEP = 1e-5;
+
+	/**
+	 * the quintic hermite curve of the turn from the 3 cube scale auton
+	 */
+	private static SplineSegment makeTurn() {
+		return Path.getSegments(Path.SplineMode.QUINTIC_HERMITE, 0.8, new Waypoint(new Point(4, 0.2), 0),
+				new Waypoint(new Point(5.45, -1.5), -Math.PI / 2.0))[0];
+	}
+
+	private static SplineSegment[] makeCurves() {
+		return new SplineSegment[] { makeTurn(), SplineSegment.cubicBezier(0, 0, 1, 0, 2, 1, 2, 2),
+				SplineSegment.cubicHermite(0, 0, 2, 0, 1, 1, 0, 2) };
+	}
+
+	@Test
+	public void hermiteCurvesMatchTheirEnds() {
+		SplineSegment seg = SplineSegment.quinticHermite(1, 2, 3, 0, 4, 5, 0, -6);
+		Assert.assertEquals(1, seg.getX(0), 1e-12);
+		Assert.assertEquals(2, seg.getY(0), 1e-12);
+		Assert.assertEquals(4, seg.getX(1), 1e-12);
+		Assert.assertEquals(5, seg.getY(1), 1e-12);
+		Assert.assertEquals(3, seg.getDX(0), 1e-12);
+		Assert.assertEquals(-6, seg.getDY(1), 1e-12);
+		// no acceleration at the ends, so they join curves without a jump in turning
+		Assert.assertEquals(0, seg.getCurvature(0), 1e-12);
+		Assert.assertEquals(0, seg.getCurvature(1), 1e-12);
+	}
+
+	@Test
+	public void headingAndCurvatureFollowThePoints() {
+		for (SplineSegment seg : makeCurves()) {
+			for (double s = 0.05; s < 1; s += 0.05) {
+				double dx = seg.getX(s + STEP) - seg.getX(s - STEP);
+				double dy = seg.getY(s + STEP) - seg.getY(s - STEP);
+				Assert.assertEquals(Path.angleTowards(dx, dy), seg.getHeading(s), 1e-6);
+				// the curvature is how fast the heading turns along the curve
+				double turn = Math.IEEEremainder(seg.getHeading(s + STEP) - seg.getHeading(s - STEP), 2 * Math.PI);
+				Assert.assertEquals(turn / seg.getArcLength(s - STEP, s + STEP), seg.getCurvature(s), 1e-4);
+			}
+		}
+	}
+
+	@Test
+	public void arcLengthMatchesTheCurve() {
+		for (SplineSegment seg : makeCurves()) {
+			// add up a lot of short lines along the curve
+			int pieces = 100000;
+			double length = 0;
+			for (int i = 1; i <= pieces; i++) {
+				double s0 = (double) (i - 1) / pieces;
+				double s1 = (double) i / pieces;
+				length += Math.hypot(seg.getX(s1) - seg.getX(s0), seg.getY(s1) - seg.getY(s0));
+			}
+			// within micrometers, since the speed along the curve isn't a polynomial
+			Assert.assertEquals(length, seg.getArcLength(0, 1), 1e-5);
+			for (double s = 0.1; s < 1; s += 0.1) {
+				Assert.assertEquals(s, seg.getParameterAtLength(0, 1, seg.getArcLength(0, s)), 1e-6);
+			}
+		}
+		// a straight line is as long as the distance between its ends
+		SplineSegment line = SplineSegment.cubicBezier(0, 0, 1, 1, 2, 2, 3, 3);
+		Assert.assertEquals(3 * Math.sqrt(2), line.getArcLength(0, 1), 1e-9);
+		Assert.assertEquals(0, line.getCurvature(0.3), 1e-12);
+	}
+
+	@Test
+	public void basisSamplesMatchEvaluatingTheCurve() {
+		int samples = 20;
+		SplineBasis basis = SplineBasis.get(samples);
+		Assert.assertSame(basis, SplineBasis.get(samples));
+		Assert.assertEquals(samples, basis.getSamples());
+		for (SplineSegment seg : makeCurves()) {
+			double[] x = new double[samples + 2];
+			double[] y = new double[samples + 2];
+			double[] heading = new double[samples + 2];
+			double[] curvature = new double[samples + 2];
+			// written one after the start of the arrays, skipping the start of the curve
+			seg.sample(basis, 1, x, y, heading, curvature, 1);
+			for (int i = 1; i <= samples; i++) {
+				double s = (double) i / samples;
+				Assert.assertEquals(seg.getX(s), x[i], 1e-12);
+				Assert.assertEquals(seg.getY(s), y[i], 1e-12);
+				Assert.assertEquals(seg.getHeading(s), heading[i], 1e-12);
+				Assert.assertEquals(seg.getCurvature(s), curvature[i], 1e-9);
+			}
+			Assert.assertEquals(0, x[0], 0);
+			Assert.assertEquals(0, x[samples + 1], 0);
+		}
+	}
+}